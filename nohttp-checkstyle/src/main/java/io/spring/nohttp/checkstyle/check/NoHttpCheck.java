@@ -27,6 +27,8 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
+import java.net.URL;
+import java.security.CodeSource;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -206,12 +208,33 @@ public class NoHttpCheck extends AbstractFileSetCheck implements ExternalResourc
 		}
 	}
 
+	/**
+	 * Checkstyle hashes the contents of these locations to determine if the results in
+	 * its cache are still valid. In addition to the allowlist file, this includes the
+	 * default allowlist and the jars containing nohttp so that upgrading nohttp
+	 * invalidates the cache.
+	 * @return the locations that the results of this check depend on
+	 */
 	@Override
 	public Set<String> getExternalResourceLocations() {
 		Set<String> result = new HashSet<>();
 		if (isAllowlistFileSet()) {
 			result.add(this.allowlistFileName);
 		}
+		URL defaultAllowlist = RegexPredicate.class.getResource("allowlist.txt");
+		if (defaultAllowlist != null) {
+			result.add(defaultAllowlist.toString());
+		}
+		addJarLocation(result, RegexPredicate.class);
+		addJarLocation(result, NoHttpCheck.class);
 		return result;
 	}
+
+	private static void addJarLocation(Set<String> result, Class<?> type) {
+		CodeSource codeSource = type.getProtectionDomain().getCodeSource();
+		URL location = codeSource == null ? null : codeSource.getLocation();
+		if (location != null && location.getPath().endsWith(".jar")) {
+			result.add(location.toString());
+		}
+	}
 }
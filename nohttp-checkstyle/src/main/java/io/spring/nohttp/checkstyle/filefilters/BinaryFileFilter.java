@@ -0,0 +1,86 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.spring.nohttp.checkstyle.filefilters;
+
+import com.puppycrawl.tools.checkstyle.api.AutomaticBean;
+import com.puppycrawl.tools.checkstyle.api.BeforeExecutionFileFilter;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * <p>
+ * Skips binary files (i.e. jars, images, fonts) before Checkstyle decodes them into
+ * lines of text. A file is considered binary if it contains a NUL byte within the first
+ * {@link #setBytesToCheck(int) bytesToCheck} bytes, which is the same heuristic that
+ * Git and grep use.
+ * </p>
+ *
+ * <pre>
+ * &lt;module name="Checker"&gt;
+ *     &lt;module name="io.spring.nohttp.checkstyle.filefilters.BinaryFileFilter"/&gt;
+ * &lt;/module&gt;
+ * </pre>
+ *
+ * @since 0.0.12
+ */
+public class BinaryFileFilter extends AutomaticBean implements BeforeExecutionFileFilter {
+	private int bytesToCheck = 8000;
+
+	/**
+	 * Sets the number of bytes at the start of each file that are checked for a NUL
+	 * byte. The default is 8000.
+	 * @param bytesToCheck the number of bytes to check
+	 */
+	public void setBytesToCheck(int bytesToCheck) {
+		if (bytesToCheck <= 0) {
+			throw new IllegalArgumentException("bytesToCheck must be greater than 0");
+		}
+		this.bytesToCheck = bytesToCheck;
+	}
+
+	@Override
+	protected void finishLocalSetup() {
+	}
+
+	@Override
+	public boolean accept(String uri) {
+		try (InputStream input = new FileInputStream(uri)) {
+			return !isBinary(input);
+		}
+		catch (IOException e) {
+			// let Checkstyle report the file that cannot be read
+			return true;
+		}
+	}
+
+	private boolean isBinary(InputStream input) throws IOException {
+		byte[] buffer = new byte[this.bytesToCheck];
+		int total = 0;
+		int read;
+		while (total < buffer.length && (read = input.read(buffer, total, buffer.length - total)) != -1) {
+			for (int i = total; i < total + read; i++) {
+				if (buffer[i] == 0) {
+					return true;
+				}
+			}
+			total += read;
+		}
+		return false;
+	}
+}
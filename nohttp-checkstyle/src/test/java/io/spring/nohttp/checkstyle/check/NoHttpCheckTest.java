@@ -16,6 +16,7 @@
 
 package io.spring.nohttp.checkstyle.check;
 
+import io.spring.nohttp.RegexPredicate;
 import org.junit.Test;
 
 import static org.assertj.core.api.Assertions.*;
@@ -42,14 +43,18 @@ public class NoHttpCheckTest {
 	}
 
 	@Test
-	public void getExternalResourceLocationsWhenNoAllowlistlistThenEmpty() {
-		assertThat(this.check.getExternalResourceLocations()).isEmpty();
+	public void getExternalResourceLocationsWhenNoAllowlistlistThenDefaultAllowlist() {
+		assertThat(this.check.getExternalResourceLocations()).containsOnly(defaultAllowlistLocation());
 	}
 
 	@Test
-	public void getExternalResourceLocationsWhenAllowlistlistThenEmpty() {
+	public void getExternalResourceLocationsWhenAllowlistlistThenAllowlistAndDefaultAllowlist() {
 		String allowlistFileName = "allowlist.lines";
 		this.check.setAllowlistFileName(allowlistFileName);
-		assertThat(this.check.getExternalResourceLocations()).containsOnly(allowlistFileName);
+		assertThat(this.check.getExternalResourceLocations()).containsOnly(allowlistFileName, defaultAllowlistLocation());
+	}
+
+	private static String defaultAllowlistLocation() {
+		return RegexPredicate.class.getResource("allowlist.txt").toString();
 	}
 }
\ No newline at end of file
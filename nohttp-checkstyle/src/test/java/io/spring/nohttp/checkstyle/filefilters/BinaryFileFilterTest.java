@@ -0,0 +1,80 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.spring.nohttp.checkstyle.filefilters;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+
+public class BinaryFileFilterTest {
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	private BinaryFileFilter filter = new BinaryFileFilter();
+
+	@Test
+	public void setBytesToCheckWhenZeroThenIllegalArgumentException() {
+		assertThatCode(() -> this.filter.setBytesToCheck(0))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("bytesToCheck must be greater than 0");
+	}
+
+	@Test
+	public void acceptWhenTextThenTrue() throws IOException {
+		File file = write("http://example.com".getBytes(StandardCharsets.UTF_8));
+		assertThat(this.filter.accept(file.getPath())).isTrue();
+	}
+
+	@Test
+	public void acceptWhenEmptyThenTrue() throws IOException {
+		File file = write(new byte[0]);
+		assertThat(this.filter.accept(file.getPath())).isTrue();
+	}
+
+	@Test
+	public void acceptWhenNulThenFalse() throws IOException {
+		File file = write(new byte[] { 'P', 'K', 3, 4, 0, 'h', 't', 't', 'p' });
+		assertThat(this.filter.accept(file.getPath())).isFalse();
+	}
+
+	@Test
+	public void acceptWhenNulAfterBytesToCheckThenTrue() throws IOException {
+		this.filter.setBytesToCheck(2);
+		File file = write(new byte[] { 'a', 'b', 0 });
+		assertThat(this.filter.accept(file.getPath())).isTrue();
+	}
+
+	@Test
+	public void acceptWhenMissingThenTrue() {
+		File file = new File(this.temp.getRoot(), "missing");
+		assertThat(this.filter.accept(file.getPath())).isTrue();
+	}
+
+	private File write(byte[] content) throws IOException {
+		File file = this.temp.newFile();
+		Files.write(file.toPath(), content);
+		return file;
+	}
+}
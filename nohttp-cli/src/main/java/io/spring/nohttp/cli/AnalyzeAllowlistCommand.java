@@ -0,0 +1,157 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.spring.nohttp.cli;
+
+import io.spring.nohttp.AllowlistAnalyzer;
+import io.spring.nohttp.AllowlistRule;
+import io.spring.nohttp.AllowlistRule.Kind;
+import io.spring.nohttp.RegexPredicate;
+import picocli.CommandLine;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Finds the lines of allowlists that can be removed without changing what is allowed
+ */
+@CommandLine.Command(name = "analyze-allowlist", mixinStandardHelpOptions = true,
+		description = "Finds the allowlist lines that are duplicates or are allowed by another line and writes an optimized allowlist that allows the same URLs.")
+public class AnalyzeAllowlistCommand implements Callable<Integer> {
+	private static final String DEFAULT_ALLOWLIST = "the default allowlist";
+
+	@CommandLine.Parameters(paramLabel = "<file>", description = "The allowlists to analyze. Default is the default allowlist.")
+	private List<File> allowlistFiles;
+
+	@CommandLine.Option(names = "--with-default", description = "Also removes the lines of the allowlists that are allowed by the default allowlist.", defaultValue = "false")
+	private boolean withDefault;
+
+	@CommandLine.Option(names = "-o", paramLabel = "<file>", description = "The file to write the optimized allowlist to.")
+	private File output;
+
+	@Override
+	public Integer call() throws Exception {
+		Map<String, List<String>> sourceToLines = new LinkedHashMap<>();
+		boolean analyzeDefault = this.allowlistFiles == null;
+		if (analyzeDefault || this.withDefault) {
+			sourceToLines.put(DEFAULT_ALLOWLIST, readLines(RegexPredicate.class.getResourceAsStream("allowlist.txt")));
+		}
+		if (this.allowlistFiles != null) {
+			for (File file : this.allowlistFiles) {
+				sourceToLines.put(file.getPath(), readLines(new FileInputStream(file)));
+			}
+		}
+		AllowlistAnalyzer analyzer = new AllowlistAnalyzer();
+		sourceToLines.forEach((source, lines) -> analyzer.load(source,
+				new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8))));
+		if (!analyzeDefault) {
+			sourceToLines.remove(DEFAULT_ALLOWLIST);
+		}
+		List<AllowlistRule> rules = analyzer.analyze().stream()
+			.filter(r -> sourceToLines.containsKey(r.getSource()))
+			.collect(Collectors.toList());
+		List<AllowlistRule> optimized = rules.stream()
+			.filter(r -> r.getRedundantTo() == null)
+			.collect(Collectors.toList());
+
+		writeSummary(rules, optimized);
+		if (this.output != null) {
+			writeAllowlist(sourceToLines, rules);
+			System.out.println("Wrote the optimized allowlist to " + this.output);
+		}
+		return 0;
+	}
+
+	private void writeSummary(List<AllowlistRule> rules, List<AllowlistRule> optimized) {
+		System.out.println();
+		System.out.println(String.format("%-12s %8s %10s", "Kind", "Rules", "Optimized"));
+		for (Kind kind : Kind.values()) {
+			System.out.println(String.format("%-12s %8d %10d", kind.name().toLowerCase().replace('_', '-'),
+					count(rules, r -> r.getKind() == kind), count(optimized, r -> r.getKind() == kind)));
+		}
+		System.out.println(String.format("%-12s %8d %10d", "total", rules.size(), optimized.size()));
+		System.out.println();
+
+		List<AllowlistRule> redundant = rules.stream()
+			.filter(r -> r.getRedundantTo() != null)
+			.collect(Collectors.toList());
+		if (redundant.isEmpty()) {
+			System.out.println("No redundant lines found");
+		}
+		else {
+			System.out.println("The Following lines are redundant");
+			System.out.println();
+			for (AllowlistRule rule : redundant) {
+				String reason = rule.isDuplicate() ? " is a duplicate of " : " is allowed by ";
+				System.out.println("* " + rule + reason + rule.getRedundantTo());
+			}
+		}
+		System.out.println();
+
+		Predicate<AllowlistRule> regex = r -> r.getKind() == Kind.HOST_SUFFIX || r.getKind() == Kind.REGEX;
+		System.out.println("Patterns evaluated for a URL that is not allowed: " + rules.size() + " -> " + optimized.size()
+				+ " (" + count(rules, regex) + " -> " + count(optimized, regex) + " that are not a literal URL or prefix)");
+	}
+
+	/**
+	 * Writes the lines of the allowlists as they were written, including comments, except
+	 * for the redundant rules
+	 */
+	private void writeAllowlist(Map<String, List<String>> sourceToLines, List<AllowlistRule> rules) throws IOException {
+		try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(this.output.toPath(), StandardCharsets.UTF_8))) {
+			for (Map.Entry<String, List<String>> allowlist : sourceToLines.entrySet()) {
+				String source = allowlist.getKey();
+				Set<Integer> redundantLineNumbers = rules.stream()
+					.filter(r -> source.equals(r.getSource()) && r.getRedundantTo() != null)
+					.map(AllowlistRule::getLineNumber)
+					.collect(Collectors.toSet());
+				writer.println("// " + source);
+				List<String> lines = allowlist.getValue();
+				for (int i = 0; i < lines.size(); i++) {
+					if (!redundantLineNumbers.contains(i + 1)) {
+						writer.println(lines.get(i));
+					}
+				}
+			}
+		}
+	}
+
+	private static List<String> readLines(InputStream resource) throws IOException {
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource, StandardCharsets.UTF_8))) {
+			return reader.lines().collect(Collectors.toList());
+		}
+	}
+
+	private static long count(List<AllowlistRule> rules, Predicate<AllowlistRule> predicate) {
+		return rules.stream().filter(predicate).count();
+	}
+}
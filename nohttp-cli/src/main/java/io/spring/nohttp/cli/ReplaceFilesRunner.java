@@ -16,42 +16,59 @@
 
 package io.spring.nohttp.cli;
 
-import io.spring.nohttp.GradleHttpDsl;
+import io.spring.nohttp.AdaptiveRuleOrder;
+import io.spring.nohttp.ChunkedHttpMatcher;
+import io.spring.nohttp.FusedHttpMatcher;
+import io.spring.nohttp.HostMetrics;
 import io.spring.nohttp.HttpMatchResult;
-import io.spring.nohttp.HttpMatcher;
-import io.spring.nohttp.HttpReplacer;
+import io.spring.nohttp.KnownHttpsHosts;
+import io.spring.nohttp.LinearRegexEngine;
+import io.spring.nohttp.ProbeStrategy;
 import io.spring.nohttp.RegexHttpMatcher;
 import io.spring.nohttp.RegexPredicate;
+import io.spring.nohttp.ReplacementRules;
+import io.spring.nohttp.RuleProfile;
+import io.spring.nohttp.StatusCache;
 import io.spring.nohttp.StatusHttpReplacer;
+import io.spring.nohttp.StatusProber;
+import io.spring.nohttp.file.Detector;
+import io.spring.nohttp.file.DetectorProcessor;
 import io.spring.nohttp.file.DirScanner;
-import io.spring.nohttp.file.PreGradle21Scanner;
 import io.spring.nohttp.file.HttpMatcherProcessor;
-import io.spring.nohttp.file.HttpReplacerProcessor;
 import io.spring.nohttp.file.HttpProcessor;
+import io.spring.nohttp.file.ScanOrder;
 import picocli.CommandLine;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.InputStream;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import static java.lang.System.exit;
 
 /**
  * @author Rob Winch
  */
-@CommandLine.Command(name = "nohttp", mixinStandardHelpOptions = true)
+@CommandLine.Command(name = "nohttp", mixinStandardHelpOptions = true, subcommands = AnalyzeAllowlistCommand.class)
 public class ReplaceFilesRunner implements Callable<Integer> {
-	private InputStream allowlistExclusions;
+	private Predicate<String> allowlistExclusions;
+
+	private RegexPredicate defaultAllowlist;
+
+	private ReplacementRules replacementRules;
 
 	@CommandLine.Option(names = "-T", description = "Disable searching only text based files. This is determined using native invocation of grep which will not work on all systems, so it can be disabled.", defaultValue = "true")
 	private boolean textFilesOnly = true;
@@ -71,15 +88,98 @@ public class ReplaceFilesRunner implements Callable<Integer> {
 	@CommandLine.Option(names = "-M", description = "Disables printing each match within their specific files.", defaultValue = "false")
 	private boolean disablePrintMatches;
 
+	@CommandLine.Option(names = "--scan-order", description = "The order in which files are processed. WALK processes files as they are found. LARGEST_FIRST processes the largest files first, so that a large file does not finish last when --threads is used. RECENTLY_MODIFIED_FIRST processes the most recently modified files first, so that results in the files that were just edited are reported first. Default is WALK.", defaultValue = "WALK")
+	private ScanOrder scanOrder = ScanOrder.WALK;
+
+	@CommandLine.Option(names = "--threads", paramLabel = "<count>", description = "The number of files that are processed concurrently. Default is 1.", defaultValue = "1")
+	private int threads = 1;
+
+	@CommandLine.Option(names = "--chunk-size", paramLabel = "<characters>", description = "Splits files that are longer than the number of characters into chunks that are searched for http URLs concurrently, so that a single large file is not searched by a single thread. URLs longer than 8192 characters may not be found in full. Each file is still read fully into memory, which takes about two bytes per character (e.g. an 800 MB file needs about 1.6 GB of heap). Default is 0, which does not split files.", defaultValue = "0")
+	private int chunkSize;
+
+	@CommandLine.Option(names = "--fail-fast", description = "Stops scanning at the first result, so that a check fails as soon as possible. The same as --max-violations=1.", defaultValue = "false")
+	private boolean failFast;
+
+	@CommandLine.Option(names = "--max-violations", paramLabel = "<count>", description = "Stops scanning after the number of results are found. The files that are being processed when the maximum is reached are still reported. Cannot be used with -r. Default is 0, which scans every file.", defaultValue = "0")
+	private int maxViolations;
+
 	@CommandLine.Option(names = "-s", description = "Enables checking the http status before determining if replacement should be done.", defaultValue = "false")
 	private boolean statusCheck;
 
 	@CommandLine.Option(names = "-f", description = "If true, prints out the file names.", defaultValue = "false")
 	private boolean printFiles;
 
-	@CommandLine.Option(names = "-w", description = "The path to file that contains additional HTTP URLs that are allowed. The format is a regular expression to allow HTTP URLs (ignore http URLs) per line.")
+	@CommandLine.Option(names = "--fused-matcher", description = "Determines if http URLs are allowed while finding them, so that URLs allowed by allowlist lines that are a literal prefix (i.e. ^http://www\\.w3\\.org/2000/svg.*) are skipped without testing every pattern. The results are the same.", defaultValue = "false")
+	private boolean fusedMatcher;
+
+	@CommandLine.Option(names = "--linear-regex", description = "Matches the patterns from -w in linear time, so that patterns with nested quantifiers cannot backtrack exponentially. Patterns that use other constructs (i.e. back references or lookarounds that are not at the end) use java.util.regex and a warning is printed.", defaultValue = "false")
+	private boolean linearRegex;
+
+	@CommandLine.Option(names = "--adaptive-order", description = "Evaluates the allowlist patterns that allow the most URLs first. The learned order is stored in --allowlist-order-cache, so later runs start with it.", defaultValue = "false")
+	private boolean adaptiveOrder;
+
+	@CommandLine.Option(names = "--allowlist-order-cache", paramLabel = "<file>", description = "The file used to store the order learned by --adaptive-order between runs. Default is nohttp/allowlist-order.txt in $XDG_CACHE_HOME or ~/.cache")
+	private File allowlistOrderFile;
+
+	@CommandLine.Option(names = "--no-allowlist-order-cache", description = "Disables storing the order learned by --adaptive-order between runs.", defaultValue = "false")
+	private boolean disableAllowlistOrderCache;
+
+	@CommandLine.Option(names = "--profile-allowlist", description = "Prints how often each allowlist rule allowed a URL and how long it took to evaluate, so that rules that never match or are expensive can be removed. Implies that --fused-matcher is not used.", defaultValue = "false")
+	private boolean profileAllowlist;
+
+	@CommandLine.Option(names = "--explain", paramLabel = "<url>", description = "Prints the allowlist rule that allows the URL instead of scanning. Can be specified multiple times.")
+	private List<String> explainUrls;
+
+	@CommandLine.Option(names = "--detector", paramLabel = "<name>", split = ",", description = "The detectors that are run while scanning the directory once. Valid detectors are http, gradle-dsl (mavenCentral() and jcenter() in projects that use Gradle < 2.1), ftp, git (git:// URLs) and maven-repository (Maven repositories that use http in pom.xml and settings.xml). Specify multiple times or separate with commas. Default is http,gradle-dsl.")
+	private List<String> detectorNames;
+
+	@CommandLine.Option(names = "--probe-strategy", description = "Determines the requests that are made when -s is used. URL requests each https URL. HOST requests the root of each host once and replaces all URLs on hosts that serve https. HOST_AND_URL requests each https URL on the hosts that serve https. Default is URL.", defaultValue = "URL")
+	private ProbeStrategy probeStrategy = ProbeStrategy.URL;
+
+	@CommandLine.Option(names = "--known-https-hosts", paramLabel = "<file>", description = "The file containing hosts that are known to serve https, which are replaced without making requests when -s is used. Each line contains a host and a line that begins with . also matches its subdomains. Default is the hosts bundled with nohttp.")
+	private File knownHttpsHostsFile;
+
+	@CommandLine.Option(names = "--no-known-https-hosts", description = "Disables replacing the URLs on hosts that are known to serve https without making requests.", defaultValue = "false")
+	private boolean disableKnownHttpsHosts;
+
+	@CommandLine.Option(names = "--status-cache", paramLabel = "<file>", description = "The file used to cache the http status between runs when -s is used. Default is nohttp/status.log in $XDG_CACHE_HOME or ~/.cache")
+	private File statusCacheFile;
+
+	@CommandLine.Option(names = "--no-status-cache", description = "Disables caching the http status between runs.", defaultValue = "false")
+	private boolean disableStatusCache;
+
+	@CommandLine.Option(names = "--status-cache-ttl", paramLabel = "<hours>", description = "The number of hours a status less than 400 is cached. Default is 168 (7 days).", defaultValue = "168")
+	private long statusCacheTtlHours = 168;
+
+	@CommandLine.Option(names = "--status-cache-negative-ttl", paramLabel = "<hours>", description = "The number of hours an error status or a URL that cannot be reached is cached. Default is 1.", defaultValue = "1")
+	private long statusCacheNegativeTtlHours = 1;
+
+	@CommandLine.Option(names = "--offline", description = "Only uses the status cache when -s is used. URLs that are not cached are not replaced.", defaultValue = "false")
+	private boolean offline;
+
+	@CommandLine.Option(names = "--import-status-cache", paramLabel = "<file>", description = "Adds the statuses in a file written by --export-status-cache to the status cache before checking the http status.")
+	private File importStatusCacheFile;
+
+	@CommandLine.Option(names = "--export-status-cache", paramLabel = "<file>", description = "Writes the status cache to a file after checking the http status, so that it can be shared (i.e. between CI agents).")
+	private File exportStatusCacheFile;
+
+	@CommandLine.Option(names = "--max-requests-per-second", paramLabel = "<requests>", description = "The maximum number of requests per second made to the same host when -s is used. Default is 0, which does not limit the rate.", defaultValue = "0")
+	private double maxRequestsPerSecond;
+
+	@CommandLine.Option(names = "--max-host-failures", paramLabel = "<failures>", description = "The number of consecutive requests to a host that can fail (time out or not connect) when -s is used before the remaining URLs on the host are skipped and not replaced. Default is 3.", defaultValue = "3")
+	private int maxHostFailures = 3;
+
+	@CommandLine.Option(names = "--host-metrics", description = "Prints the number of requests, failures and the latency for each host when -s is used.", defaultValue = "false")
+	private boolean printHostMetrics;
+
+	@CommandLine.Option(names = "-w", description = "The path to file that contains additional HTTP URLs that are allowed. The format is a regular expression to allow HTTP URLs (ignore http URLs) per line. Lines can also start with exact:, prefix:, host: or glob: to allow a URL, the URLs that start with the text, a host and its subdomains, or a glob. Only the exact:, prefix: and host: lines are always evaluated without a regular expression.")
 	public void setAllowlistExclusions(File allowListFile) throws FileNotFoundException {
-		this.allowlistExclusions = new FileInputStream(allowListFile);
+		this.allowlistExclusions = RegexPredicate.createAllowlistFromPatterns(new FileInputStream(allowListFile));
+	}
+
+	@CommandLine.Option(names = "--replacement-rules", paramLabel = "<file>", description = "The path to file that contains rules for replacing http URLs. Each line contains what to replace and the replacement separated by whitespace, which are either two URL prefixes or two hosts. Default is to replace http with https.")
+	public void setReplacementRules(File replacementRulesFile) throws FileNotFoundException {
+		this.replacementRules = ReplacementRules.load(new FileInputStream(replacementRulesFile));
 	}
 
 	public void run(String... args) throws Exception {
@@ -91,42 +191,179 @@ public class ReplaceFilesRunner implements Callable<Integer> {
 
 	@Override
 	public Integer call() throws Exception {
-		RegexHttpMatcher matcher = createMatcher();
-
-		HttpProcessor processor = createHttpProcessor(matcher, matcher);
-
+		AdaptiveRuleOrder ruleOrder = createRuleOrder();
+		RegexHttpMatcher matcher = createMatcher(ruleOrder);
+		if (this.explainUrls != null) {
+			this.explainUrls.forEach(this::explain);
+			return 0;
+		}
+		List<Detector> detectors = createDetectors(matcher);
+		int maxViolations = this.failFast ? 1 : this.maxViolations;
+		if (maxViolations < 0) {
+			throw new IllegalArgumentException("--max-violations cannot be negative");
+		}
+		if (maxViolations > 0 && isReplace()) {
+			throw new IllegalArgumentException("--fail-fast and --max-violations cannot be used with -r");
+		}
 
 		System.out.println();
-		System.out.println("Looking for restricted http:// URLs");
-		DirScanner.create(this.dir)
+		System.out.println("Looking for " + detectors.stream().map(Detector::getName).collect(Collectors.joining(", ")));
+		DirScanner scanner = DirScanner.create(this.dir)
 			.textFiles(this.textFilesOnly)
 			.excludeDirs(dirExclusions())
 			.excludeFiles(fileExclusions())
-			.scan(withHttpProcessor(processor));
+			.order(this.scanOrder)
+			.parallelism(this.threads);
 
-		Set<String> httpUrlMatches = processor.getHttpMatches();
-		writeSummaryReport(httpUrlMatches);
+		DetectorProcessor processor;
+		if (isReplace() && this.statusCheck && detectorNames().contains("http")) {
+			processor = replaceUsingStatus(matcher, scanner, detectors);
+		}
+		else {
+			processor = new DetectorProcessor(detectors);
+			processor.setReplace(isReplace());
+			processor.setMaxMatches(maxViolations);
+			scanner.stopWhen(processor::isMaxMatchesReached)
+				.scan(withHttpProcessor(processor));
+			if (processor.isMaxMatchesReached()) {
+				System.out.println();
+				System.out.println("Stopped scanning at the maximum number of results (" + maxViolations + ")");
+			}
+		}
 
-		System.out.println();
-		System.out.println("Looking for old Gradle DSLs that use http");
-		HttpMatcher gradleMatcher = GradleHttpDsl.createMatcher();
-		HttpReplacer gradleReplacer = GradleHttpDsl.createReplacer();
-		HttpProcessor gradleProcessor = createHttpProcessor(gradleMatcher, gradleReplacer);
-		PreGradle21Scanner gradleScanner = PreGradle21Scanner.create(this.dir);
+		int matches = 0;
+		for (Detector detector : detectors) {
+			Set<String> detectorMatches = processor.getHttpMatches(detector.getName());
+			System.out.println();
+			System.out.println("Results of " + detector.getName());
+			writeSummaryReport(detectorMatches, isReplace() && !detector.isReportOnly());
+			matches += detectorMatches.size();
+		}
+		if (ruleOrder != null && !this.disableAllowlistOrderCache) {
+			ruleOrder.store(allowlistOrderFile());
+		}
+		if (this.profileAllowlist) {
+			writeAllowlistProfile("the default allowlist", this.defaultAllowlist);
+			if (this.allowlistExclusions instanceof RegexPredicate) {
+				writeAllowlistProfile("-w", (RegexPredicate) this.allowlistExclusions);
+			}
+		}
 
-		gradleScanner.scan(withHttpProcessor(gradleProcessor));
+		System.out.println("Done!");
+		return matches;
+	}
 
-		Set<String> gradleMatches = gradleProcessor.getHttpMatches();
-		writeSummaryReport(gradleMatches);
+	/**
+	 * Replaces the http URLs that have a working https URL. The unique URLs are found
+	 * first, so that each URL is only looked up once and all of them can be looked up
+	 * concurrently. The files are then rewritten without waiting on the network.
+	 */
+	private DetectorProcessor replaceUsingStatus(RegexHttpMatcher matcher, DirScanner scanner, List<Detector> detectors) throws FileNotFoundException {
+		List<File> files = scanner.files();
+
+		HttpProcessor finder = new HttpMatcherProcessor(matcher);
+		files.parallelStream().forEach(finder::processFile);
+		Set<String> httpUrls = finder.getHttpMatches();
+
+		System.out.println("Checking the https status of " + httpUrls.size() + " URLs");
+		Map<String, String> replacements;
+		StatusCache statusCache = createStatusCache();
+		try (StatusProber prober = new StatusProber()) {
+			if (statusCache != null) {
+				prober.setStatusCache(statusCache);
+			}
+			prober.setOffline(this.offline);
+			prober.setMaxRequestsPerSecondPerHost(this.maxRequestsPerSecond);
+			prober.setMaxConsecutiveFailuresPerHost(this.maxHostFailures);
+			StatusHttpReplacer replacer = new StatusHttpReplacer(prober);
+			replacer.setProbeStrategy(this.probeStrategy);
+			replacer.setKnownHttpsHosts(createKnownHttpsHosts());
+			if (this.replacementRules != null) {
+				replacer.setHttpReplacer(this.replacementRules);
+			}
+			replacements = replacer.applyAll(httpUrls).join();
+			if (statusCache != null && this.exportStatusCacheFile != null) {
+				statusCache.exportTo(this.exportStatusCacheFile);
+			}
+			writeHostMetrics(prober.getHostMetrics());
+		}
+		finally {
+			// the prober is closed first, so that it no longer adds to the cache
+			if (statusCache != null) {
+				statusCache.close();
+			}
+		}
+		matcher.setHttpReplacer(httpUrl -> replacements.getOrDefault(httpUrl, httpUrl));
 
-		System.out.println("Done!");
-		return httpUrlMatches.size() + gradleMatches.size();
+		DetectorProcessor processor = new DetectorProcessor(detectors);
+		processor.setReplace(true);
+		files.parallelStream().forEach(withHttpProcessor(processor));
+		return processor;
+	}
+
+	private void explain(String url) {
+		Pattern rule = this.defaultAllowlist.explain(url);
+		String source = "the default allowlist";
+		if (rule == null && this.allowlistExclusions instanceof RegexPredicate) {
+			rule = ((RegexPredicate) this.allowlistExclusions).explain(url);
+			source = "-w";
+		}
+		if (rule == null) {
+			System.out.println(url + " is not allowed");
+		}
+		else {
+			System.out.println(url + " is allowed by " + rule + " in " + source);
+		}
+	}
+
+	private void writeAllowlistProfile(String source, RegexPredicate allowlist) {
+		List<RuleProfile> profiles = new ArrayList<>(allowlist.getProfiles());
+		profiles.sort(Comparator.comparingLong(RuleProfile::getNanos).reversed());
+		long dead = profiles.stream().filter(p -> p.getHits() == 0).count();
+		System.out.println();
+		System.out.println("Profile of " + source + " (" + dead + " of " + profiles.size() + " rules never matched)");
+		System.out.println();
+		for (RuleProfile profile : profiles) {
+			System.out.println("* " + profile);
+		}
+		System.out.println();
+	}
+
+	private void writeHostMetrics(List<HostMetrics> hostMetrics) {
+		hostMetrics.sort(Comparator.comparing(HostMetrics::getHost));
+		for (HostMetrics metrics : hostMetrics) {
+			if (this.printHostMetrics) {
+				System.out.println("* " + metrics);
+			}
+			if (metrics.getSkipReason() != null) {
+				System.out.println("Skipped " + metrics.getSkipped() + " URLs on " + metrics.getHost()
+						+ " because " + metrics.getSkipReason());
+			}
+		}
+	}
+
+	private KnownHttpsHosts createKnownHttpsHosts() throws FileNotFoundException {
+		if (this.disableKnownHttpsHosts) {
+			return KnownHttpsHosts.none();
+		}
+		if (this.knownHttpsHostsFile != null) {
+			return KnownHttpsHosts.load(new FileInputStream(this.knownHttpsHostsFile));
+		}
+		return KnownHttpsHosts.bundled();
 	}
 
-	private HttpProcessor createHttpProcessor(HttpMatcher matcher, HttpReplacer replacer) {
-		return isReplace() ?
-				new HttpReplacerProcessor(replacer) :
-				new HttpMatcherProcessor(matcher);
+	private StatusCache createStatusCache() {
+		if (this.disableStatusCache) {
+			return null;
+		}
+		File file = this.statusCacheFile == null ? StatusCache.defaultLocation() : this.statusCacheFile;
+		StatusCache statusCache = new StatusCache(file);
+		statusCache.setTimeToLive(Duration.ofHours(this.statusCacheTtlHours));
+		statusCache.setNegativeTimeToLive(Duration.ofHours(this.statusCacheNegativeTtlHours));
+		if (this.importStatusCacheFile != null) {
+			statusCache.importFrom(this.importStatusCacheFile);
+		}
+		return statusCache;
 	}
 
 	private Consumer<File> withHttpProcessor(HttpProcessor processor) {
@@ -134,24 +371,29 @@ public class ReplaceFilesRunner implements Callable<Integer> {
 
 			List<HttpMatchResult> results = processor.processFile(file);
 
+			// print the output for a file at once, so that files processed in parallel are not interleaved
+			StringBuilder output = new StringBuilder();
 			if ((!this.disablePrintMatches && !results.isEmpty()) || this.printFiles) {
-				System.out.println("Processing " + file);
+				output.append("Processing ").append(file).append(System.lineSeparator());
 			}
 			if (!this.disablePrintMatches) {
 				results.forEach(r -> {
-					System.out.println("* Found " + r.getHttp());
+					output.append("* Found ").append(r.getHttp()).append(System.lineSeparator());
 				});
 			}
+			if (output.length() > 0) {
+				System.out.print(output);
+			}
 
 		};
 	}
 
-	private void writeSummaryReport(Collection<String> httpUrls) {
+	private void writeSummaryReport(Collection<String> httpUrls, boolean replaced) {
 		System.out.println("");
 		if (httpUrls.isEmpty()) {
 			System.out.println("No results found");
 		}
-		else if (isReplace()) {
+		else if (replaced) {
 			System.out.println("The Following HTTP results were replaced");
 		} else {
 			System.out.println("The Following HTTP results were found");
@@ -176,14 +418,88 @@ public class ReplaceFilesRunner implements Callable<Integer> {
 		return f -> this.fileExclusions.stream().anyMatch(pattern -> pattern.asPredicate().test(f.getName()));
 	}
 
-	private RegexHttpMatcher createMatcher() {
+	private List<String> detectorNames() {
+		return this.detectorNames == null ? Arrays.asList("http", "gradle-dsl") : this.detectorNames;
+	}
+
+	private List<Detector> createDetectors(RegexHttpMatcher matcher) {
+		// the allowlists are written for http URLs, so the other schemes are checked as http
+		Predicate<String> httpAllow = this.allowlistExclusions == null ? this.defaultAllowlist : this.defaultAllowlist.or(this.allowlistExclusions);
+		Predicate<String> allow = url -> httpAllow.test("http" + url.substring(url.indexOf("://")));
+		List<Detector> detectors = new ArrayList<>();
+		for (String name : new LinkedHashSet<>(detectorNames())) {
+			switch (name) {
+				case "http":
+					detectors.add(this.chunkSize > 0 ? chunkedHttp(matcher) : Detector.http(matcher));
+					break;
+				case "gradle-dsl":
+					detectors.add(Detector.gradleDsl());
+					break;
+				case "ftp":
+					detectors.add(Detector.ftp(allow));
+					break;
+				case "git":
+					detectors.add(Detector.git(allow));
+					break;
+				case "maven-repository":
+					detectors.add(Detector.mavenRepository());
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown detector '" + name + "'. Valid detectors are http, gradle-dsl, ftp, git and maven-repository");
+			}
+		}
+		return detectors;
+	}
+
+	private Detector chunkedHttp(RegexHttpMatcher matcher) {
+		ChunkedHttpMatcher chunked = new ChunkedHttpMatcher(matcher);
+		chunked.setChunkSize(this.chunkSize);
+		return Detector.create("http", chunked, matcher)
+			.literals("http");
+	}
 
-		RegexHttpMatcher matcher = new RegexHttpMatcher(RegexPredicate.createDefaultUrlAllowlist());
+	private AdaptiveRuleOrder createRuleOrder() {
+		if (!this.adaptiveOrder) {
+			return null;
+		}
+		return this.disableAllowlistOrderCache ?
+				new AdaptiveRuleOrder() :
+				AdaptiveRuleOrder.load(allowlistOrderFile());
+	}
+
+	private File allowlistOrderFile() {
+		return this.allowlistOrderFile == null ? AdaptiveRuleOrder.defaultLocation() : this.allowlistOrderFile;
+	}
+
+	private RegexHttpMatcher createMatcher(AdaptiveRuleOrder ruleOrder) {
+		if (this.linearRegex && this.allowlistExclusions instanceof RegexPredicate) {
+			LinearRegexEngine engine = new LinearRegexEngine();
+			((RegexPredicate) this.allowlistExclusions).setEngine(engine);
+			engine.getFallbacks().forEach((pattern, construct) ->
+				System.out.println("Warning: " + pattern + " uses " + construct + ", so it is not matched in linear time"));
+		}
+
+		this.defaultAllowlist = (RegexPredicate) RegexPredicate.createDefaultUrlAllowlist();
+		if (ruleOrder != null) {
+			this.defaultAllowlist.setRuleOrder(ruleOrder);
+			if (this.allowlistExclusions instanceof RegexPredicate) {
+				((RegexPredicate) this.allowlistExclusions).setRuleOrder(ruleOrder);
+			}
+		}
+		if (this.profileAllowlist) {
+			this.defaultAllowlist.setProfiling(true);
+			if (this.allowlistExclusions instanceof RegexPredicate) {
+				((RegexPredicate) this.allowlistExclusions).setProfiling(true);
+			}
+		}
+		RegexHttpMatcher matcher = this.fusedMatcher && !this.profileAllowlist ?
+				new FusedHttpMatcher(this.defaultAllowlist) :
+				new RegexHttpMatcher(this.defaultAllowlist);
 		if (this.allowlistExclusions != null) {
-			matcher.addHttpAllow(RegexPredicate.createAllowlistFromPatterns(this.allowlistExclusions));
+			matcher.addHttpAllow(this.allowlistExclusions);
 		}
-		if (this.statusCheck) {
-			matcher.setHttpReplacer(new StatusHttpReplacer());
+		if (this.replacementRules != null) {
+			matcher.setHttpReplacer(this.replacementRules);
 		}
 		return matcher;
 	}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.spring.nohttp.gradle;
+
+import io.spring.nohttp.HttpMatchResult;
+import io.spring.nohttp.RegexHttpMatcher;
+import org.gradle.api.artifacts.transform.CacheableTransform;
+import org.gradle.api.artifacts.transform.InputArtifact;
+import org.gradle.api.artifacts.transform.TransformAction;
+import org.gradle.api.artifacts.transform.TransformOutputs;
+import org.gradle.api.artifacts.transform.TransformParameters;
+import org.gradle.api.file.FileSystemLocation;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Enumeration;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Finds every http:// URL in the text entries of a jar. The allowlist is applied by
+ * {@link NoHttpDependenciesTask} rather than here, so that the result only depends on
+ * the contents of the jar. This allows Gradle to cache the result by the hash of the
+ * jar and to reuse it in every build until the dependency changes.
+ *
+ * <p>
+ * Each line of the output is the entry name, the line number and the URL separated by
+ * tabs.
+ * </p>
+ */
+@CacheableTransform
+public abstract class HttpUrlsTransform implements TransformAction<TransformParameters.None> {
+	static final String ARTIFACT_TYPE = "nohttp-http-urls";
+
+	static final String OUTPUT_SUFFIX = ".nohttp";
+
+	private static final int BYTES_TO_CHECK = 8000;
+
+	@InputArtifact
+	@PathSensitive(PathSensitivity.NAME_ONLY)
+	public abstract Provider<FileSystemLocation> getInputArtifact();
+
+	@Override
+	public void transform(TransformOutputs outputs) {
+		File jar = getInputArtifact().get().getAsFile();
+		File output = outputs.file(jar.getName() + OUTPUT_SUFFIX);
+		try (Writer writer = Files.newBufferedWriter(output.toPath(), StandardCharsets.UTF_8)) {
+			if (jar.isFile()) {
+				writeHttpUrls(jar, writer);
+			}
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException("Could not scan " + jar, e);
+		}
+	}
+
+	private static void writeHttpUrls(File jar, Writer writer) throws IOException {
+		RegexHttpMatcher matcher = new RegexHttpMatcher(url -> false);
+		try (ZipFile zip = new ZipFile(jar)) {
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				if (entry.isDirectory() || entry.getName().endsWith(".class")) {
+					continue;
+				}
+				byte[] content = readAllBytes(zip, entry);
+				if (isBinary(content)) {
+					continue;
+				}
+				String[] lines = new String(content, StandardCharsets.UTF_8).split("\r\n|\r|\n");
+				for (int i = 0; i < lines.length; i++) {
+					for (HttpMatchResult result : matcher.findHttp(lines[i])) {
+						writer.write(entry.getName() + "\t" + (i + 1) + "\t" + result.getHttp() + "\n");
+					}
+				}
+			}
+		}
+	}
+
+	private static byte[] readAllBytes(ZipFile zip, ZipEntry entry) throws IOException {
+		try (InputStream input = zip.getInputStream(entry)) {
+			ByteArrayOutputStream result = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = input.read(buffer)) != -1) {
+				result.write(buffer, 0, read);
+			}
+			return result.toByteArray();
+		}
+	}
+
+	private static boolean isBinary(byte[] content) {
+		int length = Math.min(content.length, BYTES_TO_CHECK);
+		for (int i = 0; i < length; i++) {
+			if (content[i] == 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
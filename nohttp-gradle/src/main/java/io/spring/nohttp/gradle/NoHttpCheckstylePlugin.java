@@ -26,6 +26,8 @@ import org.gradle.api.file.ConfigurableFileTree;
 import org.gradle.api.file.Directory;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.file.FileTree;
+import org.gradle.api.file.FileTreeElement;
+import org.gradle.api.file.RegularFile;
 import org.gradle.api.internal.ConventionMapping;
 import org.gradle.api.plugins.quality.Checkstyle;
 import org.gradle.api.plugins.quality.CheckstylePlugin;
@@ -33,6 +35,8 @@ import org.gradle.api.provider.Provider;
 import org.gradle.api.reporting.ReportingExtension;
 import org.gradle.api.reporting.SingleFileReport;
 import org.gradle.api.resources.TextResource;
+import org.gradle.api.resources.TextResourceFactory;
+import org.gradle.api.specs.Spec;
 import org.gradle.language.base.plugins.LifecycleBasePlugin;
 import org.gradle.util.GradleVersion;
 import org.slf4j.Logger;
@@ -45,10 +49,14 @@ import java.net.JarURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.jar.Attributes;
 import java.util.jar.JarFile;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * @author Rob Winch
@@ -78,6 +86,10 @@ public class NoHttpCheckstylePlugin implements Plugin<Project> {
 
 	public static final String DEFAULT_CONFIGURATION_NAME = "nohttp";
 
+	private static final String CACHE_FILE_PROPERTY_NAME = "nohttp.checkstyle.cacheFile";
+
+	private static final Pattern CHECKER_MODULE = Pattern.compile("<module\\s+name\\s*=\\s*\"Checker\"\\s*>");
+
 	private static final String CHECK_TASK_NAME = LifecycleBasePlugin.CHECK_TASK_NAME;
 
 	private Logger logger = LoggerFactory.getLogger(getClass());
@@ -90,44 +102,10 @@ public class NoHttpCheckstylePlugin implements Plugin<Project> {
 	public void apply(Project project) {
 		this.project = project;
 		this.extension = this.project.getExtensions().create(NOHTTP_EXTENSION_NAME, NoHttpExtension.class);
-		this.extension.setToolVersion(NOHTTP_VERSION);
-		this.extension.setSource(project.fileTree(project.getProjectDir(), new Action<ConfigurableFileTree>() {
-			@Override
-			public void execute(ConfigurableFileTree files) {
-				String projectDir = project.getProjectDir().getAbsolutePath();
-				files.exclude(createBuildExclusion(projectDir, project));
-				project.subprojects(new Action<Project>() {
-					@Override
-					public void execute(Project p) {
-						files.exclude(createBuildExclusion(projectDir, p));
-					}
-				});
-				files.exclude(".git/**");
-				files.exclude(".gradle/**");
-				files.exclude("buildSrc/.gradle/**");
-				files.exclude(".idea/**");
-				files.exclude("**/*.class");
-				files.exclude("**/*.hprof");
-				files.exclude("**/*.jar");
-				files.exclude("**/*.jpg");
-				files.exclude("**/*.jks");
-				files.exclude("**/spring.handlers");
-				files.exclude("**/spring.schemas");
-				files.exclude("**/spring.tooling");
-			}
-		}));
-		File legacyWhiteListFile = project.file(LEGACY_WHITELIST_FILE_PATH);
-		if (legacyWhiteListFile.exists()) {
-			this.extension.setAllowlistFile(legacyWhiteListFile);
-		}
-		File defaultWhiteListFile = project.file(DEFAULT_WHITELIST_FILE_PATH);
-		if (defaultWhiteListFile.exists()) {
-			this.extension.setAllowlistFile(defaultWhiteListFile);
-		}
-		File allowlistFile = this.project.file(DEFAULT_ALLOWLIST_FILE_PATH);
-		if (allowlistFile.exists()) {
-			this.extension.setAllowlistFile(allowlistFile);
-		}
+		this.extension.getToolVersion().convention(NOHTTP_VERSION);
+		configureDefaultSource(this.extension.getSource());
+		this.extension.getAllowlistFile().convention(defaultAllowlistFile(project.getProjectDir())
+				.orElse(defaultAllowlistFile(project.getRootDir())));
 
 		project.getPluginManager().apply(CheckstylePlugin.class);
 		Configuration checkstyleConfiguration = project.getConfigurations().getByName(CHECKSTYLE_CONFIGURATION_NAME);
@@ -140,6 +118,51 @@ public class NoHttpCheckstylePlugin implements Plugin<Project> {
 		configureCheckTask();
 	}
 
+	/**
+	 * Adds the exclusions. The directories of the subprojects are read when the source is
+	 * visited, so that they are only read after the subprojects have been configured.
+	 * @param files the source to configure
+	 */
+	private void configureDefaultSource(ConfigurableFileTree files) {
+		String projectDir = this.project.getProjectDir().getAbsolutePath();
+		files.exclude(createBuildExclusion(projectDir, this.project));
+		files.exclude(".git/**");
+		files.exclude(".gradle/**");
+		files.exclude("buildSrc/.gradle/**");
+		files.exclude(".idea/**");
+		files.exclude("**/*.class");
+		files.exclude("**/*.hprof");
+		files.exclude("**/*.jar");
+		files.exclude("**/*.jpg");
+		files.exclude("**/*.jks");
+		files.exclude("**/spring.handlers");
+		files.exclude("**/spring.schemas");
+		files.exclude("**/spring.tooling");
+		Project project = this.project;
+		Provider<Boolean> perSubprojectTasks = this.extension.getPerSubprojectTasks();
+		files.exclude(new SubprojectDirectories(project.provider(new Callable<Set<File>>() {
+			@Override
+			public Set<File> call() {
+				return subprojectDirectories(project, perSubprojectTasks.get());
+			}
+		})));
+	}
+
+	/**
+	 * Finds the build directories of the subprojects and, if they have their own task, the
+	 * project directories of the subprojects.
+	 */
+	private static Set<File> subprojectDirectories(Project project, boolean perSubprojectTasks) {
+		Set<File> dirs = new HashSet<>();
+		for (Project subproject : project.getSubprojects()) {
+			dirs.add(subproject.getBuildDir());
+			if (perSubprojectTasks) {
+				dirs.add(subproject.getProjectDir());
+			}
+		}
+		return dirs;
+	}
+
 	private String createBuildExclusion(String projectDir, Project p) {
 		File buildDir = p.getBuildDir();
 		String path = buildDir.getAbsolutePath().replace(projectDir + File.separator, "");
@@ -147,6 +170,29 @@ public class NoHttpCheckstylePlugin implements Plugin<Project> {
 		return pattern;
 	}
 
+	/**
+	 * Finds the default allowlist within a directory. A subproject also looks in the root
+	 * directory, so that the subprojects share the allowlist of the root project without
+	 * reading the configuration of the root project.
+	 * @param dir the directory to look in
+	 * @return the allowlist or no value if the directory has none
+	 */
+	private Provider<RegularFile> defaultAllowlistFile(File dir) {
+		return this.project.getLayout().file(this.project.getProviders().provider(new Callable<File>() {
+			@Override
+			public File call() {
+				String[] candidates = { DEFAULT_ALLOWLIST_FILE_PATH, DEFAULT_WHITELIST_FILE_PATH, LEGACY_WHITELIST_FILE_PATH };
+				for (String candidate : candidates) {
+					File allowlistFile = new File(dir, candidate);
+					if (allowlistFile.exists()) {
+						return allowlistFile;
+					}
+				}
+				return null;
+			}
+		}));
+	}
+
 	private void createCheckstyleTaskForProject(Configuration configuration) {
 		Project project = this.project;
 		project.getTasks().register("checkstyleNohttp", Checkstyle.class, new Action<Checkstyle>() {
@@ -160,6 +206,11 @@ public class NoHttpCheckstylePlugin implements Plugin<Project> {
 	private void configureCheckstyleTask(Configuration configuration, Checkstyle checkstyleTask) {
 		Logger logger = this.logger;
 		NoHttpExtension extension = this.extension;
+		File projectDir = this.project.getProjectDir();
+		File rootDir = this.project.getRootDir();
+		TextResourceFactory textResources = this.project.getResources().getText();
+		Provider<RegularFile> cacheFile = this.project.getLayout().getBuildDirectory()
+				.file("nohttp/" + checkstyleTask.getName() + ".cache");
 		checkstyleTask.setDescription("Checks for illegal uses of http://");
 		Provider<Directory> reportDir = project.getExtensions().getByType(ReportingExtension.class)
 				.getBaseDirectory()
@@ -194,37 +245,58 @@ public class NoHttpCheckstylePlugin implements Plugin<Project> {
 			@Override
 			public Map<String, Object> call() throws Exception {
 				Map<String, Object> configProperties = new HashMap<>();
-				File allowlistFile = extension.getAllowlistFile();
+				File allowlistFile = extension.getAllowlistFile().getAsFile().getOrNull();
 				if (allowlistFile != null) {
 					logger.debug("Using allowlist at {}", allowlistFile);
-					String allowlistPath = project.relativePath(allowlistFile);
+					String allowlistPath = relativePath(projectDir, allowlistFile);
 					configProperties.put("nohttp.checkstyle.allowlistFileName", allowlistPath);
 				}
 				if (configureConfigLoc) {
-					configProperties.put("config_loc", project.relativePath(getConfigLocation()));
+					configProperties.put("config_loc", relativePath(projectDir, getConfigLocation(projectDir, rootDir, allowlistFile)));
 				}
+				configProperties.put(CACHE_FILE_PROPERTY_NAME, relativePath(projectDir, cacheFile.get().getAsFile()));
 				return configProperties;
 			}
 		});
 		taskMapping.map("config", new Callable<TextResource>() {
 			@Override
 			public TextResource call() throws Exception {
-				File configLoc = getConfigLocation();
+				File configLoc = getConfigLocation(projectDir, rootDir, extension.getAllowlistFile().getAsFile().getOrNull());
 				File defaultCheckstyleFile = new File(configLoc, "checkstyle.xml");
 				if (defaultCheckstyleFile.exists()) {
 					logger.debug("Found default checkstyle configuration, so configuring checkstyleTask to use it");
-					String checkstyleXmlAsString = project.getResources().getText().fromFile(defaultCheckstyleFile).asString();
-					return project.getResources().getText().fromString(checkstyleXmlAsString);
+					String checkstyleXmlAsString = textResources.fromFile(defaultCheckstyleFile).asString();
+					return textResources.fromString(checkstyleXmlAsString);
 				}
 				logger.debug("No checkstyle configuration provided, so using the default.");
-				URL resource = getClass().getResource(
+				URL resource = NoHttpCheckstylePlugin.class.getResource(
 						"/io/spring/nohttp/checkstyle/default-nohttp-checkstyle.xml");
-				String checkstyleXmlAsString = project.getResources().getText().fromUri(resource).asString();
-				return project.getResources().getText().fromString(checkstyleXmlAsString);
+				String checkstyleXmlAsString = textResources.fromUri(resource).asString();
+				return textResources.fromString(enableCache(checkstyleXmlAsString));
 			}
 		});
 	}
 
+	/**
+	 * Configures the default Checkstyle configuration to use the cache file. This is not
+	 * in the default configuration itself because Checkstyle fails if the cache file is
+	 * an empty String.
+	 * @param checkstyleXml the default configuration
+	 * @return the configuration with a cache file
+	 * @throws IllegalStateException if the configuration has no Checker module
+	 */
+	static String enableCache(String checkstyleXml) {
+		Matcher checker = CHECKER_MODULE.matcher(checkstyleXml);
+		if (!checker.find()) {
+			throw new IllegalStateException("Could not enable the cache because the Checker module was not found in the default Checkstyle configuration");
+		}
+		String lineSeparator = checkstyleXml.contains("\r\n") ? "\r\n" : "\n";
+		String cacheFile = lineSeparator + lineSeparator
+				+ "    <!-- Skip files that have not changed since the last run -->" + lineSeparator
+				+ "    <property name=\"cacheFile\" value=\"${" + CACHE_FILE_PROPERTY_NAME + "}\"/>";
+		return checkstyleXml.substring(0, checker.end()) + cacheFile + checkstyleXml.substring(checker.end());
+	}
+
 	private boolean configureConfigDirectory(Checkstyle checkstyleTask) {
 		File configDirectory = this.project.file(getConfigLocation());
 		if (!configDirectory.exists() && isGradle7_0()) {
@@ -256,15 +328,32 @@ public class NoHttpCheckstylePlugin implements Plugin<Project> {
 	}
 
 	private File getConfigLocation() {
-		File allowlistFile = this.extension.getAllowlistFile();
+		return getConfigLocation(this.project.getProjectDir(), this.project.getRootDir(),
+				this.extension.getAllowlistFile().getAsFile().getOrNull());
+	}
+
+	/**
+	 * Finds the directory of the configuration, which is the directory of the allowlist or
+	 * the first of {@code etc/nohttp} and {@code config/nohttp} that exists in the project
+	 * directory and then in the root directory
+	 */
+	private static File getConfigLocation(File projectDir, File rootDir, File allowlistFile) {
 		if (allowlistFile != null) {
 			return allowlistFile.getParentFile();
 		}
-		File legacy = this.project.file("etc/nohttp");
-		if (legacy.exists()) {
-			return legacy;
+		for (File dir : new File[] { projectDir, rootDir }) {
+			for (String path : new String[] { "etc/nohttp", "config/nohttp" }) {
+				File configLocation = new File(dir, path);
+				if (configLocation.exists()) {
+					return configLocation;
+				}
+			}
 		}
-		return this.project.file("config/nohttp");
+		return new File(projectDir, "config/nohttp");
+	}
+
+	private static String relativePath(File projectDir, File file) {
+		return projectDir.toPath().relativize(file.toPath()).toString();
 	}
 
 	private void configureDefaultDependenciesForProject(Configuration configuration) {
@@ -272,7 +361,7 @@ public class NoHttpCheckstylePlugin implements Plugin<Project> {
 			@Override
 			public void execute(DependencySet dependencies) {
 				NoHttpExtension extension = NoHttpCheckstylePlugin.this.extension;
-				dependencies.add(NoHttpCheckstylePlugin.this.project.getDependencies().create("io.spring.nohttp:nohttp-checkstyle:" + extension.getToolVersion()));
+				dependencies.add(NoHttpCheckstylePlugin.this.project.getDependencies().create("io.spring.nohttp:nohttp-checkstyle:" + extension.getToolVersion().get()));
 			}
 		});
 	}
@@ -292,6 +381,22 @@ public class NoHttpCheckstylePlugin implements Plugin<Project> {
 		});
 	}
 
+	/**
+	 * Excludes the directories found by {@link #subprojectDirectories(Project, boolean)}.
+	 */
+	private static final class SubprojectDirectories implements Spec<FileTreeElement> {
+		private final Provider<Set<File>> dirs;
+
+		private SubprojectDirectories(Provider<Set<File>> dirs) {
+			this.dirs = dirs;
+		}
+
+		@Override
+		public boolean isSatisfiedBy(FileTreeElement element) {
+			return element.isDirectory() && this.dirs.get().contains(element.getFile());
+		}
+	}
+
 	/**
 	 * Gets the nohttp version from the Manifest
 	 *
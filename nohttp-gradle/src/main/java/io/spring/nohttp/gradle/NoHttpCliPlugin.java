@@ -1,12 +1,16 @@
 package io.spring.nohttp.gradle;
 
+import io.spring.nohttp.file.ScanOrder;
 import org.gradle.api.Action;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.artifacts.DependencySet;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.JavaExec;
 
+import java.util.Collections;
+
 import static io.spring.nohttp.gradle.NoHttpCheckstylePlugin.NOHTTP_EXTENSION_NAME;
 import static io.spring.nohttp.gradle.NoHttpCheckstylePlugin.isAtLeastGradle7;
 
@@ -37,6 +41,10 @@ public class NoHttpCliPlugin implements Plugin<Project> {
 				nohttp.setMain(MAIN_CLASS);
 			}
 			nohttp.setClasspath(nohttpCli);
+			Provider<ScanOrder> scanOrder = this.extension.getScanOrder();
+			// only pass the option when it is needed, so older versions of nohttp-cli still work
+			nohttp.getArgumentProviders().add(() -> (scanOrder.get() == ScanOrder.WALK) ? Collections.emptyList()
+					: Collections.singletonList("--scan-order=" + scanOrder.get().name()));
 		});
 	}
 
@@ -46,7 +54,7 @@ public class NoHttpCliPlugin implements Plugin<Project> {
 			@Override
 			public void execute(DependencySet dependencies) {
 				NoHttpExtension extension = NoHttpCliPlugin.this.extension;
-				dependencies.add(NoHttpCliPlugin.this.project.getDependencies().create("io.spring.nohttp:nohttp-cli:" + extension.getToolVersion()));
+				dependencies.add(NoHttpCliPlugin.this.project.getDependencies().create("io.spring.nohttp:nohttp-cli:" + extension.getToolVersion().get()));
 			}
 		});
 	}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.spring.nohttp.gradle;
+
+import org.gradle.api.Plugin;
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.ConfigurationContainer;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.attributes.Attribute;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.provider.Provider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static io.spring.nohttp.gradle.NoHttpCheckstylePlugin.NOHTTP_EXTENSION_NAME;
+
+/**
+ * Adds a nohttpDependencies task that verifies there are no http:// URLs within the jars
+ * of the external dependencies in {@link NoHttpExtension#getDependencyConfigurations()}.
+ * Each jar is scanned by {@link HttpUrlsTransform}, so it is only opened the first time
+ * it is resolved. {@link NoHttpCheckstylePlugin} is applied as well, since it provides the
+ * {@link NoHttpExtension}.
+ */
+public class NoHttpDependenciesPlugin implements Plugin<Project> {
+	public static final String NOHTTP_DEPENDENCIES_TASK_NAME = "nohttpDependencies";
+
+	private static final Attribute<String> ARTIFACT_TYPE_ATTRIBUTE = Attribute.of("artifactType", String.class);
+
+	@Override
+	public void apply(Project project) {
+		project.getPluginManager().apply(NoHttpCheckstylePlugin.class);
+		NoHttpExtension extension = (NoHttpExtension) project.getExtensions().getByName(NOHTTP_EXTENSION_NAME);
+		project.getDependencies().registerTransform(HttpUrlsTransform.class, (transform) -> {
+			transform.getFrom().attribute(ARTIFACT_TYPE_ATTRIBUTE, "jar");
+			transform.getTo().attribute(ARTIFACT_TYPE_ATTRIBUTE, HttpUrlsTransform.ARTIFACT_TYPE);
+		});
+		ConfigurationContainer configurations = project.getConfigurations();
+		Provider<List<FileCollection>> scanResults = extension.getDependencyConfigurations()
+				.map((names) -> scanResults(configurations, names));
+		project.getTasks().register(NOHTTP_DEPENDENCIES_TASK_NAME, NoHttpDependenciesTask.class, (task) -> {
+			task.setDescription("Checks for illegal uses of http:// within dependencies");
+			task.getScanResults().from(scanResults);
+			task.getAllowlistFile().set(extension.getAllowlistFile());
+			task.getReportFile().set(project.getLayout().getBuildDirectory().file("reports/nohttp/dependencies.txt"));
+		});
+	}
+
+	private static List<FileCollection> scanResults(ConfigurationContainer configurations, Set<String> names) {
+		List<FileCollection> result = new ArrayList<>();
+		for (String name : names) {
+			FileCollection scanResults = configurations.getByName(name).getIncoming().artifactView((view) -> {
+				view.attributes((attributes) -> attributes.attribute(ARTIFACT_TYPE_ATTRIBUTE, HttpUrlsTransform.ARTIFACT_TYPE));
+				view.componentFilter((id) -> id instanceof ModuleComponentIdentifier);
+			}).getFiles();
+			result.add(scanResults);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.spring.nohttp.gradle;
+
+import io.spring.nohttp.AllowRuleSet;
+import io.spring.nohttp.RegexPredicate;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Verifies that the http:// URLs found in dependencies by {@link HttpUrlsTransform} are
+ * allowed.
+ *
+ * @see NoHttpDependenciesPlugin
+ */
+@CacheableTask
+public class NoHttpDependenciesTask extends DefaultTask {
+	private final ConfigurableFileCollection scanResults;
+
+	private final RegularFileProperty allowlistFile;
+
+	private final RegularFileProperty reportFile;
+
+	@Inject
+	public NoHttpDependenciesTask(ObjectFactory objects) {
+		this.scanResults = objects.fileCollection();
+		this.allowlistFile = objects.fileProperty();
+		this.reportFile = objects.fileProperty();
+	}
+
+	/**
+	 * The results of {@link HttpUrlsTransform} for each dependency.
+	 * @return the results to verify
+	 */
+	@InputFiles
+	@PathSensitive(PathSensitivity.NAME_ONLY)
+	public ConfigurableFileCollection getScanResults() {
+		return this.scanResults;
+	}
+
+	/**
+	 * The file containing additional allowed URLs.
+	 * @return the allowlist file
+	 */
+	@InputFile
+	@Optional
+	@PathSensitive(PathSensitivity.NONE)
+	public RegularFileProperty getAllowlistFile() {
+		return this.allowlistFile;
+	}
+
+	/**
+	 * The file that the URLs that are not allowed are written to.
+	 * @return the report file
+	 */
+	@OutputFile
+	public RegularFileProperty getReportFile() {
+		return this.reportFile;
+	}
+
+	@TaskAction
+	public void checkDependencies() throws IOException {
+		Predicate<String> allow = createAllow();
+		List<String> violations = new ArrayList<>();
+		for (File scanResult : this.scanResults.getFiles()) {
+			String artifact = scanResult.getName();
+			if (artifact.endsWith(HttpUrlsTransform.OUTPUT_SUFFIX)) {
+				artifact = artifact.substring(0, artifact.length() - HttpUrlsTransform.OUTPUT_SUFFIX.length());
+			}
+			for (String line : Files.readAllLines(scanResult.toPath(), StandardCharsets.UTF_8)) {
+				int urlIndex = line.lastIndexOf('\t');
+				int lineNumberIndex = line.lastIndexOf('\t', urlIndex - 1);
+				if (lineNumberIndex < 0) {
+					continue;
+				}
+				String url = line.substring(urlIndex + 1);
+				if (!allow.test(url)) {
+					String entry = line.substring(0, lineNumberIndex);
+					String lineNumber = line.substring(lineNumberIndex + 1, urlIndex);
+					violations.add(artifact + "!/" + entry + ":" + lineNumber + ": " + url);
+				}
+			}
+		}
+		File report = this.reportFile.get().getAsFile();
+		report.getParentFile().mkdirs();
+		Files.write(report.toPath(), violations, StandardCharsets.UTF_8);
+		if (!violations.isEmpty()) {
+			throw new GradleException("Found " + violations.size() + " http:// URLs in dependencies. See the report at " + report);
+		}
+	}
+
+	private Predicate<String> createAllow() throws IOException {
+		AllowRuleSet allow = new AllowRuleSet();
+		allow.add(RegexPredicate.createDefaultUrlAllowlist());
+		File allowlist = this.allowlistFile.getAsFile().getOrNull();
+		if (allowlist != null) {
+			try (InputStream inputStream = Files.newInputStream(allowlist.toPath())) {
+				allow.add(RegexPredicate.createAllowlistFromPatterns(inputStream));
+			}
+		}
+		return allow;
+	}
+}
@@ -16,20 +16,46 @@
 
 package io.spring.nohttp.gradle;
 
+import io.spring.nohttp.file.ScanOrder;
 import org.gradle.api.file.ConfigurableFileTree;
+import org.gradle.api.file.ProjectLayout;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.SetProperty;
 
+import javax.inject.Inject;
 import java.io.File;
 
 /**
+ * The nohttp extension. All of the values are lazy, so they can be configured at any
+ * point before the tasks run and are compatible with Gradle's configuration cache.
+ *
  * @author Rob Winch
  */
 public class NoHttpExtension {
 
-	private String toolVersion;
+	private final Property<String> toolVersion;
 
 	private ConfigurableFileTree source;
 
-	private File allowlistFile;
+	private final RegularFileProperty allowlistFile;
+
+	private final Property<Boolean> perSubprojectTasks;
+
+	private final SetProperty<String> dependencyConfigurations;
+
+	private final Property<ScanOrder> scanOrder;
+
+	@Inject
+	public NoHttpExtension(ObjectFactory objects, ProjectLayout layout) {
+		this.toolVersion = objects.property(String.class);
+		this.source = objects.fileTree().from(layout.getProjectDirectory());
+		this.allowlistFile = objects.fileProperty();
+		this.perSubprojectTasks = objects.property(Boolean.class).convention(false);
+		this.dependencyConfigurations = objects.setProperty(String.class);
+		this.scanOrder = objects.property(ScanOrder.class).convention(ScanOrder.WALK);
+	}
 
 	/**
 	 *
@@ -38,7 +64,7 @@ public class NoHttpExtension {
 	 */
 	@Deprecated
 	public File getWhitelistFile() {
-		return getAllowlistFile();
+		return getAllowlistFile().getAsFile().getOrNull();
 	}
 
 	/**
@@ -51,12 +77,57 @@ public class NoHttpExtension {
 		setAllowlistFile(whitelistFile);
 	}
 
-	public File getAllowlistFile() {
+	/**
+	 * The file containing additional allowed URLs. The default is the first of
+	 * {@code config/nohttp/allowlist.lines}, {@code config/nohttp/whitelist.lines} or
+	 * {@code etc/nohttp/whitelist.lines} that exists.
+	 * @return the allowlist file
+	 */
+	public RegularFileProperty getAllowlistFile() {
 		return this.allowlistFile;
 	}
 
 	public void setAllowlistFile(File allowlistFile) {
-		this.allowlistFile = allowlistFile;
+		this.allowlistFile.set(allowlistFile);
+	}
+
+	/**
+	 * If true, the checkstyleNohttp task of this project does not check the directories
+	 * of its subprojects, which are expected to apply the plugin and check their own files.
+	 * This allows Gradle to run the checks in parallel and cache them individually. The
+	 * plugin does not add tasks to the subprojects. The default is false.
+	 * @return true if each subproject checks its own files
+	 */
+	public Property<Boolean> getPerSubprojectTasks() {
+		return this.perSubprojectTasks;
+	}
+
+	public void setPerSubprojectTasks(boolean perSubprojectTasks) {
+		this.perSubprojectTasks.set(perSubprojectTasks);
+	}
+
+	/**
+	 * The names of the configurations whose external dependencies are scanned for http://
+	 * URLs by the nohttpDependencies task. The default is empty.
+	 * @return the names of the configurations to scan
+	 */
+	public SetProperty<String> getDependencyConfigurations() {
+		return this.dependencyConfigurations;
+	}
+
+	/**
+	 * The order in which the nohttp task processes files (e.g.
+	 * {@link ScanOrder#RECENTLY_MODIFIED_FIRST} to report the results in the files that
+	 * were just edited first). The default is {@link ScanOrder#WALK}, which is not passed
+	 * to nohttp-cli so that an older {@link #getToolVersion()} can still be used.
+	 * @return the order in which files are processed
+	 */
+	public Property<ScanOrder> getScanOrder() {
+		return this.scanOrder;
+	}
+
+	public void setScanOrder(ScanOrder scanOrder) {
+		this.scanOrder.set(scanOrder);
 	}
 
 	public ConfigurableFileTree getSource() {
@@ -67,11 +138,11 @@ public class NoHttpExtension {
 		this.source = source;
 	}
 
-	public String getToolVersion() {
+	public Property<String> getToolVersion() {
 		return this.toolVersion;
 	}
 
 	public void setToolVersion(String toolVersion) {
-		this.toolVersion = toolVersion;
+		this.toolVersion.set(toolVersion);
 	}
 }
@@ -30,5 +30,6 @@ public class NoHttpPlugin implements Plugin<Project> {
 		PluginManager pluginManager = project.getPluginManager();
 		pluginManager.apply(NoHttpCheckstylePlugin.class);
 		pluginManager.apply(NoHttpCliPlugin.class);
+		pluginManager.apply(NoHttpDependenciesPlugin.class);
 	}
 }
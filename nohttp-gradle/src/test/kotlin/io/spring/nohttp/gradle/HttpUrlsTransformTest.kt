@@ -0,0 +1,100 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.spring.nohttp.gradle
+
+import org.assertj.core.api.Assertions.assertThat
+import org.gradle.api.artifacts.transform.TransformOutputs
+import org.gradle.api.artifacts.transform.TransformParameters
+import org.gradle.api.file.FileSystemLocation
+import org.gradle.api.provider.Provider
+import org.gradle.testfixtures.ProjectBuilder
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+class HttpUrlsTransformTest {
+    @Rule
+    @JvmField
+    val tempBuild = TemporaryFolder()
+
+    @Test
+    fun transformWhenTextEntryHasHttpThenWritten() {
+        val jar = jar(mapOf(
+                "META-INF/maven/com.example/lib/pom.xml" to "<project>\n    <url>http://example.com/lib</url>\n</project>\n".toByteArray(),
+                "META-INF/spring.schemas" to "https\\://example.com/lib.xsd\n".toByteArray()))
+
+        val output = transform(jar)
+
+        assertThat(output.name).isEqualTo("lib-1.0.jar.nohttp")
+        assertThat(output.readText()).isEqualTo("META-INF/maven/com.example/lib/pom.xml\t2\thttp://example.com/lib\n")
+    }
+
+    @Test
+    fun transformWhenClassEntryHasHttpThenSkipped() {
+        val jar = jar(mapOf("com/example/Lib.class" to "http://example.com/lib".toByteArray()))
+
+        val output = transform(jar)
+
+        assertThat(output.readText()).isEmpty()
+    }
+
+    @Test
+    fun transformWhenBinaryEntryHasHttpThenSkipped() {
+        val jar = jar(mapOf("com/example/lib.bin" to byteArrayOf(0) + "http://example.com/lib".toByteArray()))
+
+        val output = transform(jar)
+
+        assertThat(output.readText()).isEmpty()
+    }
+
+    fun jar(entries: Map<String, ByteArray>): File {
+        val jar = File(tempBuild.newFolder(), "lib-1.0.jar")
+        ZipOutputStream(jar.outputStream()).use { zip ->
+            entries.forEach { (name, content) ->
+                zip.putNextEntry(ZipEntry(name))
+                zip.write(content)
+                zip.closeEntry()
+            }
+        }
+        return jar
+    }
+
+    fun transform(jar: File): File {
+        val project = ProjectBuilder.builder()
+                .withProjectDir(tempBuild.newFolder())
+                .withGradleUserHomeDir(tempBuild.newFolder())
+                .build()
+        @Suppress("UNCHECKED_CAST")
+        val inputArtifact = project.layout.file(project.provider { jar }) as Provider<FileSystemLocation>
+        val transform = object : HttpUrlsTransform() {
+            override fun getInputArtifact(): Provider<FileSystemLocation> = inputArtifact
+
+            override fun getParameters(): TransformParameters.None = throw UnsupportedOperationException()
+        }
+        val outputDir = tempBuild.newFolder()
+        val outputs = object : TransformOutputs {
+            override fun dir(path: Any): File = throw UnsupportedOperationException()
+
+            override fun file(path: Any): File = File(outputDir, path.toString())
+        }
+        transform.transform(outputs)
+        return File(outputDir, jar.name + HttpUrlsTransform.OUTPUT_SUFFIX)
+    }
+}
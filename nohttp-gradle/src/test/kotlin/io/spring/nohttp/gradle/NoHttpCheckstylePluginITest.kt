@@ -21,6 +21,7 @@ import org.gradle.testkit.runner.BuildResult
 import org.gradle.testkit.runner.GradleRunner
 import org.gradle.testkit.runner.TaskOutcome
 import org.gradle.util.GradleVersion
+import org.junit.Assume.assumeTrue
 import org.junit.Rule
 import org.junit.Test
 import org.junit.rules.TemporaryFolder
@@ -145,6 +146,20 @@ class NoHttpCheckstylePluginITest {
         assertThat(checkstyleNohttpTaskOutcome(fromCacheResult)).isEqualTo(TaskOutcome.FROM_CACHE)
     }
 
+    @Test
+    fun configurationCacheIsReused() {
+        assumeTrue(gradleVersion >= GradleVersion.version("6.6"))
+        buildFile()
+
+        tempBuild.newFile("has-https.txt")
+                .writeText("""https://example.com""")
+        runner(configurationCache = true).build()
+
+        val reusedResult = runner(configurationCache = true).build()
+        assertThat(reusedResult.output).contains("Reusing configuration cache.")
+        assertThat(checkstyleNohttpTaskOutcome(reusedResult)).isEqualTo(TaskOutcome.UP_TO_DATE)
+    }
+
     @Test
     fun usesDefaultConfigDirectory() {
         val configDirectory = tempBuild.newFolder("config", "nohttp")
@@ -189,7 +204,7 @@ class NoHttpCheckstylePluginITest {
         return build.task(":" + NoHttpCheckstylePlugin.CHECKSTYLE_NOHTTP_TASK_NAME)?.outcome
     }
 
-    fun runner(projectDir: File = tempBuild.root, testKitDir: File? = null): GradleRunner {
+    fun runner(projectDir: File = tempBuild.root, testKitDir: File? = null, configurationCache: Boolean = false): GradleRunner {
         var gradleRunner = GradleRunner.create()
                 .withProjectDir(projectDir)
                 .withPluginClasspath()
@@ -200,6 +215,9 @@ class NoHttpCheckstylePluginITest {
             args.add("--build-cache")
             gradleRunner = gradleRunner.withTestKitDir(testKitDir)
         }
+        if (configurationCache) {
+            args.add("--configuration-cache")
+        }
         args.addAll(listOf("--warning-mode", "fail"))
         return gradleRunner.withArguments(args)
     }
@@ -17,6 +17,8 @@
 package io.spring.nohttp.gradle
 
 import org.assertj.core.api.Assertions.assertThat
+import org.assertj.core.api.Assertions.assertThatThrownBy
+import org.gradle.api.internal.project.ProjectInternal
 import org.gradle.api.plugins.JavaBasePlugin
 import org.gradle.api.plugins.quality.Checkstyle
 import org.gradle.api.plugins.quality.CheckstylePlugin
@@ -54,7 +56,28 @@ class NoHttpCheckstylePluginTest {
 
 		val nohttp: NoHttpExtension = project.extensions.getByName(NoHttpCheckstylePlugin.NOHTTP_EXTENSION_NAME) as NoHttpExtension
 
-		assertThat(nohttp.allowlistFile).isEqualTo(allowlistFile)
+		assertThat(nohttp.allowlistFile.asFile.get()).isEqualTo(allowlistFile)
+	}
+
+	@Test
+	fun configuredNohttpExtensionWhenAllowlistLinesCreatedAfterApplyThenExists() {
+		val project = projectWithTempDirs().build()
+		project.pluginManager.apply(NoHttpCheckstylePlugin::class.java)
+		val allowlistFile = project.file(NoHttpCheckstylePlugin.DEFAULT_ALLOWLIST_FILE_PATH).touch()
+
+		val nohttp: NoHttpExtension = project.extensions.getByName(NoHttpCheckstylePlugin.NOHTTP_EXTENSION_NAME) as NoHttpExtension
+
+		assertThat(nohttp.allowlistFile.asFile.get()).isEqualTo(allowlistFile)
+	}
+
+	@Test
+	fun configuredNohttpExtensionWhenNoAllowlistThenNotPresent() {
+		val project = projectWithTempDirs().build()
+		project.pluginManager.apply(NoHttpCheckstylePlugin::class.java)
+
+		val nohttp: NoHttpExtension = project.extensions.getByName(NoHttpCheckstylePlugin.NOHTTP_EXTENSION_NAME) as NoHttpExtension
+
+		assertThat(nohttp.allowlistFile.isPresent).isFalse()
 	}
 
     @Test
@@ -189,6 +212,182 @@ class NoHttpCheckstylePluginTest {
         assertThat(nohttp.source.files).isEmpty()
     }
 
+    @Test
+    fun configuredCheckstyleNohttpTaskWhenSubprojectBuildDirThenExcludes() {
+        val root = projectWithTempDirs().build()
+        val subproject = ProjectBuilder.builder()
+                .withParent(root)
+                .withName("sub")
+                .withProjectDir(File(root.projectDir, "sub"))
+                .build()
+        root.pluginManager.apply(NoHttpCheckstylePlugin::class.java)
+        val build = root.file("sub/build.gradle").touch()
+        File(subproject.buildDir, "something").touch()
+
+        val task: Checkstyle = root.tasks.findByName(NoHttpCheckstylePlugin.CHECKSTYLE_NOHTTP_TASK_NAME)!! as Checkstyle
+
+        assertThat(task.source.files).containsOnly(build)
+    }
+
+    @Test
+    fun configuredCheckstyleNohttpTaskWhenSubprojectCustomBuildDirThenExcludes() {
+        val root = projectWithTempDirs().build()
+        val subproject = ProjectBuilder.builder()
+                .withParent(root)
+                .withName("sub")
+                .withProjectDir(File(root.projectDir, "sub"))
+                .build()
+        root.pluginManager.apply(NoHttpCheckstylePlugin::class.java)
+        subproject.buildDir = File(subproject.projectDir, "out")
+        val build = root.file("sub/build.gradle").touch()
+        File(subproject.buildDir, "something").touch()
+
+        val task: Checkstyle = root.tasks.findByName(NoHttpCheckstylePlugin.CHECKSTYLE_NOHTTP_TASK_NAME)!! as Checkstyle
+
+        assertThat(task.source.files).containsOnly(build)
+    }
+
+    @Test
+    fun configuredCheckstyleNohttpTaskWhenSubprojectBuildFileNamedAfterProjectThenExcludesBuildDir() {
+        val root = projectWithTempDirs().build()
+        val subproject = ProjectBuilder.builder()
+                .withParent(root)
+                .withName("sub")
+                .withProjectDir(File(root.projectDir, "sub"))
+                .build()
+        root.pluginManager.apply(NoHttpCheckstylePlugin::class.java)
+        val build = root.file("sub/sub.gradle").touch()
+        File(subproject.buildDir, "something").touch()
+
+        val task: Checkstyle = root.tasks.findByName(NoHttpCheckstylePlugin.CHECKSTYLE_NOHTTP_TASK_NAME)!! as Checkstyle
+
+        assertThat(task.source.files).containsOnly(build)
+    }
+
+    @Test
+    fun configuredCheckstyleNohttpTaskWhenBuildDirWithoutBuildScriptThenIncludes() {
+        val root = projectWithTempDirs().build()
+        root.pluginManager.apply(NoHttpCheckstylePlugin::class.java)
+        val file = root.file("docs/build/index.adoc").touch()
+
+        val task: Checkstyle = root.tasks.findByName(NoHttpCheckstylePlugin.CHECKSTYLE_NOHTTP_TASK_NAME)!! as Checkstyle
+
+        assertThat(task.source.files).containsOnly(file)
+    }
+
+    @Test
+    fun configuredCheckstyleNohttpTaskWhenPerSubprojectTasksThenRootExcludesSubprojects() {
+        val root = projectWithTempDirs().build()
+        ProjectBuilder.builder()
+                .withParent(root)
+                .withName("sub")
+                .withProjectDir(File(root.projectDir, "sub"))
+                .build()
+        root.pluginManager.apply(NoHttpCheckstylePlugin::class.java)
+        val nohttp: NoHttpExtension = root.extensions.getByName(NoHttpCheckstylePlugin.NOHTTP_EXTENSION_NAME) as NoHttpExtension
+        nohttp.perSubprojectTasks.set(true)
+        val rootFile = root.file("README.adoc").touch()
+        root.file("sub/build.gradle").touch()
+        (root as ProjectInternal).evaluate()
+
+        val task: Checkstyle = root.tasks.findByName(NoHttpCheckstylePlugin.CHECKSTYLE_NOHTTP_TASK_NAME)!! as Checkstyle
+
+        assertThat(task.source.files).containsOnly(rootFile)
+    }
+
+    @Test
+    fun configuredCheckstyleNohttpTaskWhenPerSubprojectTasksAndBuildFileNamedAfterProjectThenRootExcludesSubprojects() {
+        val root = projectWithTempDirs().build()
+        ProjectBuilder.builder()
+                .withParent(root)
+                .withName("sub")
+                .withProjectDir(File(root.projectDir, "sub"))
+                .build()
+        root.pluginManager.apply(NoHttpCheckstylePlugin::class.java)
+        val nohttp: NoHttpExtension = root.extensions.getByName(NoHttpCheckstylePlugin.NOHTTP_EXTENSION_NAME) as NoHttpExtension
+        nohttp.perSubprojectTasks.set(true)
+        val rootFile = root.file("README.adoc").touch()
+        root.file("sub/sub.gradle").touch()
+
+        val task: Checkstyle = root.tasks.findByName(NoHttpCheckstylePlugin.CHECKSTYLE_NOHTTP_TASK_NAME)!! as Checkstyle
+
+        assertThat(task.source.files).containsOnly(rootFile)
+    }
+
+    @Test
+    fun configuredCheckstyleNohttpTaskWhenPerSubprojectTasksAndBuildScriptNotInSubprojectThenIncludes() {
+        val root = projectWithTempDirs().build()
+        root.pluginManager.apply(NoHttpCheckstylePlugin::class.java)
+        val nohttp: NoHttpExtension = root.extensions.getByName(NoHttpCheckstylePlugin.NOHTTP_EXTENSION_NAME) as NoHttpExtension
+        nohttp.perSubprojectTasks.set(true)
+        val sample = root.file("samples/simple/build.gradle").touch()
+
+        val task: Checkstyle = root.tasks.findByName(NoHttpCheckstylePlugin.CHECKSTYLE_NOHTTP_TASK_NAME)!! as Checkstyle
+
+        assertThat(task.source.files).containsOnly(sample)
+    }
+
+    @Test
+    fun configuredCheckstyleNohttpTaskWhenAppliedToSubprojectThenUsesRootAllowlist() {
+        val root = projectWithTempDirs().build()
+        val subproject = ProjectBuilder.builder()
+                .withParent(root)
+                .withName("sub")
+                .withProjectDir(File(root.projectDir, "sub"))
+                .build()
+        ProjectBuilder.builder()
+                .withParent(subproject)
+                .withName("nested")
+                .withProjectDir(File(subproject.projectDir, "nested"))
+                .build()
+        subproject.pluginManager.apply(NoHttpCheckstylePlugin::class.java)
+        val nohttp: NoHttpExtension = subproject.extensions.getByName(NoHttpCheckstylePlugin.NOHTTP_EXTENSION_NAME) as NoHttpExtension
+        nohttp.perSubprojectTasks.set(true)
+        val allowlist = root.file(NoHttpCheckstylePlugin.DEFAULT_ALLOWLIST_FILE_PATH).touch()
+        val build = root.file("sub/build.gradle").touch()
+        root.file("sub/nested/build.gradle").touch()
+        File(subproject.buildDir, "something").touch()
+
+        val task: Checkstyle = subproject.tasks.findByName(NoHttpCheckstylePlugin.CHECKSTYLE_NOHTTP_TASK_NAME)!! as Checkstyle
+
+        assertThat(task.source.files).containsOnly(build)
+        assertThat(nohttp.allowlistFile.asFile.get()).isEqualTo(allowlist)
+        assertThat(task.configProperties).containsEntry("nohttp.checkstyle.allowlistFileName", "../" + NoHttpCheckstylePlugin.DEFAULT_ALLOWLIST_FILE_PATH)
+    }
+
+    @Test
+    fun configuredCheckstyleNohttpTaskWhenSubprojectHasAllowlistThenUsesSubprojectAllowlist() {
+        val root = projectWithTempDirs().build()
+        val subproject = ProjectBuilder.builder()
+                .withParent(root)
+                .withName("sub")
+                .withProjectDir(File(root.projectDir, "sub"))
+                .build()
+        subproject.pluginManager.apply(NoHttpCheckstylePlugin::class.java)
+        root.file(NoHttpCheckstylePlugin.DEFAULT_ALLOWLIST_FILE_PATH).touch()
+        val allowlist = subproject.file(NoHttpCheckstylePlugin.DEFAULT_ALLOWLIST_FILE_PATH).touch()
+
+        val nohttp: NoHttpExtension = subproject.extensions.getByName(NoHttpCheckstylePlugin.NOHTTP_EXTENSION_NAME) as NoHttpExtension
+
+        assertThat(nohttp.allowlistFile.asFile.get()).isEqualTo(allowlist)
+    }
+
+    @Test
+    fun configuredCheckstyleNohttpTaskWhenPerSubprojectTasksThenSubprojectsNotConfigured() {
+        val root = projectWithTempDirs().build()
+        val subproject = ProjectBuilder.builder()
+                .withParent(root)
+                .withName("sub")
+                .withProjectDir(File(root.projectDir, "sub"))
+                .build()
+        root.pluginManager.apply(NoHttpCheckstylePlugin::class.java)
+        val nohttp: NoHttpExtension = root.extensions.getByName(NoHttpCheckstylePlugin.NOHTTP_EXTENSION_NAME) as NoHttpExtension
+        nohttp.perSubprojectTasks.set(true)
+        (root as ProjectInternal).evaluate()
+
+        assertThat(subproject.tasks.findByName(NoHttpCheckstylePlugin.CHECKSTYLE_NOHTTP_TASK_NAME)).isNull()
+    }
+
     @Test
     fun configuredCheckstyleNohttpTask() {
         val project = projectWithTempDirs()
@@ -205,11 +404,17 @@ class NoHttpCheckstylePluginTest {
         "https://www.puppycrawl.com/dtds/configuration_1_3.dtd">
 <module name="Checker">
 
+    <!-- Skip files that have not changed since the last run -->
+    <property name="cacheFile" value="${DOLLAR}{nohttp.checkstyle.cacheFile}"/>
+
     <!-- Configure checker to use UTF-8 encoding -->
     <property name="charset" value="UTF-8"/>
     <!-- Configure checker to run on files with these extensions -->
     <property name="fileExtensions" value=""/>
 
+    <!-- Skip binary files before they are read as text -->
+    <module name="io.spring.nohttp.checkstyle.filefilters.BinaryFileFilter"/>
+
     <module name="io.spring.nohttp.checkstyle.check.NoHttpCheck">
         <property name="allowlistFileName" value="${DOLLAR}{nohttp.checkstyle.allowlistFileName}" default=""/>
     </module>
@@ -302,12 +507,39 @@ class NoHttpCheckstylePluginTest {
         project.pluginManager.apply(NoHttpCheckstylePlugin::class.java)
 
         val nohttp: NoHttpExtension = project.extensions.getByName(NoHttpCheckstylePlugin.NOHTTP_EXTENSION_NAME) as NoHttpExtension
-        nohttp.allowlistFile = allowlistFile
+        nohttp.allowlistFile.set(allowlistFile)
         val task: Checkstyle = project.tasks.findByName(NoHttpCheckstylePlugin.CHECKSTYLE_NOHTTP_TASK_NAME)!! as Checkstyle
 
         assertThat(task.configProperties).containsEntry("nohttp.checkstyle.allowlistFileName", project.relativePath(allowlistFile))
     }
 
+    @Test
+    fun configuredCheckstyleNohttpTaskThenCacheFileInBuildDir() {
+        val project = projectWithTempDirs()
+                .build()
+        project.pluginManager.apply(NoHttpCheckstylePlugin::class.java)
+
+        val task: Checkstyle = project.tasks.findByName(NoHttpCheckstylePlugin.CHECKSTYLE_NOHTTP_TASK_NAME)!! as Checkstyle
+
+        assertThat(task.configProperties).containsEntry("nohttp.checkstyle.cacheFile", project.relativePath(File(project.buildDir, "nohttp/checkstyleNohttp.cache")))
+    }
+
+    @Test
+    fun enableCacheWhenCrlfThenCacheFileAdded() {
+        val xml = "<module name=\"Checker\">\r\n    <property name=\"charset\" value=\"UTF-8\"/>\r\n</module>"
+
+        assertThat(NoHttpCheckstylePlugin.enableCache(xml)).isEqualTo("<module name=\"Checker\">\r\n\r\n"
+                + "    <!-- Skip files that have not changed since the last run -->\r\n"
+                + "    <property name=\"cacheFile\" value=\"\${nohttp.checkstyle.cacheFile}\"/>\r\n"
+                + "    <property name=\"charset\" value=\"UTF-8\"/>\r\n</module>")
+    }
+
+    @Test
+    fun enableCacheWhenNoCheckerThenIllegalStateException() {
+        assertThatThrownBy { NoHttpCheckstylePlugin.enableCache("<module name=\"TreeWalker\"/>") }
+                .isInstanceOf(IllegalStateException::class.java)
+    }
+
     @Test
     fun addsTaskToCheckLifecycleTaskWhenJavaBasePlugin() {
         val project = projectWithTempDirs().build()
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.spring.nohttp.gradle
+
+import io.spring.nohttp.file.ScanOrder
+import org.assertj.core.api.Assertions.assertThat
+import org.gradle.api.Project
+import org.gradle.api.tasks.JavaExec
+import org.gradle.testfixtures.ProjectBuilder
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+
+class NoHttpCliPluginTest {
+    @Rule
+    @JvmField
+    val tempBuild = TemporaryFolder()
+
+    @Test
+    fun nohttpWhenDefaultScanOrderThenNoScanOrderArgument() {
+        val project = projectWithPlugin()
+
+        assertThat(arguments(project)).isEmpty()
+    }
+
+    @Test
+    fun nohttpWhenScanOrderThenScanOrderArgument() {
+        val project = projectWithPlugin()
+        val extension = project.extensions.getByName(NoHttpCheckstylePlugin.NOHTTP_EXTENSION_NAME) as NoHttpExtension
+        extension.scanOrder.set(ScanOrder.LARGEST_FIRST)
+
+        assertThat(arguments(project)).containsExactly("--scan-order=LARGEST_FIRST")
+    }
+
+    fun arguments(project: Project): List<String> {
+        val task = project.tasks.getByName("nohttp") as JavaExec
+        return task.argumentProviders.flatMap { it.asArguments() }
+    }
+
+    fun projectWithPlugin(): Project {
+        val project = ProjectBuilder.builder()
+                .withProjectDir(tempBuild.newFolder())
+                .withGradleUserHomeDir(tempBuild.newFolder())
+                .build()
+        project.pluginManager.apply(NoHttpPlugin::class.java)
+        return project
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.spring.nohttp.gradle
+
+import org.assertj.core.api.Assertions.assertThat
+import org.gradle.testkit.runner.BuildResult
+import org.gradle.testkit.runner.GradleRunner
+import org.gradle.testkit.runner.TaskOutcome
+import org.gradle.util.GradleVersion
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+import org.junit.runners.Parameterized.Parameter
+import org.junit.runners.Parameterized.Parameters
+import java.io.File
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+@RunWith(Parameterized::class)
+class NoHttpDependenciesPluginITest {
+    @Rule
+    @JvmField
+    val tempBuild = TemporaryFolder()
+
+    companion object {
+        @Parameters(name = "{0}")
+        @JvmStatic
+        fun gradleVersions() = listOf("6.0.1", "6.8.3", "7.0", "7.0.1", "7.1").map(GradleVersion::version)
+    }
+
+    @Parameter
+    lateinit var gradleVersion: GradleVersion
+
+    @Test
+    fun httpsIsSuccess() {
+        buildFile()
+        dependency("<url>https://example.com/lib</url>")
+
+        val result = runner().build()
+        assertThat(nohttpDependenciesTaskOutcome(result)).isEqualTo(TaskOutcome.SUCCESS)
+    }
+
+    @Test
+    fun httpIsFailed() {
+        buildFile()
+        dependency("<url>http://example.com/lib</url>")
+
+        val result = runner().buildAndFail()
+        assertThat(result.output).contains("Found 1 http:// URLs in dependencies.")
+        assertThat(nohttpDependenciesTaskOutcome(result)).isEqualTo(TaskOutcome.FAILED)
+        assertThat(File(tempBuild.root, "build/reports/nohttp/dependencies.txt").readText())
+                .isEqualTo("lib-1.0.jar!/META-INF/maven/com.example/lib/pom.xml:1: http://example.com/lib\n")
+    }
+
+    @Test
+    fun upToDate() {
+        buildFile()
+        dependency("<url>https://example.com/lib</url>")
+        runner().build()
+
+        val upToDateResult = runner().build()
+        assertThat(nohttpDependenciesTaskOutcome(upToDateResult)).isEqualTo(TaskOutcome.UP_TO_DATE)
+    }
+
+    fun nohttpDependenciesTaskOutcome(build: BuildResult): TaskOutcome? {
+        return build.task(":" + NoHttpDependenciesPlugin.NOHTTP_DEPENDENCIES_TASK_NAME)?.outcome
+    }
+
+    fun runner(): GradleRunner {
+        return GradleRunner.create()
+                .withProjectDir(tempBuild.root)
+                .withPluginClasspath()
+                .forwardOutput()
+                .withGradleVersion(gradleVersion.version)
+                .withArguments(NoHttpDependenciesPlugin.NOHTTP_DEPENDENCIES_TASK_NAME, "--stacktrace", "--warning-mode", "fail")
+    }
+
+    fun dependency(pomContent: String) {
+        val dir = tempBuild.newFolder("repo", "com", "example", "lib", "1.0")
+        File(dir, "lib-1.0.pom").writeText("""
+            <?xml version="1.0" encoding="UTF-8"?>
+            <project>
+                <modelVersion>4.0.0</modelVersion>
+                <groupId>com.example</groupId>
+                <artifactId>lib</artifactId>
+                <version>1.0</version>
+            </project>
+        """.trimIndent())
+        ZipOutputStream(File(dir, "lib-1.0.jar").outputStream()).use { zip ->
+            zip.putNextEntry(ZipEntry("META-INF/maven/com.example/lib/pom.xml"))
+            zip.write(pomContent.toByteArray())
+            zip.closeEntry()
+        }
+    }
+
+    fun buildFile() {
+        val build = tempBuild.newFile("build.gradle")
+        build.writeText("""
+            plugins {
+                id 'io.spring.nohttp'
+            }
+
+            configurations {
+                scanned
+            }
+
+            repositories {
+                maven {
+                    url = file('repo')
+                }
+            }
+
+            dependencies {
+                scanned 'com.example:lib:1.0'
+            }
+
+            nohttp {
+                dependencyConfigurations.add('scanned')
+            }
+        """.trimIndent())
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.spring.nohttp.gradle
+
+import org.assertj.core.api.Assertions.assertThat
+import org.assertj.core.api.Assertions.assertThatCode
+import org.gradle.api.GradleException
+import org.gradle.api.Project
+import org.gradle.testfixtures.ProjectBuilder
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+
+class NoHttpDependenciesPluginTest {
+    @Rule
+    @JvmField
+    val tempBuild = TemporaryFolder()
+
+    @Test
+    fun applyThenNohttpDependenciesTaskRegistered() {
+        val project = projectWithPlugin()
+
+        val task = project.tasks.findByName(NoHttpDependenciesPlugin.NOHTTP_DEPENDENCIES_TASK_NAME) as NoHttpDependenciesTask
+
+        assertThat(task.reportFile.asFile.get()).isEqualTo(File(project.buildDir, "reports/nohttp/dependencies.txt"))
+        assertThat(task.scanResults.files).isEmpty()
+    }
+
+    @Test
+    fun applyWhenCheckstylePluginNotAppliedThenNohttpDependenciesTaskRegistered() {
+        val project = ProjectBuilder.builder()
+                .withProjectDir(tempBuild.newFolder())
+                .withGradleUserHomeDir(tempBuild.newFolder())
+                .build()
+
+        project.pluginManager.apply(NoHttpDependenciesPlugin::class.java)
+
+        assertThat(project.tasks.findByName(NoHttpDependenciesPlugin.NOHTTP_DEPENDENCIES_TASK_NAME)).isNotNull()
+        assertThat(project.extensions.findByName(NoHttpCheckstylePlugin.NOHTTP_EXTENSION_NAME)).isNotNull()
+    }
+
+    @Test
+    fun checkDependenciesWhenHttpThenFails() {
+        val project = projectWithPlugin()
+        val task = project.tasks.findByName(NoHttpDependenciesPlugin.NOHTTP_DEPENDENCIES_TASK_NAME) as NoHttpDependenciesTask
+        task.scanResults.from(scanResult(project, "META-INF/spring.schemas\t3\thttp://example.com/foo.xsd\n"))
+
+        assertThatCode { task.checkDependencies() }
+                .isInstanceOf(GradleException::class.java)
+                .hasMessageStartingWith("Found 1 http:// URLs in dependencies.")
+        assertThat(task.reportFile.asFile.get().readText())
+                .isEqualTo("dependency-1.0.jar!/META-INF/spring.schemas:3: http://example.com/foo.xsd\n")
+    }
+
+    @Test
+    fun checkDependenciesWhenDefaultAllowlistThenPasses() {
+        val project = projectWithPlugin()
+        val task = project.tasks.findByName(NoHttpDependenciesPlugin.NOHTTP_DEPENDENCIES_TASK_NAME) as NoHttpDependenciesTask
+        task.scanResults.from(scanResult(project, "META-INF/maven/pom.xml\t1\thttp://www.w3.org/2001/XMLSchema-instance\n"))
+
+        task.checkDependencies()
+
+        assertThat(task.reportFile.asFile.get().readText()).isEmpty()
+    }
+
+    @Test
+    fun checkDependenciesWhenAllowlistFileThenPasses() {
+        val project = projectWithPlugin()
+        val allowlist = project.file(NoHttpCheckstylePlugin.DEFAULT_ALLOWLIST_FILE_PATH)
+        allowlist.parentFile.mkdirs()
+        allowlist.writeText("^http://example\\.com/.*")
+        val task = project.tasks.findByName(NoHttpDependenciesPlugin.NOHTTP_DEPENDENCIES_TASK_NAME) as NoHttpDependenciesTask
+        task.scanResults.from(scanResult(project, "META-INF/spring.schemas\t3\thttp://example.com/foo.xsd\n"))
+
+        task.checkDependencies()
+
+        assertThat(task.reportFile.asFile.get().readText()).isEmpty()
+    }
+
+    fun projectWithPlugin(): Project {
+        val project = ProjectBuilder.builder()
+                .withProjectDir(tempBuild.newFolder())
+                .withGradleUserHomeDir(tempBuild.newFolder())
+                .build()
+        project.pluginManager.apply(NoHttpPlugin::class.java)
+        return project
+    }
+
+    fun scanResult(project: Project, content: String): File {
+        val result = File(project.buildDir, "dependency-1.0.jar.nohttp")
+        result.parentFile.mkdirs()
+        result.writeText(content)
+        return result
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.spring.nohttp;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts how often each allowlist pattern allows a URL, so that the
+ * {@link RegexPredicate}s that use it evaluate the patterns that allow the most URLs
+ * first. The patterns are OR'ed, so the order does not change what is allowed. The counts
+ * are shared by every {@link RegexPredicate} that uses the instance and can be stored in
+ * a file, so that later runs start with the learned order.
+ *
+ * @see RegexPredicate#setRuleOrder(AdaptiveRuleOrder)
+ */
+public class AdaptiveRuleOrder {
+	private final ConcurrentMap<String, LongAdder> patternToHits = new ConcurrentHashMap<>();
+
+	/**
+	 * The default location of the file, which is {@code allowlist-order.txt} next to
+	 * {@link StatusCache#defaultLocation()}.
+	 * @return the default location of the file
+	 */
+	public static File defaultLocation() {
+		return new File(StatusCache.defaultLocation().getParentFile(), "allowlist-order.txt");
+	}
+
+	/**
+	 * Creates an instance with the counts stored in a file by {@link #store(File)}
+	 * @param file the file to read. If it does not exist, the counts start at 0.
+	 * @return the instance
+	 */
+	public static AdaptiveRuleOrder load(File file) {
+		if (file == null) {
+			throw new IllegalArgumentException("file cannot be null");
+		}
+		AdaptiveRuleOrder order = new AdaptiveRuleOrder();
+		if (!file.exists()) {
+			return order;
+		}
+		try {
+			for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+				int tab = line.indexOf('\t');
+				if (tab == -1) {
+					continue;
+				}
+				try {
+					long hits = Long.parseLong(line.substring(0, tab));
+					order.counter(line.substring(tab + 1)).add(hits);
+				}
+				catch (NumberFormatException e) {
+					// ignore lines that were partially written
+				}
+			}
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException("Could not read " + file, e);
+		}
+		return order;
+	}
+
+	/**
+	 * Writes the counts to a file with a line per pattern that allowed a URL containing the
+	 * count and the pattern separated by a tab
+	 * @param file the file to write to
+	 */
+	public void store(File file) {
+		if (file == null) {
+			throw new IllegalArgumentException("file cannot be null");
+		}
+		List<Map.Entry<String, Long>> entries = new ArrayList<>(getHitCounts().entrySet());
+		entries.removeIf(e -> e.getValue() == 0);
+		entries.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (parent != null) {
+			parent.mkdirs();
+		}
+		try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			for (Map.Entry<String, Long> entry : entries) {
+				writer.write(entry.getValue() + "\t" + entry.getKey());
+				writer.write("\n");
+			}
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException("Could not write to " + file, e);
+		}
+	}
+
+	/**
+	 * The number of URLs each pattern allowed
+	 * @return the pattern mapped to the number of URLs it allowed
+	 */
+	public Map<String, Long> getHitCounts() {
+		Map<String, Long> result = new LinkedHashMap<>();
+		this.patternToHits.forEach((pattern, hits) -> result.put(pattern, hits.sum()));
+		return result;
+	}
+
+	LongAdder counter(String pattern) {
+		return this.patternToHits.computeIfAbsent(pattern, p -> new LongAdder());
+	}
+}
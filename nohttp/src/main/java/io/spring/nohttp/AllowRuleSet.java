@@ -0,0 +1,207 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.spring.nohttp;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Combines allow rules into a single {@link Predicate} that evaluates the cheapest rules
+ * first. The patterns of a {@link RegexPredicate} are split into tiers:
+ *
+ * <ul>
+ *     <li>exact URLs (i.e. {@code ^http://example\.com$}) in a hash set</li>
+ *     <li>literal prefixes (i.e. {@code ^http://example\.com/.*}) in a trie</li>
+ *     <li>host suffixes (i.e. {@code ^http://[^/]+\.example\.com.*}) in a trie of the
+ *     suffixes that is walked from each {@code .} in the host</li>
+ *     <li>hosts (i.e. {@code host:example.com}) in a hash set that is looked up with the
+ *     host and each of its parent domains, which are only created by {@code host:} lines
+ *     of an allowlist</li>
+ *     <li>every other pattern in a {@link RegexPredicate} that uses the same
+ *     {@link RegexEngine} and {@link AdaptiveRuleOrder}</li>
+ * </ul>
+ *
+ * Any other {@link Predicate} is evaluated last. The patterns are copied when they are
+ * added, so changing the {@link RegexPredicate} afterwards does not change this rule set.
+ * A {@link RegexPredicate} that is profiling is evaluated as a whole, so that every one of
+ * its patterns is profiled.
+ *
+ * @see RegexPredicate#setProfiling(boolean)
+ */
+public class AllowRuleSet implements Predicate<String> {
+	private static final String HTTP = "http://";
+
+	private static final String ESCAPED_HTTP = "http\\://";
+
+	private final Set<String> exact = new HashSet<>();
+
+	private final AllowTrie prefixes = new AllowTrie();
+
+	private final AllowTrie hostSuffixes = new AllowTrie();
+
+	private final AllowTrie optionalHostSuffixes = new AllowTrie();
+
+	private final Set<String> hosts = new HashSet<>();
+
+	private final List<Pattern> literalPatterns = new ArrayList<>();
+
+	private final List<Predicate<String>> regexes = new ArrayList<>();
+
+	private final List<Predicate<String>> predicates = new ArrayList<>();
+
+	private final List<Predicate<String>> sources = new ArrayList<>();
+
+	/**
+	 * Adds the rules of an allow {@link Predicate}
+	 * @param allow the rule to add
+	 */
+	public void add(Predicate<String> allow) {
+		if (allow == null) {
+			throw new IllegalArgumentException("allow cannot be null");
+		}
+		if (allow instanceof AllowRuleSet) {
+			((AllowRuleSet) allow).sources.forEach(this::add);
+			return;
+		}
+		this.sources.add(allow);
+		if (allow instanceof RegexPredicate && !((RegexPredicate) allow).isProfiling()) {
+			addPatterns((RegexPredicate) allow);
+		}
+		else {
+			this.predicates.add(allow);
+		}
+	}
+
+	private void addPatterns(RegexPredicate allow) {
+		List<Pattern> residual = new ArrayList<>();
+		for (AllowlistRule rule : allow.getRules()) {
+			Pattern pattern = rule.getPattern();
+			switch (rule.getKind()) {
+				case EXACT:
+					this.exact.add(rule.getLiteral());
+					break;
+				case PREFIX:
+					this.prefixes.addPrefix(rule.getLiteral());
+					this.literalPatterns.add(pattern);
+					break;
+				case HOST_SUFFIX:
+					AllowTrie suffixes = rule.isHostRequired() ? this.hostSuffixes : this.optionalHostSuffixes;
+					suffixes.addPrefix("." + rule.getLiteral());
+					this.literalPatterns.add(pattern);
+					break;
+				case HOST:
+					this.hosts.add(rule.getLiteral());
+					this.literalPatterns.add(pattern);
+					break;
+				default:
+					residual.add(pattern);
+			}
+		}
+		if (!residual.isEmpty()) {
+			this.regexes.add(allow.withPatterns(residual));
+		}
+	}
+
+	@Override
+	public boolean test(String url) {
+		if (this.exact.contains(url)) {
+			return true;
+		}
+		if (hasLineTerminator(url)) {
+			// .* does not match line terminators, which never occur in URLs that are found
+			if (matchesAny(this.literalPatterns, url)) {
+				return true;
+			}
+		}
+		else if (this.prefixes.startsWithPrefix(url, 0) || hasHostSuffix(url) || hasHost(url)) {
+			return true;
+		}
+		for (Predicate<String> regex : this.regexes) {
+			if (regex.test(url)) {
+				return true;
+			}
+		}
+		for (Predicate<String> predicate : this.predicates) {
+			if (predicate.test(url)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean hasHostSuffix(String url) {
+		if (!url.startsWith(HTTP)) {
+			return false;
+		}
+		for (int i = HTTP.length(); i < url.length(); i++) {
+			char c = url.charAt(i);
+			if (c == '/') {
+				return false;
+			}
+			if (c == '.' && (this.optionalHostSuffixes.startsWithPrefix(url, i)
+					|| (i > HTTP.length() && this.hostSuffixes.startsWithPrefix(url, i)))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean hasHost(String url) {
+		if (this.hosts.isEmpty()) {
+			return false;
+		}
+		int start = url.startsWith(HTTP) ? HTTP.length() :
+				url.startsWith(ESCAPED_HTTP) ? ESCAPED_HTTP.length() : -1;
+		if (start == -1) {
+			return false;
+		}
+		String host = url.substring(start, AllowlistSyntax.hostEnd(url, start));
+		if (this.hosts.contains(host)) {
+			return true;
+		}
+		for (int i = host.indexOf('.'); i >= 0; i = host.indexOf('.', i + 1)) {
+			if (this.hosts.contains(host.substring(i + 1))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean matchesAny(List<Pattern> patterns, String url) {
+		for (Pattern pattern : patterns) {
+			if (pattern.matcher(url).matches()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean hasLineTerminator(String url) {
+		for (int i = 0; i < url.length(); i++) {
+			char c = url.charAt(i);
+			if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.spring.nohttp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * A trie of the allowlist patterns that are literal prefixes (i.e.
+ * {@code ^http://www\.w3\.org/2001/XMLSchema.*}) or literal URLs (i.e.
+ * {@code ^http://example\.com$}), so that {@link HttpUrlTokenizer} can determine if a URL
+ * is allowed while it scans the URL.
+ */
+class AllowTrie {
+	private final Node root = new Node();
+
+	private final List<Pattern> residual = new ArrayList<>();
+
+	/**
+	 * Adds the patterns. Patterns that are not a literal prefix or a literal URL are not
+	 * added to the trie and are available from {@link #getResidual()}.
+	 * @param patterns the patterns to add
+	 */
+	void addAll(List<Pattern> patterns) {
+		for (Pattern pattern : patterns) {
+			if (!add(pattern)) {
+				this.residual.add(pattern);
+			}
+		}
+	}
+
+	/**
+	 * The patterns that could not be added to the trie
+	 * @return the patterns that must be tested with a regular expression
+	 */
+	List<Pattern> getResidual() {
+		return this.residual;
+	}
+
+	/**
+	 * Determines if the text is allowed by a pattern in the trie
+	 * @param url the text to test
+	 * @return true if it is allowed
+	 */
+	boolean allows(CharSequence url) {
+		Cursor cursor = cursor();
+		for (int i = 0; i < url.length(); i++) {
+			cursor.next(url.charAt(i), i + 1);
+		}
+		return cursor.allowsPrefix(url.length()) || cursor.isExact();
+	}
+
+	Cursor cursor() {
+		return new Cursor();
+	}
+
+	private boolean add(Pattern pattern) {
+		if (pattern.flags() != 0) {
+			return false;
+		}
+		String regex = pattern.pattern();
+		if (!regex.startsWith("^")) {
+			return false;
+		}
+		StringBuilder literal = new StringBuilder();
+		boolean prefix = false;
+		int i = 1;
+		while (i < regex.length()) {
+			char c = regex.charAt(i);
+			if (c == '\\' && i + 1 < regex.length() && !Character.isLetterOrDigit(regex.charAt(i + 1))) {
+				literal.append(regex.charAt(i + 1));
+				i += 2;
+			}
+			else if (c == '.' && i + 2 == regex.length() && regex.charAt(i + 1) == '*') {
+				prefix = true;
+				i += 2;
+			}
+			else if (c == '$' && i + 1 == regex.length()) {
+				i++;
+			}
+			else if ("\\[](){}.*+?^$|".indexOf(c) != -1) {
+				return false;
+			}
+			else {
+				literal.append(c);
+				i++;
+			}
+		}
+		Node node = add(literal);
+		if (prefix) {
+			node.prefix = true;
+		}
+		else {
+			node.exact = true;
+		}
+		return true;
+	}
+
+	/**
+	 * Adds a literal prefix
+	 * @param prefix the text that allowed text starts with
+	 */
+	void addPrefix(CharSequence prefix) {
+		add(prefix).prefix = true;
+	}
+
+	/**
+	 * Determines if the text starts with a prefix of the trie at the provided index
+	 * @param text the text to test
+	 * @param from the index to start at
+	 * @return true if a prefix was found
+	 */
+	boolean startsWithPrefix(CharSequence text, int from) {
+		Node node = this.root;
+		for (int i = from; !node.prefix; i++) {
+			if (i == text.length()) {
+				return false;
+			}
+			node = node.get(text.charAt(i));
+			if (node == null) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private Node add(CharSequence literal) {
+		Node node = this.root;
+		for (int l = 0; l < literal.length(); l++) {
+			node = node.getOrCreate(literal.charAt(l));
+		}
+		return node;
+	}
+
+	/**
+	 * Walks the trie one character at a time
+	 */
+	class Cursor {
+		private Node node = AllowTrie.this.root;
+
+		private int prefixEnd = AllowTrie.this.root.prefix ? 0 : -1;
+
+		/**
+		 * Moves to the next character
+		 * @param c the character
+		 * @param length the number of characters that have been walked including this one
+		 */
+		void next(char c, int length) {
+			if (this.node == null) {
+				return;
+			}
+			this.node = this.node.get(c);
+			if (this.node != null && this.node.prefix && this.prefixEnd == -1) {
+				this.prefixEnd = length;
+			}
+		}
+
+		/**
+		 * Determines if text of the provided length is allowed by a prefix
+		 * @param length the length of the text, which must not be greater than the number
+		 * of characters that have been walked
+		 * @return true if it is allowed
+		 */
+		boolean allowsPrefix(int length) {
+			return this.prefixEnd != -1 && this.prefixEnd <= length;
+		}
+
+		/**
+		 * Determines if the characters that have been walked are allowed exactly
+		 * @return true if it is allowed
+		 */
+		boolean isExact() {
+			return this.node != null && this.node.exact;
+		}
+	}
+
+	private static class Node {
+		private char[] keys = new char[0];
+
+		private Node[] children = new Node[0];
+
+		private boolean prefix;
+
+		private boolean exact;
+
+		Node get(char c) {
+			for (int i = 0; i < this.keys.length; i++) {
+				if (this.keys[i] == c) {
+					return this.children[i];
+				}
+			}
+			return null;
+		}
+
+		Node getOrCreate(char c) {
+			Node child = get(c);
+			if (child == null) {
+				child = new Node();
+				this.keys = Arrays.copyOf(this.keys, this.keys.length + 1);
+				this.children = Arrays.copyOf(this.children, this.children.length + 1);
+				this.keys[this.keys.length - 1] = c;
+				this.children[this.children.length - 1] = child;
+			}
+			return child;
+		}
+	}
+}
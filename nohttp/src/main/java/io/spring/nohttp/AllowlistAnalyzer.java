@@ -0,0 +1,264 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.spring.nohttp;
+
+import io.spring.nohttp.AllowlistRule.Kind;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Classifies the lines of allowlists in the format of
+ * {@link RegexPredicate#createAllowlistFromPatterns(InputStream)} and finds the lines that
+ * can be removed without changing what is allowed.
+ *
+ * <p>
+ * A line is redundant if it is a duplicate of another line, if it is a URL that another
+ * line allows, or if it is a prefix, host suffix or host that is within another prefix,
+ * host suffix or host. Other regular expressions are only redundant if they are duplicates. Of
+ * two duplicates, the first is kept.
+ * </p>
+ */
+public class AllowlistAnalyzer {
+	private static final String HTTP = "http://";
+
+	private static final String ESCAPED_HTTP = "http\\://";
+
+	private static final String HOST_REQUIRED = "http://[^/]+\\.";
+
+	private static final String HOST_OPTIONAL = "http://[^/]*\\.";
+
+	private static final String META_CHARACTERS = "\\[](){}.*+?^$|";
+
+	private final List<AllowlistRule> rules = new ArrayList<>();
+
+	/**
+	 * Adds the lines of an allowlist
+	 * @param source the name of the allowlist (i.e. the file name)
+	 * @param resource the allowlist to read, which is closed
+	 */
+	public void load(String source, InputStream resource) {
+		if (source == null) {
+			throw new IllegalArgumentException("source cannot be null");
+		}
+		if (resource == null) {
+			throw new IllegalArgumentException("resource cannot be null");
+		}
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource, StandardCharsets.UTF_8))) {
+			String line;
+			int lineNumber = 0;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("//")) {
+					continue;
+				}
+				this.rules.add(AllowlistSyntax.createRule(source, lineNumber, line));
+			}
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Finds the rules that are redundant
+	 * @return all of the rules in the order they were loaded. The rules that can be removed
+	 * have a {@link AllowlistRule#getRedundantTo()}
+	 */
+	public List<AllowlistRule> analyze() {
+		this.rules.forEach(r -> r.setRedundantTo(null));
+		// a rule is only removed if a rule that is kept (so far) allows all of its URLs,
+		// so removing every redundant rule never changes what is allowed
+		for (int i = this.rules.size() - 1; i >= 0; i--) {
+			AllowlistRule rule = this.rules.get(i);
+			for (AllowlistRule other : this.rules) {
+				if (other != rule && other.getRedundantTo() == null && covers(other, rule)) {
+					rule.setRedundantTo(other);
+					break;
+				}
+			}
+		}
+		for (AllowlistRule rule : this.rules) {
+			AllowlistRule kept = rule.getRedundantTo();
+			while (kept != null && kept.getRedundantTo() != null) {
+				kept = kept.getRedundantTo();
+			}
+			rule.setRedundantTo(kept);
+		}
+		return Collections.unmodifiableList(new ArrayList<>(this.rules));
+	}
+
+	/**
+	 * Determines if every URL allowed by rule is allowed by other
+	 */
+	private static boolean covers(AllowlistRule other, AllowlistRule rule) {
+		switch (rule.getKind()) {
+			case EXACT:
+				return other.getPattern().matcher(rule.getLiteral()).matches();
+			case PREFIX:
+				if (other.getKind() == Kind.PREFIX) {
+					return rule.getLiteral().startsWith(other.getLiteral());
+				}
+				if (other.getKind() == Kind.HOST) {
+					return hostCoversPrefix(other, rule.getLiteral());
+				}
+				return other.getKind() == Kind.HOST_SUFFIX && hostSuffixCoversPrefix(other, rule.getLiteral());
+			case HOST_SUFFIX:
+				if (other.getKind() == Kind.PREFIX) {
+					return HTTP.startsWith(other.getLiteral());
+				}
+				return other.getKind() == Kind.HOST_SUFFIX && hostSuffixCoversHostSuffix(other, rule);
+			case HOST:
+				if (other.getKind() == Kind.PREFIX) {
+					return HTTP.startsWith(other.getLiteral()) && ESCAPED_HTTP.startsWith(other.getLiteral());
+				}
+				return other.getKind() == Kind.HOST && isWithinHost(rule.getLiteral(), other.getLiteral());
+			default:
+				return other.getKind() == Kind.REGEX && other.getPattern().pattern().equals(rule.getPattern().pattern());
+		}
+	}
+
+	private static boolean hostCoversPrefix(AllowlistRule host, String prefix) {
+		String text;
+		if (prefix.startsWith(HTTP)) {
+			text = prefix.substring(HTTP.length());
+		}
+		else if (prefix.startsWith(ESCAPED_HTTP)) {
+			text = prefix.substring(ESCAPED_HTTP.length());
+		}
+		else {
+			return false;
+		}
+		int end = AllowlistSyntax.hostEnd(text, 0);
+		// the prefix must contain the whole host, so that no longer host can follow it
+		return end < text.length() && isWithinHost(text.substring(0, end), host.getLiteral());
+	}
+
+	private static boolean isWithinHost(String host, String domain) {
+		return host.equals(domain) || host.endsWith("." + domain);
+	}
+
+	private static boolean hostSuffixCoversPrefix(AllowlistRule hostSuffix, String prefix) {
+		if (!prefix.startsWith(HTTP)) {
+			return false;
+		}
+		return coversHost(hostSuffix, prefix.substring(HTTP.length()), false);
+	}
+
+	private static boolean hostSuffixCoversHostSuffix(AllowlistRule other, AllowlistRule rule) {
+		return coversHost(other, "." + rule.getLiteral(), rule.isHostRequired());
+	}
+
+	/**
+	 * Determines if every URL that starts with http:// and the text is allowed by the host
+	 * suffix
+	 * @param hostSuffix the host suffix rule
+	 * @param text the text after http://
+	 * @param textHasHost true if the text is preceded by at least one character that is
+	 * part of the host
+	 */
+	private static boolean coversHost(AllowlistRule hostSuffix, String text, boolean textHasHost) {
+		String suffix = "." + hostSuffix.getLiteral();
+		int slash = text.indexOf('/');
+		for (int i = text.indexOf(suffix); i >= 0; i = text.indexOf(suffix, i + 1)) {
+			if (slash >= 0 && slash < i) {
+				return false;
+			}
+			if (i > 0 || textHasHost || !hostSuffix.isHostRequired()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Classifies a regular expression by its shape
+	 * @param source the name of the allowlist
+	 * @param lineNumber the line number of the pattern within the allowlist
+	 * @param line the text of the line the pattern was created from
+	 * @param pattern the pattern to classify
+	 * @return the rule
+	 */
+	static AllowlistRule createRule(String source, int lineNumber, String line, Pattern pattern) {
+		if (pattern.flags() != 0) {
+			return new AllowlistRule(source, lineNumber, line, pattern, Kind.REGEX, null, false);
+		}
+		String regex = pattern.pattern();
+		String body = regex.startsWith("^") ? regex.substring(1) : regex;
+		if (body.endsWith("$") && !isEscaped(body, body.length() - 1)) {
+			body = body.substring(0, body.length() - 1);
+		}
+		Kind kind = Kind.EXACT;
+		if (body.endsWith(".*") && !isEscaped(body, body.length() - 2)) {
+			body = body.substring(0, body.length() - 2);
+			kind = Kind.PREFIX;
+		}
+		boolean hostRequired = false;
+		if (kind == Kind.PREFIX && (body.startsWith(HOST_REQUIRED) || body.startsWith(HOST_OPTIONAL))) {
+			hostRequired = body.startsWith(HOST_REQUIRED);
+			body = body.substring(HOST_REQUIRED.length());
+			kind = Kind.HOST_SUFFIX;
+		}
+		String literal = literal(body);
+		if (literal == null) {
+			return new AllowlistRule(source, lineNumber, line, pattern, Kind.REGEX, null, false);
+		}
+		return new AllowlistRule(source, lineNumber, line, pattern, kind, literal, hostRequired);
+	}
+
+	/**
+	 * The text that the regular expression matches if it only contains literal characters
+	 * @return the text or {@code null} if the regular expression is not a literal
+	 */
+	private static String literal(String regex) {
+		StringBuilder literal = new StringBuilder();
+		for (int i = 0; i < regex.length(); i++) {
+			char c = regex.charAt(i);
+			if (c == '\\') {
+				if (i + 1 == regex.length() || Character.isLetterOrDigit(regex.charAt(i + 1))) {
+					return null;
+				}
+				literal.append(regex.charAt(++i));
+			}
+			else if (META_CHARACTERS.indexOf(c) != -1) {
+				return null;
+			}
+			else {
+				literal.append(c);
+			}
+		}
+		return literal.toString();
+	}
+
+	private static boolean isEscaped(String regex, int index) {
+		int backslashes = 0;
+		for (int i = index - 1; i >= 0 && regex.charAt(i) == '\\'; i--) {
+			backslashes++;
+		}
+		return backslashes % 2 == 1;
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.spring.nohttp;
+
+import java.util.regex.Pattern;
+
+/**
+ * A line of an allowlist that was loaded by {@link AllowlistAnalyzer}
+ */
+public class AllowlistRule {
+	private final String source;
+
+	private final int lineNumber;
+
+	private final String line;
+
+	private final Pattern pattern;
+
+	private final Kind kind;
+
+	private final String literal;
+
+	private final boolean hostRequired;
+
+	private AllowlistRule redundantTo;
+
+	AllowlistRule(String source, int lineNumber, String line, Pattern pattern, Kind kind, String literal, boolean hostRequired) {
+		this.source = source;
+		this.lineNumber = lineNumber;
+		this.line = line;
+		this.pattern = pattern;
+		this.kind = kind;
+		this.literal = literal;
+		this.hostRequired = hostRequired;
+	}
+
+	/**
+	 * The name of the allowlist that contains the rule
+	 * @return the name of the allowlist
+	 */
+	public String getSource() {
+		return this.source;
+	}
+
+	/**
+	 * The line number of the rule within its allowlist, starting at 1
+	 * @return the line number
+	 */
+	public int getLineNumber() {
+		return this.lineNumber;
+	}
+
+	/**
+	 * The trimmed text of the rule as it was written in the allowlist (i.e.
+	 * {@code host:example.com} rather than the {@link Pattern} it is compiled to)
+	 * @return the text of the line
+	 */
+	public String getLine() {
+		return this.line;
+	}
+
+	public Pattern getPattern() {
+		return this.pattern;
+	}
+
+	public Kind getKind() {
+		return this.kind;
+	}
+
+	/**
+	 * The URL for {@link Kind#EXACT}, the URL prefix for {@link Kind#PREFIX}, the domain
+	 * suffix for {@link Kind#HOST_SUFFIX} or the host for {@link Kind#HOST}
+	 * @return the literal or {@code null} for {@link Kind#REGEX}
+	 */
+	String getLiteral() {
+		return this.literal;
+	}
+
+	/**
+	 * True if {@link Kind#HOST_SUFFIX} requires at least one character before the suffix
+	 * (i.e. {@code [^/]+} rather than {@code [^/]*})
+	 */
+	boolean isHostRequired() {
+		return this.hostRequired;
+	}
+
+	/**
+	 * The rule that allows every URL this rule allows, so this rule can be removed
+	 * @return the rule that makes this rule redundant or {@code null} if the rule is needed
+	 */
+	public AllowlistRule getRedundantTo() {
+		return this.redundantTo;
+	}
+
+	void setRedundantTo(AllowlistRule redundantTo) {
+		this.redundantTo = redundantTo;
+	}
+
+	/**
+	 * True if the rule allows exactly the same URLs as {@link #getRedundantTo()} because it
+	 * is the same pattern (i.e. {@code ^http://a\.test/.*} and {@code http://a\.test/.*})
+	 * @return true if the rule is a duplicate
+	 */
+	public boolean isDuplicate() {
+		return this.redundantTo != null && this.redundantTo.kind == this.kind
+				&& key().equals(this.redundantTo.key());
+	}
+
+	String key() {
+		return this.literal == null ? this.pattern.pattern() : this.literal;
+	}
+
+	@Override
+	public String toString() {
+		return this.source + ":" + this.lineNumber + " " + this.line;
+	}
+
+	/**
+	 * The kind of a rule, which determines how cheaply it can be evaluated
+	 */
+	public enum Kind {
+		/**
+		 * A single URL (i.e. {@code ^http://example\.com$})
+		 */
+		EXACT,
+
+		/**
+		 * All URLs that start with a prefix (i.e. {@code ^http://example\.com/.*})
+		 */
+		PREFIX,
+
+		/**
+		 * All URLs on the subdomains of a domain (i.e. {@code ^http://[^/]+\.example\.com.*})
+		 */
+		HOST_SUFFIX,
+
+		/**
+		 * All URLs on a host and its subdomains, which is written as
+		 * {@code host:example.com} in an allowlist
+		 */
+		HOST,
+
+		/**
+		 * Any other regular expression
+		 */
+		REGEX
+	}
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.spring.nohttp;
+
+import io.spring.nohttp.AllowlistRule.Kind;
+
+import java.util.regex.Pattern;
+
+/**
+ * Converts a line of an allowlist into an {@link AllowlistRule}. A line is a regular
+ * expression unless it starts with one of the types:
+ *
+ * <ul>
+ *     <li>{@code exact:} a URL</li>
+ *     <li>{@code prefix:} the start of URLs</li>
+ *     <li>{@code host:} a host, which allows every URL on the host and its subdomains</li>
+ *     <li>{@code glob:} a URL where {@code *} matches anything except {@code /},
+ *     {@code **} matches anything and {@code ?} matches a character except {@code /}</li>
+ *     <li>{@code regex:} a regular expression</li>
+ * </ul>
+ *
+ * The kind and literal of a typed line are known from its type, which allows
+ * {@link AllowRuleSet} to evaluate it without a regular expression. A glob is only
+ * evaluated without a regular expression if it has no wildcards other than a trailing
+ * {@code **} and an optional leading {@code http://*.} (i.e. a prefix or a host suffix).
+ * The {@link Pattern} of a rule is still used for URLs that contain a line terminator.
+ */
+final class AllowlistSyntax {
+	private static final String HTTP = "http://";
+
+	private static final String ANY_SUBDOMAIN = HTTP + "*.";
+
+	private static final String HOST_START = "^http\\\\?://([^/:?#]*\\.)?";
+
+	private static final String HOST_END = "([/:?#].*)?$";
+
+	private static final String META_CHARACTERS = "\\[](){}.*+?^$|";
+
+	private AllowlistSyntax() {
+	}
+
+	/**
+	 * Creates the {@link AllowlistRule} for a line that is trimmed and is not a comment
+	 * @param source the name of the allowlist
+	 * @param lineNumber the line number within the allowlist
+	 * @param line the line
+	 * @return the {@link AllowlistRule}
+	 * @throws IllegalArgumentException if a typed line is invalid
+	 * @throws java.util.regex.PatternSyntaxException if a regular expression is invalid
+	 */
+	static AllowlistRule createRule(String source, int lineNumber, String line) {
+		if (line.startsWith("exact:")) {
+			String url = value(line, "exact:");
+			Pattern pattern = Pattern.compile("^" + escape(url) + "$");
+			return new AllowlistRule(source, lineNumber, line, pattern, Kind.EXACT, url, false);
+		}
+		if (line.startsWith("prefix:")) {
+			String prefix = value(line, "prefix:");
+			Pattern pattern = Pattern.compile("^" + escape(prefix) + ".*");
+			return new AllowlistRule(source, lineNumber, line, pattern, Kind.PREFIX, prefix, false);
+		}
+		if (line.startsWith("host:")) {
+			String host = value(line, "host:");
+			if (host.startsWith(".") || host.chars().anyMatch(c -> isHostDelimiter(c) || Character.isWhitespace(c))) {
+				throw new IllegalArgumentException("host cannot start with '.' or contain '/', ':', '?', '#' or whitespace but was '" + line + "'");
+			}
+			Pattern pattern = Pattern.compile(HOST_START + escape(host) + HOST_END);
+			return new AllowlistRule(source, lineNumber, line, pattern, Kind.HOST, host, false);
+		}
+		if (line.startsWith("glob:")) {
+			return createGlobRule(source, lineNumber, line);
+		}
+		String regex = line.startsWith("regex:") ? value(line, "regex:") : line;
+		return AllowlistAnalyzer.createRule(source, lineNumber, line, Pattern.compile(regex));
+	}
+
+	private static AllowlistRule createGlobRule(String source, int lineNumber, String line) {
+		String glob = value(line, "glob:");
+		Pattern pattern = Pattern.compile("^" + globToRegex(glob) + "$");
+		Kind kind = Kind.EXACT;
+		String literal = glob;
+		if (literal.endsWith("**")) {
+			literal = literal.substring(0, literal.length() - 2);
+			kind = Kind.PREFIX;
+		}
+		if (kind == Kind.PREFIX && literal.startsWith(ANY_SUBDOMAIN)) {
+			literal = literal.substring(ANY_SUBDOMAIN.length());
+			kind = Kind.HOST_SUFFIX;
+		}
+		if (literal.isEmpty() || literal.indexOf('*') != -1 || literal.indexOf('?') != -1) {
+			return new AllowlistRule(source, lineNumber, line, pattern, Kind.REGEX, null, false);
+		}
+		return new AllowlistRule(source, lineNumber, line, pattern, kind, literal, false);
+	}
+
+	/**
+	 * Finds the end of the host of a URL
+	 * @param url the URL
+	 * @param start the index of the first character of the host
+	 * @return the index of the first {@code /}, {@code :}, {@code ?} or {@code #} after the
+	 * start, or the length of the URL if there is none
+	 */
+	static int hostEnd(CharSequence url, int start) {
+		for (int i = start; i < url.length(); i++) {
+			if (isHostDelimiter(url.charAt(i))) {
+				return i;
+			}
+		}
+		return url.length();
+	}
+
+	private static boolean isHostDelimiter(int c) {
+		return c == '/' || c == ':' || c == '?' || c == '#';
+	}
+
+	private static String value(String line, String type) {
+		String value = line.substring(type.length()).trim();
+		if (value.isEmpty()) {
+			throw new IllegalArgumentException("'" + line + "' must contain a value after " + type);
+		}
+		return value;
+	}
+
+	private static String globToRegex(String glob) {
+		StringBuilder regex = new StringBuilder();
+		for (int i = 0; i < glob.length(); i++) {
+			char c = glob.charAt(i);
+			if (c == '*' && i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+				regex.append(".*");
+				i++;
+			}
+			else if (c == '*') {
+				regex.append("[^/]*");
+			}
+			else if (c == '?') {
+				regex.append("[^/]");
+			}
+			else {
+				escape(c, regex);
+			}
+		}
+		return regex.toString();
+	}
+
+	private static String escape(String literal) {
+		StringBuilder regex = new StringBuilder();
+		for (int i = 0; i < literal.length(); i++) {
+			escape(literal.charAt(i), regex);
+		}
+		return regex.toString();
+	}
+
+	private static void escape(char c, StringBuilder regex) {
+		if (META_CHARACTERS.indexOf(c) != -1) {
+			regex.append('\\');
+		}
+		regex.append(c);
+	}
+}
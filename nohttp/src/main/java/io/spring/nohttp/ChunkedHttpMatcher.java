@@ -0,0 +1,127 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.spring.nohttp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Finds http:// URLs within large text by matching chunks of the text concurrently with
+ * another {@link HttpMatcher}, so that a single large file (e.g. a generated SQL dump)
+ * does not keep a single core busy.
+ *
+ * <p>
+ * Each chunk is matched together with {@link #setMaxUrlLength(int)} characters of the
+ * text before and after it, so that URLs that cross the boundary between chunks are
+ * found in full. A chunk only reports the URLs that start within it, which removes the
+ * duplicates found in the overlaps, and the results are given the index within the whole
+ * text. The results are the same as the {@link HttpMatcher} as long as no URL (or run of
+ * characters that are allowed in a URL) is longer than {@link #setMaxUrlLength(int)}.
+ * Text that is not longer than {@link #setChunkSize(int)} is matched directly.
+ * </p>
+ */
+public class ChunkedHttpMatcher implements HttpMatcher {
+	private final HttpMatcher matcher;
+
+	private int chunkSize = 8 * 1024 * 1024;
+
+	private int maxUrlLength = 8 * 1024;
+
+	/**
+	 * Creates a new instance
+	 * @param matcher the {@link HttpMatcher} used to match each chunk
+	 */
+	public ChunkedHttpMatcher(HttpMatcher matcher) {
+		if (matcher == null) {
+			throw new IllegalArgumentException("matcher cannot be null");
+		}
+		this.matcher = matcher;
+	}
+
+	/**
+	 * Sets the number of characters in each chunk. Text that is not longer than the chunk
+	 * size is not split. The default is 8388608 (8 Mi characters).
+	 * @param chunkSize the number of characters in each chunk
+	 */
+	public void setChunkSize(int chunkSize) {
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("chunkSize must be at least 1");
+		}
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Sets the number of characters that each chunk overlaps the text before and after
+	 * it, which must be at least the length of the longest URL. The default is 8192.
+	 * @param maxUrlLength the length of the longest URL
+	 */
+	public void setMaxUrlLength(int maxUrlLength) {
+		if (maxUrlLength < 1) {
+			throw new IllegalArgumentException("maxUrlLength must be at least 1");
+		}
+		this.maxUrlLength = maxUrlLength;
+	}
+
+	@Override
+	public List<HttpMatchResult> findHttp(String text) {
+		if (text.length() <= this.chunkSize) {
+			return this.matcher.findHttp(text);
+		}
+		int chunks = (text.length() - 1) / this.chunkSize + 1;
+		return IntStream.range(0, chunks)
+				.parallel()
+				.mapToObj(chunk -> findHttpInChunk(text, chunk))
+				.flatMap(List::stream)
+				.collect(Collectors.toList());
+	}
+
+	@Override
+	public boolean containsDisallowedHttp(CharSequence text) {
+		if (text.length() <= this.chunkSize) {
+			return this.matcher.containsDisallowedHttp(text);
+		}
+		String string = text.toString();
+		int chunks = (string.length() - 1) / this.chunkSize + 1;
+		return IntStream.range(0, chunks)
+				.parallel()
+				.anyMatch(chunk -> !findHttpInChunk(string, chunk).isEmpty());
+	}
+
+	/**
+	 * Finds the URLs that start within a chunk
+	 * @param text the whole text
+	 * @param chunk the index of the chunk
+	 * @return the URLs that start within the chunk with their index within the whole text
+	 */
+	private List<HttpMatchResult> findHttpInChunk(String text, int chunk) {
+		int start = chunk * this.chunkSize;
+		int end = (int) Math.min((long) start + this.chunkSize, text.length());
+		int windowStart = Math.max(0, start - this.maxUrlLength);
+		int windowEnd = (int) Math.min((long) end + this.maxUrlLength, text.length());
+		List<HttpMatchResult> results = new ArrayList<>();
+		for (HttpMatchResult result : this.matcher.findHttp(text.substring(windowStart, windowEnd))) {
+			int absoluteStart = windowStart + result.getStart();
+			if (absoluteStart >= start && absoluteStart < end) {
+				results.add(new HttpMatchResult(result.getHttp(), absoluteStart));
+			}
+		}
+		return results;
+	}
+}
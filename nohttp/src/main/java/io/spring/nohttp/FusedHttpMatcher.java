@@ -0,0 +1,176 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.spring.nohttp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * A {@link RegexHttpMatcher} that determines if a URL is allowed while it finds the URL.
+ * The allowlist patterns of {@link RegexPredicate}s that are a literal prefix (i.e.
+ * {@code ^http://www\.w3\.org/2001/XMLSchema.*}) or a literal URL are compiled into a
+ * trie that is walked as each URL is scanned, so the URLs they allow (typically XML
+ * namespaces, which are most of the http URLs in a project) are skipped without
+ * creating a {@link String}. Only the URLs that are not skipped are tested against the
+ * remaining patterns and {@link Predicate}s.
+ *
+ * <p>
+ * The results are the same as {@link RegexHttpMatcher}, which can be verified with
+ * {@link #setVerifyEquivalence(boolean)}. If {@link #setPattern(Pattern)} is used, the
+ * URLs are found with the pattern and then tested with the trie.
+ * </p>
+ */
+public class FusedHttpMatcher extends RegexHttpMatcher {
+	private final AllowTrie trie = new AllowTrie();
+
+	private final List<Predicate<String>> residual = new ArrayList<>();
+
+	private final RegexHttpMatcher reference;
+
+	private boolean verifyEquivalence;
+
+	/**
+	 * Creates a new instance with the provided allow rule
+	 * @param allow the rule to be used determine if an HTTP URL is allowed. The patterns
+	 * of a {@link RegexPredicate} are compiled into a trie where possible.
+	 */
+	public FusedHttpMatcher(Predicate<String> allow) {
+		super(url -> false);
+		this.reference = new RegexHttpMatcher(url -> false);
+		this.reference.setPattern(DEFAULT_PATTERN);
+		super.addHttpAllow(this::isResidualAllowed);
+		addHttpAllow(allow);
+	}
+
+	/**
+	 * If true, the results are also found with a {@link RegexHttpMatcher} and an
+	 * {@link IllegalStateException} is thrown if they differ. This is intended to verify
+	 * the matcher against a project before relying on it. The default is false.
+	 * @param verifyEquivalence true if the results should be verified
+	 */
+	public void setVerifyEquivalence(boolean verifyEquivalence) {
+		this.verifyEquivalence = verifyEquivalence;
+	}
+
+	@Override
+	public void addHttpAllow(Predicate<String> allow) {
+		if (allow == null) {
+			throw new IllegalArgumentException("allow cannot be null");
+		}
+		if (allow instanceof RegexPredicate) {
+			List<Pattern> patterns = ((RegexPredicate) allow).getPatterns();
+			int residualPatterns = this.trie.getResidual().size();
+			this.trie.addAll(patterns);
+			List<Pattern> added = this.trie.getResidual().subList(residualPatterns, this.trie.getResidual().size());
+			if (!added.isEmpty()) {
+				this.residual.add(((RegexPredicate) allow).withPatterns(new ArrayList<>(added)));
+			}
+		}
+		else {
+			this.residual.add(allow);
+		}
+		this.reference.addHttpAllow(allow);
+	}
+
+	@Override
+	public void setPattern(Pattern pattern) {
+		super.setPattern(pattern);
+		this.reference.setPattern(pattern);
+	}
+
+	@Override
+	public void setHttpReplacer(Function<String, String> httpReplacer) {
+		super.setHttpReplacer(httpReplacer);
+		this.reference.setHttpReplacer(httpReplacer);
+	}
+
+	@Override
+	public List<HttpMatchResult> findHttp(String text) {
+		List<HttpMatchResult> results = super.findHttp(text);
+		if (this.verifyEquivalence) {
+			verify(results, this.reference.findHttp(text), text);
+		}
+		return results;
+	}
+
+	@Override
+	public boolean containsDisallowedHttp(CharSequence text) {
+		boolean result = super.containsDisallowedHttp(text);
+		if (this.verifyEquivalence && result != this.reference.containsDisallowedHttp(text)) {
+			throw new IllegalStateException("FusedHttpMatcher determined " + result
+					+ " but RegexHttpMatcher determined " + !result + " in '" + text + "'");
+		}
+		return result;
+	}
+
+	@Override
+	public HttpReplaceResult replaceHttp(String text) {
+		HttpReplaceResult result = super.replaceHttp(text);
+		if (this.verifyEquivalence) {
+			HttpReplaceResult expected = this.reference.replaceHttp(text);
+			verify(result.getMatches(), expected.getMatches(), text);
+			if (!result.getResult().equals(expected.getResult())) {
+				throw new IllegalStateException("FusedHttpMatcher replaced text differently than RegexHttpMatcher in '" + text + "'");
+			}
+		}
+		return result;
+	}
+
+	@Override
+	UrlFinder createUrlFinder(CharSequence text) {
+		return isCustomPattern() ?
+				super.createUrlFinder(text) :
+				new HttpUrlTokenizer(text, this.trie);
+	}
+
+	/**
+	 * Tests the URLs that were not skipped by the tokenizer
+	 */
+	private boolean isResidualAllowed(String url) {
+		if (isCustomPattern() && this.trie.allows(url)) {
+			return true;
+		}
+		for (Predicate<String> allow : this.residual) {
+			if (allow.test(url)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void verify(List<HttpMatchResult> results, List<HttpMatchResult> expected, String text) {
+		boolean equal = results.size() == expected.size();
+		for (int i = 0; equal && i < results.size(); i++) {
+			equal = results.get(i).getStart() == expected.get(i).getStart()
+					&& results.get(i).getHttp().equals(expected.get(i).getHttp());
+		}
+		if (!equal) {
+			throw new IllegalStateException("FusedHttpMatcher found " + format(results)
+					+ " but RegexHttpMatcher found " + format(expected) + " in '" + text + "'");
+		}
+	}
+
+	private static String format(List<HttpMatchResult> results) {
+		List<String> formatted = new ArrayList<>();
+		results.forEach(r -> formatted.add(r.getHttp() + "@" + r.getStart()));
+		return formatted.toString();
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.spring.nohttp;
+
+import java.time.Duration;
+
+/**
+ * The latency and outcomes of the requests that {@link StatusProber} made to a single
+ * host.
+ */
+public class HostMetrics {
+	private final String host;
+
+	private final int requests;
+
+	private final int failures;
+
+	private final int skipped;
+
+	private final Duration totalLatency;
+
+	private final Duration maxLatency;
+
+	private final String skipReason;
+
+	HostMetrics(String host, int requests, int failures, int skipped, Duration totalLatency,
+			Duration maxLatency, String skipReason) {
+		this.host = host;
+		this.requests = requests;
+		this.failures = failures;
+		this.skipped = skipped;
+		this.totalLatency = totalLatency;
+		this.maxLatency = maxLatency;
+		this.skipReason = skipReason;
+	}
+
+	/**
+	 * The host (and port, if it is specified)
+	 * @return the host
+	 */
+	public String getHost() {
+		return this.host;
+	}
+
+	/**
+	 * The number of URLs that were looked up, including failures
+	 * @return the number of requests
+	 */
+	public int getRequests() {
+		return this.requests;
+	}
+
+	/**
+	 * The number of URLs that could not be looked up because the request failed (i.e. timed
+	 * out or could not connect)
+	 * @return the number of failures
+	 */
+	public int getFailures() {
+		return this.failures;
+	}
+
+	/**
+	 * The number of URLs that were not looked up because the host failed too many times
+	 * @return the number of skipped URLs
+	 */
+	public int getSkipped() {
+		return this.skipped;
+	}
+
+	/**
+	 * The average time it took to look up a URL, including redirects
+	 * @return the average latency
+	 */
+	public Duration getAverageLatency() {
+		return this.requests == 0 ? Duration.ZERO : this.totalLatency.dividedBy(this.requests);
+	}
+
+	/**
+	 * The longest time it took to look up a URL, including redirects
+	 * @return the maximum latency
+	 */
+	public Duration getMaxLatency() {
+		return this.maxLatency;
+	}
+
+	/**
+	 * Why the remaining URLs on the host were skipped
+	 * @return the reason or {@code null} if no URLs were skipped
+	 */
+	public String getSkipReason() {
+		return this.skipReason;
+	}
+
+	@Override
+	public String toString() {
+		return this.host + ": " + this.requests + " requests, " + this.failures + " failed, "
+				+ this.skipped + " skipped, average " + getAverageLatency().toMillis() + " ms, max "
+				+ this.maxLatency.toMillis() + " ms";
+	}
+}
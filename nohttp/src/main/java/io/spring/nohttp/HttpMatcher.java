@@ -30,4 +30,16 @@ public interface HttpMatcher {
 	 * @return the {@link HttpMatchResult}s that point to where the matches were found.
 	 */
 	List<HttpMatchResult> findHttp(String text);
+
+	/**
+	 * Determines if the text contains an http:// URL that {@link #findHttp(String)} would
+	 * find. Implementations stop at the first URL, so this is cheaper than
+	 * {@link #findHttp(String)} when only a yes or no answer is needed (i.e. to fail a
+	 * build).
+	 * @param text The text to find http:// URLs within
+	 * @return true if the text contains an http:// URL that is not allowed
+	 */
+	default boolean containsDisallowedHttp(CharSequence text) {
+		return !findHttp(text.toString()).isEmpty();
+	}
 }
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.spring.nohttp;
+
+/**
+ * Finds the same http URLs as the default pattern of {@link RegexHttpMatcher}
+ * ({@code \b(http\\?://[-a-zA-Z0-9+&@/%?=~_|!:,.;]*[-a-zA-Z0-9+&@/%=~_|])}) in a single
+ * forward pass. Rather than matching the longest run of URL characters and backtracking
+ * to the last character that can end a URL, it remembers the last such character while
+ * scanning the run.
+ */
+class HttpUrlTokenizer implements UrlFinder {
+	/**
+	 * The character can be within a URL
+	 */
+	private static final byte URL = 1;
+
+	/**
+	 * The character can be the last character of a URL
+	 */
+	private static final byte URL_END = 2;
+
+	private static final byte[] CHAR_CLASSES = new byte[128];
+
+	static {
+		for (char c = 'a'; c <= 'z'; c++) {
+			CHAR_CLASSES[c] = URL | URL_END;
+		}
+		for (char c = 'A'; c <= 'Z'; c++) {
+			CHAR_CLASSES[c] = URL | URL_END;
+		}
+		for (char c = '0'; c <= '9'; c++) {
+			CHAR_CLASSES[c] = URL | URL_END;
+		}
+		for (char c : "-+&@/%=~_|".toCharArray()) {
+			CHAR_CLASSES[c] = URL | URL_END;
+		}
+		for (char c : "?!:,.;".toCharArray()) {
+			CHAR_CLASSES[c] = URL;
+		}
+	}
+
+	private final CharSequence text;
+
+	private final AllowTrie allow;
+
+	private final int length;
+
+	private int from;
+
+	private int start = -1;
+
+	private int end = -1;
+
+	private boolean allowed;
+
+	HttpUrlTokenizer(CharSequence text) {
+		this(text, null);
+	}
+
+	/**
+	 * Creates an instance that skips the URLs that are allowed by the {@link AllowTrie},
+	 * which is determined while scanning the URL.
+	 */
+	HttpUrlTokenizer(CharSequence text, AllowTrie allow) {
+		this.text = text;
+		this.allow = allow;
+		this.length = text.length();
+	}
+
+	@Override
+	public boolean find() {
+		for (int i = this.from; i + 7 <= this.length; i++) {
+			if (this.text.charAt(i) != 'h' || !startsWithHttp(i) || isWordBefore(i)) {
+				continue;
+			}
+			int urlEnd = urlEnd(i);
+			if (urlEnd == -1) {
+				continue;
+			}
+			if (this.allowed) {
+				// continue after the allowed URL like Matcher.find()
+				i = urlEnd - 1;
+				continue;
+			}
+			this.start = i;
+			this.end = urlEnd;
+			this.from = urlEnd;
+			return true;
+		}
+		this.from = this.length;
+		return false;
+	}
+
+	@Override
+	public int start() {
+		return this.start;
+	}
+
+	@Override
+	public int end() {
+		return this.end;
+	}
+
+	private boolean startsWithHttp(int i) {
+		return this.text.charAt(i + 1) == 't' && this.text.charAt(i + 2) == 't' && this.text.charAt(i + 3) == 'p';
+	}
+
+	/**
+	 * Finds the end of the URL that starts with http
+	 * @param start the index of http
+	 * @return the index after the last character of the URL or -1 if there is no URL.
+	 * {@link #allowed} is set to true if the URL is allowed.
+	 */
+	private int urlEnd(int start) {
+		AllowTrie.Cursor cursor = this.allow == null ? null : this.allow.cursor();
+		int i = start + 4;
+		if (i < this.length && this.text.charAt(i) == '\\') {
+			i++;
+		}
+		if (i + 3 > this.length || this.text.charAt(i) != ':' || this.text.charAt(i + 1) != '/' || this.text.charAt(i + 2) != '/') {
+			return -1;
+		}
+		i += 3;
+		if (cursor != null) {
+			for (int h = start; h < i; h++) {
+				cursor.next(this.text.charAt(h), h + 1 - start);
+			}
+		}
+		int urlEnd = -1;
+		boolean exact = false;
+		for (; i < this.length; i++) {
+			char c = this.text.charAt(i);
+			byte charClass = c < CHAR_CLASSES.length ? CHAR_CLASSES[c] : 0;
+			if ((charClass & URL) == 0) {
+				break;
+			}
+			if (cursor != null) {
+				cursor.next(c, i + 1 - start);
+			}
+			if ((charClass & URL_END) != 0) {
+				urlEnd = i + 1;
+				exact = cursor != null && cursor.isExact();
+			}
+		}
+		this.allowed = urlEnd != -1 && cursor != null && (exact || cursor.allowsPrefix(urlEnd - start));
+		return urlEnd;
+	}
+
+	/**
+	 * Determines if there is a word character before the index, which means that
+	 * {@code \b} does not match. This follows the rules of {@link java.util.regex.Pattern}
+	 * including that a non-spacing mark after a letter or digit is part of the word.
+	 */
+	private boolean isWordBefore(int i) {
+		if (i == 0) {
+			return false;
+		}
+		int c = Character.codePointBefore(this.text, i);
+		if (c == '_' || Character.isLetterOrDigit(c)) {
+			return true;
+		}
+		if (Character.getType(c) != Character.NON_SPACING_MARK) {
+			return false;
+		}
+		for (int x = i - 1; x >= 0; x--) {
+			int base = Character.codePointAt(this.text, x);
+			if (Character.isLetterOrDigit(base)) {
+				return true;
+			}
+			if (Character.getType(base) != Character.NON_SPACING_MARK) {
+				return false;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.spring.nohttp;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Hosts that are known to serve https, so that {@link StatusHttpReplacer} can replace
+ * their URLs without making any requests. A snapshot of well known hosts (i.e. HSTS
+ * preloaded hosts, Apache, Maven Central and the Spring projects) is bundled with nohttp
+ * and is updated in upcoming releases.
+ *
+ * <p>
+ * The format contains a host per line such that:
+ * </p>
+ *
+ * <ul>
+ *     <li>A line that begins with {@code .} matches the domain and all of its subdomains
+ *     (i.e. {@code .spring.io} matches {@code spring.io} and {@code docs.spring.io})</li>
+ *     <li>Lines can begin with // to create a comment within the file</li>
+ *     <li>A comment of the form {@code // version: <version>} specifies the version</li>
+ *     <li>Lines are trimmed for whitespace</li>
+ *     <li>Lines that are empty are ignored</li>
+ * </ul>
+ *
+ * <p>
+ * The hosts are held in a sorted array, so a lookup is a binary search for the host and
+ * for each of its parent domains.
+ * </p>
+ */
+public class KnownHttpsHosts {
+	private static final String VERSION_PREFIX = "// version:";
+
+	private static final KnownHttpsHosts NONE = new KnownHttpsHosts(new String[0], null);
+
+	private final String[] hosts;
+
+	private final String version;
+
+	private KnownHttpsHosts(String[] hosts, String version) {
+		this.hosts = hosts;
+		this.version = version;
+	}
+
+	/**
+	 * Creates an instance from the hosts that are bundled with nohttp
+	 * @return the bundled hosts
+	 */
+	public static KnownHttpsHosts bundled() {
+		return BundledHolder.INSTANCE;
+	}
+
+	/**
+	 * Creates an instance without any hosts, so that every URL is looked up
+	 * @return an instance without any hosts
+	 */
+	public static KnownHttpsHosts none() {
+		return NONE;
+	}
+
+	/**
+	 * Creates an instance from an {@link InputStream} in the format described in
+	 * {@link KnownHttpsHosts}
+	 * @param resource the resource to load. It is closed once it has been read.
+	 * @return the hosts in the resource
+	 */
+	public static KnownHttpsHosts load(InputStream resource) {
+		if (resource == null) {
+			throw new IllegalArgumentException("resource cannot be null");
+		}
+		List<String> hosts = new ArrayList<>();
+		String version = null;
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource, StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.startsWith(VERSION_PREFIX)) {
+					version = line.substring(VERSION_PREFIX.length()).trim();
+				}
+				else if (!line.isEmpty() && !line.startsWith("//")) {
+					hosts.add(line.toLowerCase(Locale.ENGLISH));
+				}
+			}
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		String[] sorted = hosts.toArray(new String[0]);
+		Arrays.sort(sorted);
+		return new KnownHttpsHosts(sorted, version);
+	}
+
+	/**
+	 * The version of the hosts
+	 * @return the version or {@code null} if it was not specified
+	 */
+	public String getVersion() {
+		return this.version;
+	}
+
+	/**
+	 * Determines if the URL is on a host that is known to serve https. URLs with an
+	 * explicit port never match, since the port is unlikely to serve https.
+	 * @param url the URL to check
+	 * @return true if the host is known to serve https
+	 */
+	public boolean contains(String url) {
+		if (url == null) {
+			throw new IllegalArgumentException("url cannot be null");
+		}
+		if (this.hosts.length == 0) {
+			return false;
+		}
+		URL parsed;
+		try {
+			parsed = new URL(url);
+		}
+		catch (MalformedURLException e) {
+			return false;
+		}
+		if (parsed.getPort() != -1) {
+			return false;
+		}
+		return containsHost(parsed.getHost().toLowerCase(Locale.ENGLISH));
+	}
+
+	private boolean containsHost(String host) {
+		if (host.isEmpty()) {
+			return false;
+		}
+		if (Arrays.binarySearch(this.hosts, host) >= 0) {
+			return true;
+		}
+		// i.e. .docs.spring.io, .spring.io and then .io
+		String domain = "." + host;
+		while (Arrays.binarySearch(this.hosts, domain) < 0) {
+			int next = domain.indexOf('.', 1);
+			if (next == -1) {
+				return false;
+			}
+			domain = domain.substring(next);
+		}
+		return true;
+	}
+
+	private static class BundledHolder {
+		private static final KnownHttpsHosts INSTANCE = load(
+				KnownHttpsHosts.class.getResourceAsStream("known-https-hosts.txt"));
+	}
+}
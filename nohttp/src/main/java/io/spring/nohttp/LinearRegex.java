@@ -0,0 +1,767 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.spring.nohttp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * A regular expression that is matched against the entire text by simulating a Thompson
+ * NFA, so matching takes time proportional to the length of the text times the number of
+ * states. The syntax is the subset of {@link Pattern} described by
+ * {@link LinearRegexEngine}, and everything else results in an
+ * {@link UnsupportedRegexException}.
+ *
+ * <p>
+ * A lookbehind at the end of the pattern (i.e. {@code .*(?<!\.(xsd))$}) is supported by
+ * matching its body against the suffixes of the text, which is still linear because
+ * {@link Pattern} requires the body to have a maximum length.
+ * </p>
+ */
+final class LinearRegex implements Predicate<String> {
+	private static final int MAX_STATES = 20_000;
+
+	private static final int MAX_REPETITIONS = 1000;
+
+	private static final CharMatcher ANY = cp -> cp != '\n' && cp != '\r' && cp != '\u0085'
+			&& cp != '\u2028' && cp != '\u2029';
+
+	private static final CharMatcher DIGIT = cp -> cp >= '0' && cp <= '9';
+
+	private static final CharMatcher WORD = cp -> (cp >= 'a' && cp <= 'z') || (cp >= 'A' && cp <= 'Z')
+			|| (cp >= '0' && cp <= '9') || cp == '_';
+
+	private static final CharMatcher SPACE = cp -> cp == ' ' || cp == '\t' || cp == '\n'
+			|| cp == '\u000B' || cp == '\f' || cp == '\r';
+
+	private final String pattern;
+
+	private final State start;
+
+	private final int states;
+
+	private LinearRegex lookbehind;
+
+	private boolean negativeLookbehind;
+
+	private int lookbehindMaxLength;
+
+	private LinearRegex(String pattern, State start, int states) {
+		this.pattern = pattern;
+		this.start = start;
+		this.states = states;
+	}
+
+	/**
+	 * Compiles the pattern
+	 * @param pattern the pattern to compile
+	 * @return the compiled pattern
+	 * @throws UnsupportedRegexException if the pattern uses a construct that is not
+	 * supported
+	 */
+	static LinearRegex compile(Pattern pattern) {
+		if (pattern.flags() != 0) {
+			throw new UnsupportedRegexException("flags");
+		}
+		Parser parser = new Parser(pattern.pattern());
+		LinearRegex regex = build(pattern.pattern(), parser.parse());
+		if (parser.lookbehind != null) {
+			regex.lookbehind = build(pattern.pattern(), parser.lookbehind);
+			regex.negativeLookbehind = parser.negativeLookbehind;
+			regex.lookbehindMaxLength = maxLength(parser.lookbehind);
+		}
+		return regex;
+	}
+
+	private static LinearRegex build(String pattern, Node node) {
+		Builder builder = new Builder();
+		Fragment fragment = builder.build(node);
+		fragment.end.out = builder.match();
+		return new LinearRegex(pattern, fragment.start, builder.states);
+	}
+
+	/**
+	 * The maximum number of chars that the node can match
+	 */
+	private static int maxLength(Node node) {
+		if (node instanceof CharNode) {
+			CharMatcher matcher = ((CharNode) node).matcher;
+			return matcher instanceof Single ? Character.charCount(((Single) matcher).cp) : 2;
+		}
+		if (node instanceof SequenceNode) {
+			int length = 0;
+			for (Node child : ((SequenceNode) node).nodes) {
+				length += maxLength(child);
+			}
+			return length;
+		}
+		if (node instanceof AlternationNode) {
+			int length = 0;
+			for (Node branch : ((AlternationNode) node).branches) {
+				length = Math.max(length, maxLength(branch));
+			}
+			return length;
+		}
+		RepetitionNode repetition = (RepetitionNode) node;
+		if (repetition.max < 0) {
+			throw new UnsupportedRegexException("a lookbehind without a maximum length");
+		}
+		return repetition.max * maxLength(repetition.node);
+	}
+
+	@Override
+	public boolean test(String text) {
+		if (!matches(text)) {
+			return false;
+		}
+		if (this.lookbehind == null) {
+			return true;
+		}
+		return endsWithLookbehind(text) != this.negativeLookbehind;
+	}
+
+	private boolean endsWithLookbehind(String text) {
+		int min = Math.max(0, text.length() - this.lookbehindMaxLength);
+		for (int start = text.length(); start >= min; start--) {
+			if (this.lookbehind.matches(text.substring(start))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean matches(String text) {
+		int[] visited = new int[this.states];
+		State[] current = new State[this.states];
+		State[] next = new State[this.states];
+		State[] stack = new State[2 * this.states + 1];
+		int step = 1;
+		int size = addClosure(this.start, current, 0, visited, step, stack);
+		for (int i = 0; i < text.length(); ) {
+			int cp = text.codePointAt(i);
+			i += Character.charCount(cp);
+			step++;
+			int nextSize = 0;
+			for (int s = 0; s < size; s++) {
+				State state = current[s];
+				if (state.matcher != null && state.matcher.matches(cp)) {
+					nextSize = addClosure(state.out, next, nextSize, visited, step, stack);
+				}
+			}
+			if (nextSize == 0) {
+				return false;
+			}
+			State[] swap = current;
+			current = next;
+			next = swap;
+			size = nextSize;
+		}
+		for (int s = 0; s < size; s++) {
+			if (current[s].match) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Adds the states that consume a character (or match) and are reachable from the state
+	 * without consuming a character.
+	 */
+	private static int addClosure(State state, State[] list, int size, int[] visited, int step, State[] stack) {
+		int top = 0;
+		stack[top++] = state;
+		while (top > 0) {
+			State s = stack[--top];
+			if (visited[s.id] == step) {
+				continue;
+			}
+			visited[s.id] = step;
+			if (s.matcher != null || s.match) {
+				list[size++] = s;
+				continue;
+			}
+			if (s.alternative != null) {
+				stack[top++] = s.alternative;
+			}
+			stack[top++] = s.out;
+		}
+		return size;
+	}
+
+	@Override
+	public String toString() {
+		return this.pattern;
+	}
+
+	/**
+	 * Thrown when a pattern uses a construct that is not supported. The message describes
+	 * the construct.
+	 */
+	static class UnsupportedRegexException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		UnsupportedRegexException(String construct) {
+			super(construct);
+		}
+	}
+
+	@FunctionalInterface
+	private interface CharMatcher {
+		boolean matches(int cp);
+
+		default CharMatcher negate() {
+			return cp -> !matches(cp);
+		}
+	}
+
+	private static final class Single implements CharMatcher {
+		private final int cp;
+
+		Single(int cp) {
+			this.cp = cp;
+		}
+
+		@Override
+		public boolean matches(int cp) {
+			return this.cp == cp;
+		}
+	}
+
+	/**
+	 * A state is either a character that is consumed (matcher), a split that continues with
+	 * out and alternative, an epsilon that only continues with out, or the match.
+	 */
+	private static final class State {
+		private final int id;
+
+		private final CharMatcher matcher;
+
+		private final boolean match;
+
+		private State out;
+
+		private State alternative;
+
+		State(int id, CharMatcher matcher, boolean match) {
+			this.id = id;
+			this.matcher = matcher;
+			this.match = match;
+		}
+	}
+
+	private static final class Fragment {
+		private final State start;
+
+		private final State end;
+
+		Fragment(State start, State end) {
+			this.start = start;
+			this.end = end;
+		}
+	}
+
+	private static final class Builder {
+		private int states;
+
+		Fragment build(Node node) {
+			if (node instanceof CharNode) {
+				State start = state(((CharNode) node).matcher);
+				State end = state(null);
+				start.out = end;
+				return new Fragment(start, end);
+			}
+			if (node instanceof SequenceNode) {
+				State start = state(null);
+				State end = start;
+				for (Node child : ((SequenceNode) node).nodes) {
+					Fragment fragment = build(child);
+					end.out = fragment.start;
+					end = fragment.end;
+				}
+				return new Fragment(start, end);
+			}
+			if (node instanceof AlternationNode) {
+				List<Node> branches = ((AlternationNode) node).branches;
+				State start = state(null);
+				State end = state(null);
+				State split = start;
+				for (int i = 0; i < branches.size(); i++) {
+					Fragment branch = build(branches.get(i));
+					branch.end.out = end;
+					split.out = branch.start;
+					if (i < branches.size() - 1) {
+						split.alternative = state(null);
+						split = split.alternative;
+					}
+				}
+				return new Fragment(start, end);
+			}
+			RepetitionNode repetition = (RepetitionNode) node;
+			State start = state(null);
+			State end = start;
+			for (int i = 0; i < repetition.min; i++) {
+				Fragment fragment = build(repetition.node);
+				end.out = fragment.start;
+				end = fragment.end;
+			}
+			if (repetition.max < 0) {
+				State split = state(null);
+				Fragment body = build(repetition.node);
+				split.out = body.start;
+				body.end.out = split;
+				split.alternative = state(null);
+				end.out = split;
+				end = split.alternative;
+			}
+			for (int i = repetition.min; i < repetition.max; i++) {
+				State split = state(null);
+				Fragment body = build(repetition.node);
+				split.out = body.start;
+				split.alternative = state(null);
+				body.end.out = split.alternative;
+				end.out = split;
+				end = split.alternative;
+			}
+			return new Fragment(start, end);
+		}
+
+		State match() {
+			return new State(this.states++, null, true);
+		}
+
+		private State state(CharMatcher matcher) {
+			if (this.states >= MAX_STATES) {
+				throw new UnsupportedRegexException("more than " + MAX_STATES + " states");
+			}
+			return new State(this.states++, matcher, false);
+		}
+	}
+
+	private interface Node {
+	}
+
+	private static final class CharNode implements Node {
+		private final CharMatcher matcher;
+
+		CharNode(CharMatcher matcher) {
+			this.matcher = matcher;
+		}
+	}
+
+	private static final class SequenceNode implements Node {
+		private final List<Node> nodes;
+
+		SequenceNode(List<Node> nodes) {
+			this.nodes = nodes;
+		}
+	}
+
+	private static final class AlternationNode implements Node {
+		private final List<Node> branches;
+
+		AlternationNode(List<Node> branches) {
+			this.branches = branches;
+		}
+	}
+
+	private static final class RepetitionNode implements Node {
+		private final Node node;
+
+		private final int min;
+
+		/**
+		 * The maximum number of repetitions or -1 if there is no maximum
+		 */
+		private final int max;
+
+		RepetitionNode(Node node, int min, int max) {
+			this.node = node;
+			this.min = min;
+			this.max = max;
+		}
+	}
+
+	/**
+	 * Parses the supported subset of {@link Pattern}. The pattern is known to be valid, so
+	 * anything unexpected is treated as unsupported rather than as a syntax error.
+	 */
+	private static final class Parser {
+		private final String regex;
+
+		private int pos;
+
+		private int depth;
+
+		private Node lookbehind;
+
+		private boolean negativeLookbehind;
+
+		Parser(String regex) {
+			this.regex = regex;
+		}
+
+		Node parse() {
+			if (peek('^')) {
+				this.pos++;
+			}
+			Node node = parseAlternation();
+			if (this.pos < this.regex.length()) {
+				throw new UnsupportedRegexException("an unbalanced )");
+			}
+			if (this.lookbehind != null && node instanceof AlternationNode) {
+				throw new UnsupportedRegexException("a lookbehind in an alternative");
+			}
+			return node;
+		}
+
+		private Node parseAlternation() {
+			List<Node> branches = new ArrayList<>();
+			branches.add(parseSequence());
+			while (peek('|')) {
+				this.pos++;
+				branches.add(parseSequence());
+			}
+			return branches.size() == 1 ? branches.get(0) : new AlternationNode(branches);
+		}
+
+		private Node parseSequence() {
+			List<Node> nodes = new ArrayList<>();
+			while (this.pos < this.regex.length()) {
+				char c = this.regex.charAt(this.pos);
+				if (c == '|' || c == ')') {
+					break;
+				}
+				if (c == '$' && this.pos == this.regex.length() - 1) {
+					this.pos++;
+					break;
+				}
+				if (this.regex.startsWith("\\Q", this.pos)) {
+					List<Node> quoted = parseQuoted();
+					if (!quoted.isEmpty()) {
+						// a quantifier only applies to the last quoted character
+						nodes.addAll(quoted.subList(0, quoted.size() - 1));
+						nodes.add(parseRepetition(quoted.get(quoted.size() - 1)));
+					}
+					continue;
+				}
+				nodes.add(parseRepetition(parseAtom()));
+			}
+			return nodes.size() == 1 ? nodes.get(0) : new SequenceNode(nodes);
+		}
+
+		private List<Node> parseQuoted() {
+			this.pos += 2;
+			int end = this.regex.indexOf("\\E", this.pos);
+			String quoted = this.regex.substring(this.pos, end < 0 ? this.regex.length() : end);
+			this.pos = end < 0 ? this.regex.length() : end + 2;
+			List<Node> nodes = new ArrayList<>();
+			quoted.codePoints().forEach(cp -> nodes.add(new CharNode(new Single(cp))));
+			return nodes;
+		}
+
+		private Node parseRepetition(Node node) {
+			while (this.pos < this.regex.length()) {
+				char c = this.regex.charAt(this.pos);
+				int min;
+				int max;
+				if (c == '*') {
+					min = 0;
+					max = -1;
+					this.pos++;
+				}
+				else if (c == '+') {
+					min = 1;
+					max = -1;
+					this.pos++;
+				}
+				else if (c == '?') {
+					min = 0;
+					max = 1;
+					this.pos++;
+				}
+				else if (c == '{') {
+					this.pos++;
+					min = parseNumber();
+					max = min;
+					if (peek(',')) {
+						this.pos++;
+						max = peek('}') ? -1 : parseNumber();
+					}
+					expect('}');
+				}
+				else {
+					break;
+				}
+				if (peek('+')) {
+					throw new UnsupportedRegexException("a possessive quantifier");
+				}
+				if (peek('?')) {
+					// a lazy quantifier matches the same text when the entire text must match
+					this.pos++;
+				}
+				node = new RepetitionNode(node, min, max);
+			}
+			return node;
+		}
+
+		private int parseNumber() {
+			int start = this.pos;
+			while (this.pos < this.regex.length() && Character.isDigit(this.regex.charAt(this.pos))) {
+				this.pos++;
+			}
+			if (start == this.pos || this.pos - start > 4) {
+				throw new UnsupportedRegexException("a repetition that is not a number up to " + MAX_REPETITIONS);
+			}
+			int number = Integer.parseInt(this.regex.substring(start, this.pos));
+			if (number > MAX_REPETITIONS) {
+				throw new UnsupportedRegexException("a repetition that is not a number up to " + MAX_REPETITIONS);
+			}
+			return number;
+		}
+
+		private Node parseAtom() {
+			char c = this.regex.charAt(this.pos);
+			switch (c) {
+				case '(':
+					this.pos++;
+					if (this.regex.startsWith("?<=", this.pos) || this.regex.startsWith("?<!", this.pos)) {
+						return parseLookbehind();
+					}
+					parseGroupType();
+					this.depth++;
+					Node group = parseAlternation();
+					this.depth--;
+					expect(')');
+					return group;
+				case '[':
+					this.pos++;
+					return new CharNode(parseCharClass());
+				case '.':
+					this.pos++;
+					return new CharNode(ANY);
+				case '\\':
+					this.pos++;
+					return new CharNode(parseEscape());
+				case '^':
+					throw new UnsupportedRegexException("^ that is not at the start");
+				case '$':
+					throw new UnsupportedRegexException("$ that is not at the end");
+				case '*':
+				case '+':
+				case '?':
+				case '{':
+					throw new UnsupportedRegexException("a dangling " + c);
+				default:
+					int cp = this.regex.codePointAt(this.pos);
+					this.pos += Character.charCount(cp);
+					return new CharNode(new Single(cp));
+			}
+		}
+
+		/**
+		 * Parses a lookbehind that is only followed by the end of the pattern (and
+		 * optionally {@code $}), so it only needs to be checked at the end of the text.
+		 */
+		private Node parseLookbehind() {
+			boolean negative = this.regex.charAt(this.pos + 2) == '!';
+			this.pos += 3;
+			if (this.depth > 0 || this.lookbehind != null) {
+				throw new UnsupportedRegexException(negative ? "a negative lookbehind (?<!" : "a lookbehind (?<=");
+			}
+			this.depth++;
+			Node body = parseAlternation();
+			this.depth--;
+			expect(')');
+			String rest = this.regex.substring(this.pos);
+			if (!rest.isEmpty() && !rest.equals("$")) {
+				throw new UnsupportedRegexException(negative ?
+						"a negative lookbehind (?<! that is not at the end" :
+						"a lookbehind (?<= that is not at the end");
+			}
+			this.lookbehind = body;
+			this.negativeLookbehind = negative;
+			return new SequenceNode(Collections.emptyList());
+		}
+
+		private void parseGroupType() {
+			if (!peek('?')) {
+				return;
+			}
+			String rest = this.regex.substring(this.pos);
+			if (rest.startsWith("?:")) {
+				this.pos += 2;
+			}
+			else if (rest.startsWith("?<")) {
+				int end = this.regex.indexOf('>', this.pos);
+				if (end < 0) {
+					throw new UnsupportedRegexException("an unterminated named group");
+				}
+				this.pos = end + 1;
+			}
+			else if (rest.startsWith("?=")) {
+				throw new UnsupportedRegexException("a lookahead (?=");
+			}
+			else if (rest.startsWith("?!")) {
+				throw new UnsupportedRegexException("a negative lookahead (?!");
+			}
+			else if (rest.startsWith("?>")) {
+				throw new UnsupportedRegexException("an independent group (?>");
+			}
+			else {
+				throw new UnsupportedRegexException("inline flags (?");
+			}
+		}
+
+		private CharMatcher parseCharClass() {
+			boolean negated = peek('^');
+			if (negated) {
+				this.pos++;
+			}
+			List<CharMatcher> matchers = new ArrayList<>();
+			boolean first = true;
+			while (true) {
+				if (this.pos >= this.regex.length()) {
+					throw new UnsupportedRegexException("an unterminated [");
+				}
+				char c = this.regex.charAt(this.pos);
+				if (c == ']' && !first) {
+					this.pos++;
+					break;
+				}
+				if (c == ']' || c == '[') {
+					throw new UnsupportedRegexException("a nested character class");
+				}
+				if (c == '&' && this.regex.startsWith("&&", this.pos)) {
+					throw new UnsupportedRegexException("a character class intersection &&");
+				}
+				CharMatcher low = parseClassChar();
+				if (low instanceof Single && peek('-') && this.pos + 1 < this.regex.length()
+						&& this.regex.charAt(this.pos + 1) != ']') {
+					this.pos++;
+					if (peek('[')) {
+						throw new UnsupportedRegexException("a nested character class");
+					}
+					CharMatcher high = parseClassChar();
+					if (!(high instanceof Single)) {
+						throw new UnsupportedRegexException("a range that ends with a character class");
+					}
+					int from = ((Single) low).cp;
+					int to = ((Single) high).cp;
+					matchers.add(cp -> cp >= from && cp <= to);
+				}
+				else {
+					matchers.add(low);
+				}
+				first = false;
+			}
+			List<CharMatcher> union = Collections.unmodifiableList(matchers);
+			CharMatcher matcher = cp -> {
+				for (CharMatcher m : union) {
+					if (m.matches(cp)) {
+						return true;
+					}
+				}
+				return false;
+			};
+			return negated ? matcher.negate() : matcher;
+		}
+
+		private CharMatcher parseClassChar() {
+			if (peek('\\')) {
+				this.pos++;
+				return parseEscape();
+			}
+			int cp = this.regex.codePointAt(this.pos);
+			this.pos += Character.charCount(cp);
+			return new Single(cp);
+		}
+
+		private CharMatcher parseEscape() {
+			if (this.pos >= this.regex.length()) {
+				throw new UnsupportedRegexException("a trailing \\");
+			}
+			int cp = this.regex.codePointAt(this.pos);
+			this.pos += Character.charCount(cp);
+			switch (cp) {
+				case 'd':
+					return DIGIT;
+				case 'D':
+					return DIGIT.negate();
+				case 'w':
+					return WORD;
+				case 'W':
+					return WORD.negate();
+				case 's':
+					return SPACE;
+				case 'S':
+					return SPACE.negate();
+				case 't':
+					return new Single('\t');
+				case 'n':
+					return new Single('\n');
+				case 'r':
+					return new Single('\r');
+				case 'f':
+					return new Single('\f');
+				case 'a':
+					return new Single('\u0007');
+				case 'e':
+					return new Single('\u001B');
+				case 'x':
+					return new Single(parseHex(2));
+				case 'u':
+					return new Single(parseHex(4));
+				default:
+					if (cp < 128 && Character.isLetterOrDigit(cp)) {
+						throw new UnsupportedRegexException("the escape \\" + new String(Character.toChars(cp)));
+					}
+					return new Single(cp);
+			}
+		}
+
+		private int parseHex(int digits) {
+			int end = this.pos + digits;
+			if (end > this.regex.length()) {
+				throw new UnsupportedRegexException("a truncated hexadecimal escape");
+			}
+			try {
+				int cp = Integer.parseInt(this.regex.substring(this.pos, end), 16);
+				this.pos = end;
+				return cp;
+			}
+			catch (NumberFormatException e) {
+				throw new UnsupportedRegexException("a hexadecimal escape with braces");
+			}
+		}
+
+		private boolean peek(char c) {
+			return this.pos < this.regex.length() && this.regex.charAt(this.pos) == c;
+		}
+
+		private void expect(char c) {
+			if (!peek(c)) {
+				throw new UnsupportedRegexException("a missing " + c);
+			}
+			this.pos++;
+		}
+	}
+}
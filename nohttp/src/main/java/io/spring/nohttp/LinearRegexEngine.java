@@ -0,0 +1,73 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.spring.nohttp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * A {@link RegexEngine} that matches in time proportional to the length of the text
+ * times the size of the pattern, no matter what the pattern is, by simulating a Thompson
+ * NFA rather than backtracking. It supports literals, {@code .}, character classes
+ * (i.e. {@code [^/\.]} and {@code \d}), groups, alternation, and greedy or lazy
+ * quantifiers. The {@code ^} and {@code $} anchors are supported at the start and end of
+ * the pattern.
+ *
+ * <p>
+ * Patterns that use other constructs (i.e. lookarounds, back references, possessive
+ * quantifiers, boundaries or flags) fall back to {@link RegexEngine#JDK}, which is
+ * reported by {@link #getFallbacks()}.
+ * </p>
+ */
+public class LinearRegexEngine implements RegexEngine {
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	private final Map<String, String> fallbacks = Collections.synchronizedMap(new LinkedHashMap<>());
+
+	@Override
+	public Predicate<String> compile(Pattern pattern) {
+		if (pattern == null) {
+			throw new IllegalArgumentException("pattern cannot be null");
+		}
+		try {
+			return LinearRegex.compile(pattern);
+		}
+		catch (LinearRegex.UnsupportedRegexException e) {
+			this.logger.debug("Using java.util.regex for {} because it uses {}", pattern, e.getMessage());
+			this.fallbacks.put(pattern.pattern(), e.getMessage());
+			return RegexEngine.JDK.compile(pattern);
+		}
+	}
+
+	/**
+	 * The patterns that were compiled with {@link RegexEngine#JDK} because they use a
+	 * construct that is not supported
+	 * @return the patterns mapped to the construct that is not supported
+	 */
+	public Map<String, String> getFallbacks() {
+		synchronized (this.fallbacks) {
+			return new LinkedHashMap<>(this.fallbacks);
+		}
+	}
+}
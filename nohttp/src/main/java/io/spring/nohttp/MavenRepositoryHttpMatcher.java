@@ -0,0 +1,99 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.spring.nohttp;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the http URLs of Maven repositories (i.e. within {@code <repository>},
+ * {@code <pluginRepository>}, {@code <snapshotRepository>} and {@code <mirror>} of a
+ * pom.xml or settings.xml). Maven 3.8.1 and later block repositories that use http, so
+ * unlike other http URLs they do not work even if they are allowed.
+ *
+ * @see io.spring.nohttp.file.Detector#mavenRepository()
+ */
+public class MavenRepositoryHttpMatcher implements HttpMatcher, HttpReplacer {
+	private static final Pattern REPOSITORY = Pattern.compile(
+			"<(repository|pluginRepository|snapshotRepository|mirror)(?:\\s[^>]*)?>(.*?)</\\1>", Pattern.DOTALL);
+
+	private static final Pattern URL = Pattern.compile("<url>\\s*(http://[^<\\s]+)");
+
+	private final Predicate<String> allow;
+
+	/**
+	 * Creates a new instance that allows the repositories that Maven does not block (i.e.
+	 * localhost and 127.0.0.1)
+	 */
+	public MavenRepositoryHttpMatcher() {
+		this(MavenRepositoryHttpMatcher::isLocalhost);
+	}
+
+	/**
+	 * Creates a new instance with the provided allow rule
+	 * @param allow the rule to be used determine if an HTTP URL is allowed
+	 */
+	public MavenRepositoryHttpMatcher(Predicate<String> allow) {
+		if (allow == null) {
+			throw new IllegalArgumentException("allow cannot be null");
+		}
+		this.allow = allow;
+	}
+
+	@Override
+	public List<HttpMatchResult> findHttp(String text) {
+		return replaceHttp(text).getMatches();
+	}
+
+	@Override
+	public HttpReplaceResult replaceHttp(String text) {
+		List<HttpMatchResult> results = new ArrayList<>();
+		StringBuilder result = new StringBuilder(text.length());
+		int currentStart = 0;
+		Matcher repository = REPOSITORY.matcher(text);
+		while (repository.find()) {
+			Matcher url = URL.matcher(text).region(repository.start(2), repository.end(2));
+			while (url.find()) {
+				String httpUrl = url.group(1);
+				if (this.allow.test(httpUrl)) {
+					continue;
+				}
+				result.append(text, currentStart, url.start(1)).append("https").append(httpUrl, 4, httpUrl.length());
+				currentStart = url.end(1);
+				results.add(new HttpMatchResult(httpUrl, url.start(1)));
+			}
+		}
+		result.append(text, currentStart, text.length());
+		return new HttpReplaceResult(results, result.toString());
+	}
+
+	private static boolean isLocalhost(String httpUrl) {
+		try {
+			String host = new URL(httpUrl).getHost();
+			return "localhost".equals(host) || "127.0.0.1".equals(host);
+		}
+		catch (MalformedURLException e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.spring.nohttp;
+
+/**
+ * Indicates that {@link StatusProber} did not look up a URL because its host failed too
+ * many times.
+ */
+public class ProbeSkippedException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	private final String url;
+
+	private final String reason;
+
+	public ProbeSkippedException(String url, String reason) {
+		super("Skipped " + url + " because " + reason);
+		this.url = url;
+		this.reason = reason;
+	}
+
+	/**
+	 * The URL that was skipped
+	 * @return the URL
+	 */
+	public String getUrl() {
+		return this.url;
+	}
+
+	/**
+	 * Why the URL was skipped
+	 * @return the reason
+	 */
+	public String getReason() {
+		return this.reason;
+	}
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.spring.nohttp;
+
+/**
+ * Determines which requests {@link StatusHttpReplacer} makes to decide if an http URL
+ * can be replaced with https.
+ */
+public enum ProbeStrategy {
+	/**
+	 * Each https URL is requested and it is replaced if the status is 2xx.
+	 */
+	URL,
+
+	/**
+	 * The root of each host (i.e. {@code https://example.com/}) is requested once, and
+	 * every URL on a host that responds over https with a status less than 500 is
+	 * replaced. The number of requests depends on the number of hosts rather than the
+	 * number of URLs.
+	 */
+	HOST,
+
+	/**
+	 * The root of each host is requested as with {@link #HOST}, and then each URL on the
+	 * hosts that serve https is requested as with {@link #URL}. URLs on hosts that do not
+	 * serve https are not requested.
+	 */
+	HOST_AND_URL
+}
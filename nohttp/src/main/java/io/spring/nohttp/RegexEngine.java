@@ -0,0 +1,44 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.spring.nohttp;
+
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Compiles the {@link Pattern}s used by {@link RegexPredicate} into the {@link Predicate}
+ * that determines if text matches the entire pattern.
+ *
+ * @see RegexPredicate#setEngine(RegexEngine)
+ * @see LinearRegexEngine
+ */
+@FunctionalInterface
+public interface RegexEngine {
+	/**
+	 * Uses {@link java.util.regex.Matcher#matches()}, which supports every pattern but can
+	 * backtrack exponentially on some patterns.
+	 */
+	RegexEngine JDK = pattern -> text -> pattern.matcher(text).matches();
+
+	/**
+	 * Compiles the pattern
+	 * @param pattern the pattern to compile
+	 * @return a {@link Predicate} that returns true if the text matches the entire pattern
+	 */
+	Predicate<String> compile(Pattern pattern);
+}
@@ -30,13 +30,19 @@ import java.util.regex.Pattern;
  * Allows finding and replacing http matches via a {@link Pattern}
  * @author Rob Winch
  * @see RegexPredicate
+ * @see AllowRuleSet
+ * @see ReplacementRules
  */
 public class RegexHttpMatcher implements HttpMatcher, HttpReplacer {
-	private Pattern pattern = Pattern.compile("\\b(http\\\\?://[-a-zA-Z0-9+&@/%?=~_|!:,.;]*[-a-zA-Z0-9+&@/%=~_|])");
+	static final Pattern DEFAULT_PATTERN = Pattern.compile("\\b(http\\\\?://[-a-zA-Z0-9+&@/%?=~_|!:,.;]*[-a-zA-Z0-9+&@/%=~_|])");
 
-	private Function<String, String> httpReplacer = httpUrl -> httpUrl.replaceFirst("http", "https");
+	private Pattern pattern = DEFAULT_PATTERN;
 
-	private Predicate<String> allow;
+	private boolean customPattern;
+
+	private Function<String, String> httpReplacer = ReplacementRules::upgradeScheme;
+
+	private final AllowRuleSet allow = new AllowRuleSet();
 
 	/**
 	 * Creates a new instance with the provided allow rule
@@ -46,11 +52,13 @@ public class RegexHttpMatcher implements HttpMatcher, HttpReplacer {
 		if (allow == null) {
 			throw new IllegalArgumentException("allow cannot be null");
 		}
-		this.allow = allow;
+		this.allow.add(allow);
 	}
 
 	/**
-	 * Sets the {@link Pattern} used to find http results. The default finds URLs that use http://
+	 * Sets the {@link Pattern} used to find http results. The default finds URLs that use
+	 * http:// with a hand-written scanner that is equivalent to the default pattern, but
+	 * does not need to backtrack on long runs of URL characters.
 	 * @param pattern the pattern to use
 	 */
 	public void setPattern(Pattern pattern) {
@@ -58,11 +66,12 @@ public class RegexHttpMatcher implements HttpMatcher, HttpReplacer {
 			throw new IllegalArgumentException("pattern cannot be null");
 		}
 		this.pattern = pattern;
+		this.customPattern = true;
 	}
 
 	/**
 	 * The {@link Function} to use to replace the matched http result with something that
-	 * uses https
+	 * uses https. The default replaces the http scheme with https.
 	 * @param httpReplacer the replacer to use
 	 */
 	public void setHttpReplacer(Function<String, String> httpReplacer) {
@@ -81,8 +90,20 @@ public class RegexHttpMatcher implements HttpMatcher, HttpReplacer {
 		return replaceHttp(text, writer);
 	}
 
+	@Override
+	public boolean containsDisallowedHttp(CharSequence text) {
+		UrlFinder matcher = createUrlFinder(text);
+		while (matcher.find()) {
+			String httpUrl = text.subSequence(matcher.start(), matcher.end()).toString();
+			if (!this.allow.test(httpUrl) && !httpUrl.equals(this.httpReplacer.apply(httpUrl))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	private HttpReplaceResult replaceHttp(String text, Writer writer) {
-		Matcher matcher = this.pattern.matcher(text);
+		UrlFinder matcher = createUrlFinder(text);
 		int currentStart = 0;
 		int length = text.length();
 		List<HttpMatchResult> results = new ArrayList<>();
@@ -90,7 +111,7 @@ public class RegexHttpMatcher implements HttpMatcher, HttpReplacer {
 			if (currentStart >= length) {
 				break;
 			}
-			String httpUrl = matcher.group();
+			String httpUrl = text.substring(matcher.start(), matcher.end());
 			if (this.allow.test(httpUrl)) {
 				continue;
 			}
@@ -119,6 +140,21 @@ public class RegexHttpMatcher implements HttpMatcher, HttpReplacer {
 		return new HttpReplaceResult(results, writer.toString());
 	}
 
+	/**
+	 * Creates the {@link UrlFinder} used to find the http results in the text
+	 * @param text the text to search
+	 * @return the {@link UrlFinder} to use
+	 */
+	UrlFinder createUrlFinder(CharSequence text) {
+		return isCustomPattern() ?
+				new PatternUrlFinder(this.pattern.matcher(text)) :
+				new HttpUrlTokenizer(text);
+	}
+
+	boolean isCustomPattern() {
+		return this.customPattern;
+	}
+
 	/**
 	 * Adds an additional allow rules to the existing allowed rules
 	 * @param allow the allow to use
@@ -127,7 +163,7 @@ public class RegexHttpMatcher implements HttpMatcher, HttpReplacer {
 		if (allow == null) {
 			throw new IllegalArgumentException("allow cannot be null");
 		}
-		this.allow = this.allow.or(allow);
+		this.allow.add(allow);
 	}
 
 	/**
@@ -139,6 +175,29 @@ public class RegexHttpMatcher implements HttpMatcher, HttpReplacer {
 		addHttpAllow(whitelist);
 	}
 
+	private static class PatternUrlFinder implements UrlFinder {
+		private final Matcher matcher;
+
+		PatternUrlFinder(Matcher matcher) {
+			this.matcher = matcher;
+		}
+
+		@Override
+		public boolean find() {
+			return this.matcher.find();
+		}
+
+		@Override
+		public int start() {
+			return this.matcher.start();
+		}
+
+		@Override
+		public int end() {
+			return this.matcher.end();
+		}
+	}
+
 	private static class NoOpWriter extends Writer {
 		public static final NoOpWriter INSTANCE = new NoOpWriter();
 
@@ -20,10 +20,16 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * An API that is typically used with {@link RegexHttpMatcher} that allows
@@ -31,11 +37,30 @@ import java.util.stream.Collectors;
  *
  * @author Rob Winch
  * @see RegexHttpMatcher
- * @see #createPatternsFromInputStream(InputStream)
+ * @see #createAllowlistFromPatterns(InputStream)
+ * @see #setEngine(RegexEngine)
  */
 public class RegexPredicate implements Predicate<String> {
+	private static final int REORDER_INTERVAL = 256;
+
 	private final List<Pattern> patterns;
 
+	private List<AllowlistRule> rules;
+
+	private RegexEngine engine = RegexEngine.JDK;
+
+	private List<Predicate<String>> matchers;
+
+	private volatile RuleProfile[] profiles;
+
+	private AdaptiveRuleOrder ruleOrder;
+
+	private LongAdder[] hits;
+
+	private final AtomicLong hitsSinceReorder = new AtomicLong();
+
+	private volatile int[] order;
+
 	/**
 	 * Creates an allowlist with the provided {@link Pattern}s
 	 * @param patterns the patterns to use.
@@ -48,12 +73,185 @@ public class RegexPredicate implements Predicate<String> {
 			throw new IllegalArgumentException("patterns cannot be empty");
 		}
 		this.patterns = patterns;
+		this.matchers = compile(patterns, this.engine);
+	}
+
+	/**
+	 * Creates an allowlist from the lines of an allowlist, which keeps the kind of the typed
+	 * lines rather than classifying their patterns
+	 */
+	static RegexPredicate fromRules(List<AllowlistRule> rules) {
+		RegexPredicate result = new RegexPredicate(rules.stream()
+				.map(AllowlistRule::getPattern)
+				.collect(Collectors.toList()));
+		result.rules = rules;
+		return result;
+	}
+
+	/**
+	 * Sets the {@link RegexEngine} used to match the patterns. The default is
+	 * {@link RegexEngine#JDK}. Use {@link LinearRegexEngine} to ensure that patterns
+	 * cannot backtrack exponentially (i.e. for allowlists that are provided by users).
+	 * @param engine the engine to use
+	 */
+	public void setEngine(RegexEngine engine) {
+		if (engine == null) {
+			throw new IllegalArgumentException("engine cannot be null");
+		}
+		this.engine = engine;
+		this.matchers = compile(this.patterns, engine);
+	}
+
+	/**
+	 * Determines if the evaluations, hits and evaluation time of each pattern are recorded,
+	 * so that rules that never match or are expensive can be found. Enabling profiling
+	 * starts a new profile. The default is false.
+	 * @param profiling true if the patterns should be profiled
+	 * @see #getProfiles()
+	 */
+	public void setProfiling(boolean profiling) {
+		this.profiles = profiling ?
+				this.patterns.stream().map(RuleProfile::new).toArray(RuleProfile[]::new) :
+				null;
+	}
+
+	boolean isProfiling() {
+		return this.profiles != null;
+	}
+
+	/**
+	 * The profile of each pattern in the order of the patterns
+	 * @return the profiles or an empty {@link List} if profiling is not enabled
+	 * @see #setProfiling(boolean)
+	 */
+	public List<RuleProfile> getProfiles() {
+		RuleProfile[] profiles = this.profiles;
+		return profiles == null ?
+				Collections.emptyList() :
+				Collections.unmodifiableList(Arrays.asList(profiles));
+	}
+
+	/**
+	 * Finds the pattern that allows the text. The profile is not updated.
+	 * @param httpText the text to explain
+	 * @return the first pattern that matches the text or {@code null} if the text is not
+	 * allowed
+	 */
+	public Pattern explain(String httpText) {
+		for (int i = 0; i < this.matchers.size(); i++) {
+			if (this.matchers.get(i).test(httpText)) {
+				return this.patterns.get(i);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Evaluates the patterns that allow the most URLs first. The order is updated
+	 * periodically as URLs are allowed and starts with the counts that the
+	 * {@link AdaptiveRuleOrder} already has. The patterns are OR'ed, so the order does not
+	 * change what is allowed. The default is to evaluate the patterns in order.
+	 * @param ruleOrder the {@link AdaptiveRuleOrder} to use or {@code null} to evaluate
+	 * the patterns in order
+	 */
+	public void setRuleOrder(AdaptiveRuleOrder ruleOrder) {
+		this.ruleOrder = ruleOrder;
+		if (ruleOrder == null) {
+			this.hits = null;
+			this.order = null;
+			return;
+		}
+		this.hits = this.patterns.stream()
+				.map(p -> ruleOrder.counter(p.pattern()))
+				.toArray(LongAdder[]::new);
+		reorder();
+	}
+
+	/**
+	 * Creates an instance for some of the patterns that uses the same
+	 * {@link RegexEngine} and {@link AdaptiveRuleOrder}
+	 */
+	RegexPredicate withPatterns(List<Pattern> patterns) {
+		RegexPredicate result = new RegexPredicate(patterns);
+		result.setEngine(this.engine);
+		result.setRuleOrder(this.ruleOrder);
+		return result;
+	}
+
+	private synchronized void reorder() {
+		LongAdder[] hits = this.hits;
+		if (hits == null) {
+			return;
+		}
+		long[] counts = Arrays.stream(hits).mapToLong(LongAdder::sum).toArray();
+		this.order = IntStream.range(0, counts.length)
+				.boxed()
+				.sorted(Comparator.comparingLong((Integer i) -> counts[i]).reversed())
+				.mapToInt(Integer::intValue)
+				.toArray();
+	}
+
+	List<Pattern> getPatterns() {
+		return this.patterns;
+	}
+
+	/**
+	 * The rules in the order of the patterns. Patterns that were not created from the
+	 * lines of an allowlist are classified by {@link AllowlistAnalyzer}.
+	 */
+	List<AllowlistRule> getRules() {
+		if (this.rules == null) {
+			this.rules = this.patterns.stream()
+					.map(p -> AllowlistAnalyzer.createRule("", 0, p.pattern(), p))
+					.collect(Collectors.toList());
+		}
+		return this.rules;
 	}
 
 	@Override
 	public boolean test(String httpText) {
-		return this.patterns.stream()
-				.anyMatch(p -> p.matcher(httpText).matches());
+		RuleProfile[] profiles = this.profiles;
+		int[] order = this.order;
+		if (profiles == null && order == null) {
+			return this.matchers.stream()
+					.anyMatch(m -> m.test(httpText));
+		}
+		for (int o = 0; o < this.matchers.size(); o++) {
+			int i = order == null ? o : order[o];
+			boolean matches;
+			if (profiles == null) {
+				matches = this.matchers.get(i).test(httpText);
+			}
+			else {
+				long start = System.nanoTime();
+				matches = this.matchers.get(i).test(httpText);
+				profiles[i].record(httpText, matches, System.nanoTime() - start);
+			}
+			if (matches) {
+				if (order != null) {
+					recordHit(i);
+				}
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void recordHit(int index) {
+		LongAdder[] hits = this.hits;
+		if (hits == null) {
+			return;
+		}
+		hits[index].increment();
+		if (this.hitsSinceReorder.incrementAndGet() % REORDER_INTERVAL == 0) {
+			reorder();
+		}
+	}
+
+	private static List<Predicate<String>> compile(List<Pattern> patterns, RegexEngine engine) {
+		return patterns.stream()
+				.map(engine::compile)
+				.collect(Collectors.toList());
 	}
 
 	/**
@@ -82,6 +280,12 @@ public class RegexPredicate implements Predicate<String> {
 	 *
 	 * <ul>
 	 *     <li>Each line contains a regular expression that should be allowed</li>
+	 *     <li>Lines can instead begin with a type of {@code exact:}, {@code prefix:},
+	 *     {@code host:}, {@code glob:} or {@code regex:}. {@link AllowRuleSet} evaluates
+	 *     {@code exact:}, {@code prefix:} and {@code host:} lines without regular
+	 *     expressions. A {@code glob:} line is evaluated as a regular expression unless it
+	 *     has no wildcards other than a trailing {@code **} and an optional leading
+	 *     {@code http://*.}</li>
 	 *     <li>Lines can begin with // to create a comment within the file</li>
 	 *     <li>Lines are trimmed for whitespace</li>
 	 *     <li>Lines that are empty are ignored</li>
@@ -92,15 +296,23 @@ public class RegexPredicate implements Predicate<String> {
 	 * <pre>
 	 * // Ignore Maven XML Namespace id of http://maven.apache.org/POM/4.0.0
 	 * ^http://maven\.apache\.org/POM/4.0.0$
+	 * // The same as the line above
+	 * exact:http://maven.apache.org/POM/4.0.0
 	 * // Allow Company XML namespace names but not the locations (which end in .xsd)
 	 * ^http://mycompany.test/xml/.*(?<!\.(xsd))$
+	 * // Allow all URLs on mycompany.internal and its subdomains (i.e. http://ci.mycompany.internal:8080/)
+	 * host:mycompany.internal
+	 * // Allow all URLs that start with http://repo.mycompany.test/public/
+	 * prefix:http://repo.mycompany.test/public/
+	 * // Allow every version of the schema (* does not match /, but ** does)
+	 * glob:http://mycompany.test/schema/mycompany-*.xsd
 	 * </pre>
 	 * @param resource
 	 * @return the {@link Predicate} that determines what is allowed
 	 */
 	public static Predicate<String> createAllowlistFromPatterns(InputStream resource) {
-		List<Pattern> patterns = createPatternsFromInputStream(resource);
-		return new RegexPredicate(patterns);
+		List<AllowlistRule> rules = createRulesFromInputStream(resource);
+		return fromRules(rules);
 	}
 
 	/**
@@ -153,12 +365,12 @@ public class RegexPredicate implements Predicate<String> {
 	}
 
 	/**
-	 * Reads an input stream and creates {@link Pattern} from the {@link InputStream} using
-	 * logic defined in {@link #createPatternsFromInputStream(InputStream)}
+	 * Reads an input stream and creates an {@link AllowlistRule} for each line using the
+	 * logic defined in {@link #createAllowlistFromPatterns(InputStream)}
 	 * @param resource the resource to load
-	 * @return a {@link List} of {@link Pattern}s
+	 * @return a {@link List} of {@link AllowlistRule}s
 	 */
-	private static List<Pattern> createPatternsFromInputStream(InputStream resource) {
+	private static List<AllowlistRule> createRulesFromInputStream(InputStream resource) {
 		if (resource == null) {
 			throw new IllegalStateException("Failed to load allowed from " + resource);
 		}
@@ -169,7 +381,7 @@ public class RegexPredicate implements Predicate<String> {
 					.map(String::trim)
 					.filter(l -> !l.startsWith("//"))
 					.filter(l -> l.length() != 0)
-					.map(Pattern::compile)
+					.map(l -> AllowlistSyntax.createRule("", 0, l))
 					.collect(Collectors.toList());
 		} catch (IOException e) {
 			throw new IllegalStateException(e);
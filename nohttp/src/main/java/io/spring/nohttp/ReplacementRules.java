@@ -0,0 +1,228 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.spring.nohttp;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Replaces http URLs using declarative rules, which is typically used with
+ * {@link RegexHttpMatcher#setHttpReplacer(Function)}. The rules are applied such that:
+ *
+ * <ul>
+ *     <li>If the URL starts with the prefix of a prefix rule, the prefix is replaced. If
+ *     multiple prefixes match, the longest one is used.</li>
+ *     <li>Otherwise, if the host (and port) of the URL has a host rule, the host is
+ *     replaced and the scheme is upgraded to https.</li>
+ *     <li>Otherwise, the scheme is upgraded to https.</li>
+ * </ul>
+ *
+ * <p>
+ * The rules are indexed by host, so a replacement is a hash lookup rather than a regular
+ * expression. The replacement of each unique URL is remembered, so a URL that occurs
+ * many times is only computed once.
+ * </p>
+ *
+ * @see #load(InputStream)
+ */
+public class ReplacementRules implements Function<String, String> {
+	private static final String SCHEME_SEPARATOR = "://";
+
+	private final Map<String, String> hostRewrites = new HashMap<>();
+
+	private final Map<String, List<PrefixRewrite>> hostToPrefixRewrites = new HashMap<>();
+
+	private final ConcurrentMap<String, String> httpUrlToReplacement = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates {@link ReplacementRules} from an {@link InputStream}.
+	 * The format of the {@link InputStream} contains a rule per line such that:
+	 *
+	 * <ul>
+	 *     <li>Each line contains what to replace and the replacement separated by
+	 *     whitespace</li>
+	 *     <li>If both contain {@code ://}, it is a prefix rule (i.e.
+	 *     {@code http://jcenter.bintray.com/ https://repo.maven.apache.org/maven2/})</li>
+	 *     <li>Otherwise, it is a host rule (i.e. {@code dl.bintray.com repo.example.org})</li>
+	 *     <li>Lines can begin with // to create a comment within the file</li>
+	 *     <li>Lines are trimmed for whitespace</li>
+	 *     <li>Lines that are empty are ignored</li>
+	 * </ul>
+	 *
+	 * @param resource the resource to load. It is closed once it has been read.
+	 * @return the {@link ReplacementRules}
+	 */
+	public static ReplacementRules load(InputStream resource) {
+		if (resource == null) {
+			throw new IllegalArgumentException("resource cannot be null");
+		}
+		ReplacementRules rules = new ReplacementRules();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource, StandardCharsets.UTF_8))) {
+			String line;
+			int lineNumber = 0;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("//")) {
+					continue;
+				}
+				String[] parts = line.split("\\s+");
+				if (parts.length != 2) {
+					throw new IllegalArgumentException("Line " + lineNumber + " must contain what to replace and the replacement but was '" + line + "'");
+				}
+				if (parts[0].contains(SCHEME_SEPARATOR) && parts[1].contains(SCHEME_SEPARATOR)) {
+					rules.addPrefixRewrite(parts[0], parts[1]);
+				}
+				else if (!parts[0].contains(SCHEME_SEPARATOR) && !parts[1].contains(SCHEME_SEPARATOR)) {
+					rules.addHostRewrite(parts[0], parts[1]);
+				}
+				else {
+					throw new IllegalArgumentException("Line " + lineNumber + " must contain two URL prefixes or two hosts but was '" + line + "'");
+				}
+			}
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return rules;
+	}
+
+	/**
+	 * Replaces the host (and port) of http URLs
+	 * @param host the host to replace (i.e. {@code dl.bintray.com})
+	 * @param replacement the replacement host (i.e. {@code repo.example.org})
+	 * @return the {@link ReplacementRules} for further customization
+	 */
+	public ReplacementRules addHostRewrite(String host, String replacement) {
+		if (host == null) {
+			throw new IllegalArgumentException("host cannot be null");
+		}
+		if (replacement == null) {
+			throw new IllegalArgumentException("replacement cannot be null");
+		}
+		this.hostRewrites.put(host.toLowerCase(Locale.ENGLISH), replacement);
+		this.httpUrlToReplacement.clear();
+		return this;
+	}
+
+	/**
+	 * Replaces the prefix of http URLs
+	 * @param prefix the prefix to replace, which must contain a host (i.e.
+	 * {@code http://jcenter.bintray.com/})
+	 * @param replacement the replacement of the prefix (i.e.
+	 * {@code https://repo.maven.apache.org/maven2/})
+	 * @return the {@link ReplacementRules} for further customization
+	 */
+	public ReplacementRules addPrefixRewrite(String prefix, String replacement) {
+		if (prefix == null) {
+			throw new IllegalArgumentException("prefix cannot be null");
+		}
+		if (replacement == null) {
+			throw new IllegalArgumentException("replacement cannot be null");
+		}
+		String host = host(prefix);
+		if (host == null) {
+			throw new IllegalArgumentException("prefix must contain :// but was " + prefix);
+		}
+		List<PrefixRewrite> rewrites = this.hostToPrefixRewrites.computeIfAbsent(host, h -> new ArrayList<>());
+		rewrites.add(new PrefixRewrite(prefix, replacement));
+		rewrites.sort((r1, r2) -> r2.prefix.length() - r1.prefix.length());
+		this.httpUrlToReplacement.clear();
+		return this;
+	}
+
+	@Override
+	public String apply(String httpUrl) {
+		return this.httpUrlToReplacement.computeIfAbsent(httpUrl, this::replace);
+	}
+
+	private String replace(String httpUrl) {
+		String host = host(httpUrl);
+		if (host == null) {
+			return httpUrl;
+		}
+		List<PrefixRewrite> prefixRewrites = this.hostToPrefixRewrites.get(host);
+		if (prefixRewrites != null) {
+			for (PrefixRewrite rewrite : prefixRewrites) {
+				if (httpUrl.startsWith(rewrite.prefix)) {
+					return rewrite.replacement + httpUrl.substring(rewrite.prefix.length());
+				}
+			}
+		}
+		String hostRewrite = this.hostRewrites.get(host);
+		if (hostRewrite != null) {
+			int hostStart = httpUrl.indexOf(SCHEME_SEPARATOR) + SCHEME_SEPARATOR.length();
+			return upgradeScheme(httpUrl.substring(0, hostStart)) + hostRewrite
+					+ httpUrl.substring(hostStart + host.length());
+		}
+		return upgradeScheme(httpUrl);
+	}
+
+	/**
+	 * Replaces the http scheme at the start of the text with https without a regular
+	 * expression
+	 * @param httpUrl the text that starts with http
+	 * @return the text with https or the original text if it does not start with http
+	 */
+	static String upgradeScheme(String httpUrl) {
+		if (!httpUrl.startsWith("http")) {
+			return httpUrl;
+		}
+		return "https" + httpUrl.substring(4);
+	}
+
+	/**
+	 * Finds the host (and port) in lower case
+	 * @return the host or {@code null} if the URL does not contain ://
+	 */
+	private static String host(String url) {
+		int schemeEnd = url.indexOf(SCHEME_SEPARATOR);
+		if (schemeEnd == -1) {
+			return null;
+		}
+		int hostStart = schemeEnd + SCHEME_SEPARATOR.length();
+		int hostEnd = hostStart;
+		while (hostEnd < url.length() && "/?#".indexOf(url.charAt(hostEnd)) == -1) {
+			hostEnd++;
+		}
+		return url.substring(hostStart, hostEnd).toLowerCase(Locale.ENGLISH);
+	}
+
+	private static class PrefixRewrite {
+		private final String prefix;
+
+		private final String replacement;
+
+		PrefixRewrite(String prefix, String replacement) {
+			this.prefix = prefix;
+			this.replacement = replacement;
+		}
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.spring.nohttp;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * How often an allowlist rule of a {@link RegexPredicate} was evaluated, how often it
+ * allowed a URL, and how long it took.
+ *
+ * @see RegexPredicate#setProfiling(boolean)
+ */
+public class RuleProfile {
+	private final Pattern pattern;
+
+	private final LongAdder evaluations = new LongAdder();
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder nanos = new LongAdder();
+
+	private final AtomicReference<String> firstExample = new AtomicReference<>();
+
+	RuleProfile(Pattern pattern) {
+		this.pattern = pattern;
+	}
+
+	void record(String url, boolean hit, long nanos) {
+		this.evaluations.increment();
+		this.nanos.add(nanos);
+		if (hit) {
+			this.hits.increment();
+			this.firstExample.compareAndSet(null, url);
+		}
+	}
+
+	/**
+	 * The rule
+	 * @return the rule
+	 */
+	public Pattern getPattern() {
+		return this.pattern;
+	}
+
+	/**
+	 * The number of URLs the rule was evaluated for. A rule is not evaluated when an
+	 * earlier rule allowed the URL.
+	 * @return the number of evaluations
+	 */
+	public long getEvaluations() {
+		return this.evaluations.sum();
+	}
+
+	/**
+	 * The number of URLs that were allowed by the rule
+	 * @return the number of hits
+	 */
+	public long getHits() {
+		return this.hits.sum();
+	}
+
+	/**
+	 * The total time spent evaluating the rule in nanoseconds
+	 * @return the total time in nanoseconds
+	 */
+	public long getNanos() {
+		return this.nanos.sum();
+	}
+
+	/**
+	 * The first URL that was allowed by the rule
+	 * @return the first URL or {@code null} if the rule has not allowed a URL
+	 */
+	public String getFirstExample() {
+		return this.firstExample.get();
+	}
+
+	@Override
+	public String toString() {
+		double millis = getNanos() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+		String result = String.format("%s %d hits in %d evaluations, %.3f ms", this.pattern, getHits(),
+				getEvaluations(), millis);
+		String example = getFirstExample();
+		return example == null ? result : result + " (first " + example + ")";
+	}
+}
@@ -0,0 +1,344 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.spring.nohttp;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Stores the statuses looked up by {@link StatusProber} in a file, so that later runs do
+ * not need to look up the same URLs again.
+ *
+ * <p>
+ * The file is an append-only log with a line per lookup containing the URL, the status
+ * (or {@code -} if the status could not be determined) and the time of the lookup in
+ * milliseconds separated by tabs. The file is read into memory when the cache is
+ * created, and the latest line for a URL wins. The log is compacted when the cache is
+ * closed if most of its lines have been replaced by newer lines or have expired.
+ * </p>
+ *
+ * <p>
+ * Statuses that are less than 400 expire after {@link #setTimeToLive(Duration)} and
+ * other results (i.e. errors or unreachable hosts) expire after
+ * {@link #setNegativeTimeToLive(Duration)}, so that failures are retried sooner.
+ * </p>
+ */
+public class StatusCache implements Closeable {
+	private static final String NO_STATUS = "-";
+
+	private final File file;
+
+	private final ConcurrentMap<String, Entry> urlToEntry = new ConcurrentHashMap<>();
+
+	private Duration timeToLive = Duration.ofDays(7);
+
+	private Duration negativeTimeToLive = Duration.ofHours(1);
+
+	private Clock clock = Clock.systemUTC();
+
+	private Writer writer;
+
+	private int lines;
+
+	/**
+	 * Creates a new instance that reads any existing entries from the file
+	 * @param file the file to store the statuses in. It is created if it does not exist.
+	 */
+	public StatusCache(File file) {
+		if (file == null) {
+			throw new IllegalArgumentException("file cannot be null");
+		}
+		this.file = file;
+		this.lines = read(file, this.urlToEntry);
+	}
+
+	/**
+	 * The default location of the cache, which is {@code nohttp/status.log} within
+	 * {@code $XDG_CACHE_HOME} or {@code ~/.cache}.
+	 * @return the default location of the cache
+	 */
+	public static File defaultLocation() {
+		String cacheHome = System.getenv("XDG_CACHE_HOME");
+		File cacheDir = cacheHome == null || cacheHome.isEmpty() ?
+				new File(System.getProperty("user.home"), ".cache") :
+				new File(cacheHome);
+		return new File(cacheDir, "nohttp/status.log");
+	}
+
+	/**
+	 * Sets how long statuses less than 400 are used. The default is 7 days.
+	 * @param timeToLive how long the statuses are used
+	 */
+	public void setTimeToLive(Duration timeToLive) {
+		if (timeToLive == null) {
+			throw new IllegalArgumentException("timeToLive cannot be null");
+		}
+		this.timeToLive = timeToLive;
+	}
+
+	/**
+	 * Sets how long statuses that are 400 or greater, or that could not be determined, are
+	 * used. The default is 1 hour.
+	 * @param negativeTimeToLive how long the negative results are used
+	 */
+	public void setNegativeTimeToLive(Duration negativeTimeToLive) {
+		if (negativeTimeToLive == null) {
+			throw new IllegalArgumentException("negativeTimeToLive cannot be null");
+		}
+		this.negativeTimeToLive = negativeTimeToLive;
+	}
+
+	/**
+	 * Sets the {@link Clock} used to determine if an entry has expired.
+	 * @param clock the {@link Clock} to use
+	 */
+	public void setClock(Clock clock) {
+		if (clock == null) {
+			throw new IllegalArgumentException("clock cannot be null");
+		}
+		this.clock = clock;
+	}
+
+	/**
+	 * Gets the cached lookup for the URL
+	 * @param url the URL to look up
+	 * @return the lookup or {@code null} if the URL is not cached or the entry has
+	 * expired
+	 */
+	public Entry get(String url) {
+		Entry entry = this.urlToEntry.get(url);
+		if (entry == null || isExpired(entry)) {
+			return null;
+		}
+		return entry;
+	}
+
+	/**
+	 * Stores the status of the URL
+	 * @param url the URL
+	 * @param status the status or {@code null} if it could not be determined
+	 */
+	public void put(String url, Integer status) {
+		if (url == null) {
+			throw new IllegalArgumentException("url cannot be null");
+		}
+		Entry entry = new Entry(status, this.clock.millis());
+		this.urlToEntry.put(url, entry);
+		append(url, entry);
+	}
+
+	/**
+	 * Writes the entries that have not expired to a file that can be used by
+	 * {@link #importFrom(File)} (i.e. to share a cache between CI agents).
+	 * @param destination the file to write to
+	 */
+	public void exportTo(File destination) {
+		if (destination == null) {
+			throw new IllegalArgumentException("destination cannot be null");
+		}
+		List<String> lines = new ArrayList<>();
+		for (Map.Entry<String, Entry> entry : this.urlToEntry.entrySet()) {
+			if (!isExpired(entry.getValue())) {
+				lines.add(format(entry.getKey(), entry.getValue()));
+			}
+		}
+		write(destination, lines);
+	}
+
+	/**
+	 * Adds the entries in a file written by {@link #exportTo(File)}. Entries replace
+	 * existing entries that were looked up earlier.
+	 * @param source the file to read
+	 */
+	public void importFrom(File source) {
+		if (source == null) {
+			throw new IllegalArgumentException("source cannot be null");
+		}
+		Map<String, Entry> imported = new HashMap<>();
+		read(source, imported);
+		imported.forEach((url, entry) -> {
+			Entry current = this.urlToEntry.get(url);
+			if (current == null || current.getTime() < entry.getTime()) {
+				this.urlToEntry.put(url, entry);
+				append(url, entry);
+			}
+		});
+	}
+
+	/**
+	 * Closes the file and compacts it if most of its lines are no longer used. The
+	 * expired entries are dropped when compacting, so the time to live must be set before
+	 * closing.
+	 */
+	@Override
+	public synchronized void close() {
+		closeWriter();
+		this.urlToEntry.values().removeIf(this::isExpired);
+		if (this.lines > 2 * this.urlToEntry.size()) {
+			compact();
+		}
+	}
+
+	private synchronized void closeWriter() {
+		if (this.writer != null) {
+			try {
+				this.writer.close();
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			this.writer = null;
+		}
+	}
+
+	private boolean isExpired(Entry entry) {
+		Duration timeToLive = entry.isNegative() ? this.negativeTimeToLive : this.timeToLive;
+		return entry.getTime() + timeToLive.toMillis() < this.clock.millis();
+	}
+
+	private static int read(File file, Map<String, Entry> urlToEntry) {
+		if (!file.exists()) {
+			return 0;
+		}
+		try {
+			List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+			for (String line : lines) {
+				String[] parts = line.split("\t");
+				if (parts.length != 3) {
+					continue;
+				}
+				try {
+					Integer status = NO_STATUS.equals(parts[1]) ? null : Integer.valueOf(parts[1]);
+					urlToEntry.put(parts[0], new Entry(status, Long.parseLong(parts[2])));
+				}
+				catch (NumberFormatException e) {
+					// ignore lines that were partially written
+				}
+			}
+			return lines.size();
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException("Could not read " + file, e);
+		}
+	}
+
+	private void compact() {
+		List<String> lines = new ArrayList<>();
+		this.urlToEntry.forEach((url, entry) -> lines.add(format(url, entry)));
+		File compacted = new File(this.file.getPath() + ".tmp");
+		write(compacted, lines);
+		try {
+			Files.move(compacted.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			this.lines = lines.size();
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException("Could not compact " + this.file, e);
+		}
+	}
+
+	private synchronized void append(String url, Entry entry) {
+		try {
+			if (this.writer == null) {
+				createParentDirs(this.file);
+				this.writer = Files.newBufferedWriter(this.file.toPath(), StandardCharsets.UTF_8,
+						StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+			}
+			this.writer.write(format(url, entry));
+			this.writer.write("\n");
+			this.writer.flush();
+			this.lines++;
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException("Could not write to " + this.file, e);
+		}
+	}
+
+	private static void write(File destination, List<String> lines) {
+		createParentDirs(destination);
+		try (BufferedWriter writer = Files.newBufferedWriter(destination.toPath(), StandardCharsets.UTF_8)) {
+			for (String line : lines) {
+				writer.write(line);
+				writer.write("\n");
+			}
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException("Could not write to " + destination, e);
+		}
+	}
+
+	private static void createParentDirs(File file) {
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (parent != null) {
+			parent.mkdirs();
+		}
+	}
+
+	private static String format(String url, Entry entry) {
+		String status = entry.getStatus() == null ? NO_STATUS : String.valueOf(entry.getStatus());
+		return url + "\t" + status + "\t" + entry.getTime();
+	}
+
+	/**
+	 * The result of looking up a URL
+	 */
+	public static class Entry {
+		private final Integer status;
+
+		private final long time;
+
+		Entry(Integer status, long time) {
+			this.status = status;
+			this.time = time;
+		}
+
+		/**
+		 * The status
+		 * @return the status or {@code null} if it could not be determined
+		 */
+		public Integer getStatus() {
+			return this.status;
+		}
+
+		/**
+		 * The time of the lookup in milliseconds since the epoch
+		 * @return the time of the lookup
+		 */
+		public long getTime() {
+			return this.time;
+		}
+
+		boolean isNegative() {
+			return this.status == null || this.status >= 400;
+		}
+	}
+}
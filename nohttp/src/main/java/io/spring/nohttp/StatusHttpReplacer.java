@@ -1,52 +1,191 @@
 package io.spring.nohttp;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import java.net.HttpURLConnection;
+import java.io.Closeable;
+import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 
 /**
+ * Replaces an http URL with https if the https URL works. The requests that are made
+ * are determined by the {@link ProbeStrategy}, and by default an http URL is replaced if
+ * the https URL responds with a 2xx status. The statuses are looked up by a
+ * {@link StatusProber}, so {@link #applyAsync(String)} can be used to look up many URLs
+ * concurrently.
+ *
  * @author Rob Winch
  */
-public class StatusHttpReplacer implements Function<String, String> {
-	private Logger logger = LoggerFactory.getLogger(StatusHttpReplacer.class);
+public class StatusHttpReplacer implements Function<String, String>, Closeable {
+	private final StatusProber prober;
+
+	private final boolean closeProber;
+
+	private ProbeStrategy probeStrategy = ProbeStrategy.URL;
 
-	private static final Integer OK = Integer.valueOf(200);
+	private KnownHttpsHosts knownHttpsHosts = KnownHttpsHosts.bundled();
 
-	private ConcurrentMap<String, Integer> urlToStatus = new ConcurrentHashMap<>();
+	private Function<String, String> httpReplacer = ReplacementRules::upgradeScheme;
+
+	/**
+	 * Creates a new instance with its own {@link StatusProber}. The instance must be
+	 * {@link #close() closed} to stop the threads of the {@link StatusProber}.
+	 */
+	public StatusHttpReplacer() {
+		this(new StatusProber(), true);
+	}
 
-	private int timeout = 1000;
+	/**
+	 * Creates a new instance
+	 * @param prober the {@link StatusProber} used to look up the status of the https URLs.
+	 * It is not closed by {@link #close()}, so it can be shared.
+	 */
+	public StatusHttpReplacer(StatusProber prober) {
+		this(prober, false);
+	}
+
+	private StatusHttpReplacer(StatusProber prober, boolean closeProber) {
+		if (prober == null) {
+			throw new IllegalArgumentException("prober cannot be null");
+		}
+		this.prober = prober;
+		this.closeProber = closeProber;
+	}
 
 	public void setTimeout(int timeout) {
-		this.timeout = timeout;
+		this.prober.setTimeout(timeout);
+	}
+
+	/**
+	 * Sets the {@link ProbeStrategy}. The default is {@link ProbeStrategy#URL}.
+	 * @param probeStrategy the {@link ProbeStrategy} to use
+	 */
+	public void setProbeStrategy(ProbeStrategy probeStrategy) {
+		if (probeStrategy == null) {
+			throw new IllegalArgumentException("probeStrategy cannot be null");
+		}
+		this.probeStrategy = probeStrategy;
+	}
+
+	/**
+	 * Sets the {@link Function} that creates the https URL to check from the http URL
+	 * (i.e. {@link ReplacementRules}). The default replaces the http scheme with https.
+	 * @param httpReplacer the replacer to use
+	 */
+	public void setHttpReplacer(Function<String, String> httpReplacer) {
+		if (httpReplacer == null) {
+			throw new IllegalArgumentException("httpReplacer cannot be null");
+		}
+		this.httpReplacer = httpReplacer;
+	}
+
+	/**
+	 * Sets the hosts that are known to serve https. URLs on these hosts are replaced
+	 * without making any requests, regardless of the {@link ProbeStrategy}. The default
+	 * is {@link KnownHttpsHosts#bundled()}.
+	 * @param knownHttpsHosts the hosts that are known to serve https
+	 */
+	public void setKnownHttpsHosts(KnownHttpsHosts knownHttpsHosts) {
+		if (knownHttpsHosts == null) {
+			throw new IllegalArgumentException("knownHttpsHosts cannot be null");
+		}
+		this.knownHttpsHosts = knownHttpsHosts;
 	}
 
 	@Override
 	public String apply(String httpUrl) {
-		String httpsUrl = httpUrl.replaceFirst("http", "https");
-		Integer status = findStatus(httpsUrl);
-		return OK.equals(status) ? httpsUrl : httpUrl;
+		return applyAsync(httpUrl).join();
 	}
 
-	private Integer findStatus(String url) {
-		return this.urlToStatus.computeIfAbsent(url, key -> getStatus(key));
+	/**
+	 * Looks up the replacement for the URL without waiting for the status.
+	 * @param httpUrl the http URL to replace
+	 * @return a future that completes with the https URL if it works, else the original
+	 * URL
+	 */
+	public CompletableFuture<String> applyAsync(String httpUrl) {
+		String httpsUrl = this.httpReplacer.apply(httpUrl);
+		if (this.knownHttpsHosts.contains(httpsUrl)) {
+			return CompletableFuture.completedFuture(httpsUrl);
+		}
+		CompletableFuture<Boolean> works;
+		switch (this.probeStrategy) {
+			case HOST:
+				works = servesHttps(httpsUrl);
+				break;
+			case HOST_AND_URL:
+				works = servesHttps(httpsUrl).thenCompose(servesHttps -> servesHttps ?
+						isSuccessful(httpsUrl) :
+						CompletableFuture.completedFuture(false));
+				break;
+			default:
+				works = isSuccessful(httpsUrl);
+		}
+		return works.thenApply(w -> w ? httpsUrl : httpUrl);
+	}
+
+	private CompletableFuture<Boolean> isSuccessful(String httpsUrl) {
+		return probe(httpsUrl)
+				.thenApply(status -> status != null && status >= 200 && status < 300);
+	}
+
+	private CompletableFuture<Boolean> servesHttps(String httpsUrl) {
+		String root = root(httpsUrl);
+		if (root == null) {
+			return CompletableFuture.completedFuture(false);
+		}
+		return probe(root)
+				.thenApply(status -> status != null && status < 500);
+	}
+
+	/**
+	 * Probes the URL, treating URLs that were skipped as having no status
+	 */
+	private CompletableFuture<Integer> probe(String url) {
+		return this.prober.probe(url).handle((status, failure) -> failure == null ? status : null);
 	}
 
-	private Integer getStatus(String url) {
-		this.logger.debug("Looking up status for {}", url);
+	private static String root(String httpsUrl) {
 		try {
-			HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
-			connection.setConnectTimeout(this.timeout);
-			connection.setReadTimeout(this.timeout);
-			return connection.getResponseCode();
+			URL url = new URL(httpsUrl);
+			return url.getProtocol() + "://" + url.getAuthority() + "/";
 		}
-		catch (Exception e) {
+		catch (MalformedURLException e) {
 			return null;
 		}
 	}
+
+	/**
+	 * Looks up the replacements for all of the URLs concurrently.
+	 * @param httpUrls the http URLs to replace
+	 * @return a future that completes with a {@link Map} of each http URL to its
+	 * replacement once every URL has been looked up
+	 */
+	public CompletableFuture<Map<String, String>> applyAll(Collection<String> httpUrls) {
+		if (httpUrls == null) {
+			throw new IllegalArgumentException("httpUrls cannot be null");
+		}
+		Map<String, CompletableFuture<String>> replacements = new HashMap<>();
+		for (String httpUrl : httpUrls) {
+			replacements.put(httpUrl, applyAsync(httpUrl));
+		}
+		CompletableFuture<?>[] futures = replacements.values().toArray(new CompletableFuture<?>[0]);
+		return CompletableFuture.allOf(futures).thenApply(done -> {
+			Map<String, String> result = new HashMap<>();
+			replacements.forEach((httpUrl, replacement) -> result.put(httpUrl, replacement.join()));
+			return result;
+		});
+	}
+
+	/**
+	 * Closes the {@link StatusProber} if it was created by this instance
+	 */
+	@Override
+	public void close() {
+		if (this.closeProber) {
+			this.prober.close();
+		}
+	}
 }
@@ -0,0 +1,540 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.spring.nohttp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Looks up the HTTP status of URLs in the background. Callers get a
+ * {@link CompletableFuture} immediately, so finding URLs does not wait on the network.
+ *
+ * <p>
+ * The status is looked up with a HEAD request, falling back to a GET for a single byte if
+ * the server does not support HEAD. Redirects are followed up to
+ * {@link #setMaxRedirects(int) maxRedirects} times, and the status is that of the final
+ * response. A redirect from https to http means the URL does not work with https, so it
+ * has no status.
+ * </p>
+ *
+ * <ul>
+ * <li>At most {@code maxConcurrency} requests are made at once.</li>
+ * <li>At most {@link #setMaxConnectionsPerHost(int) maxConnectionsPerHost} requests are
+ * made to the same host at once. Additional requests for a busy host wait in a queue
+ * without holding a thread.</li>
+ * <li>Each URL is requested once. Requests for a URL that is already being looked up, or
+ * that was already looked up, get the same future.</li>
+ * <li>Optionally, at most {@link #setMaxRequestsPerSecondPerHost(double)
+ * maxRequestsPerSecondPerHost} requests per second are made to the same host.</li>
+ * <li>After {@link #setMaxConsecutiveFailuresPerHost(int) maxConsecutiveFailuresPerHost}
+ * consecutive failures, the remaining URLs on a host are skipped, so that a host that is
+ * down does not wait for the timeout of every URL.</li>
+ * </ul>
+ *
+ * The future completes with {@code null} if the status cannot be determined (i.e. the
+ * host cannot be reached or the request times out). Statuses can be kept between runs
+ * with a {@link StatusCache}.
+ */
+public class StatusProber implements Closeable {
+	private static final int DEFAULT_MAX_CONCURRENCY = 16;
+
+	private Logger logger = LoggerFactory.getLogger(StatusProber.class);
+
+	private final ConcurrentMap<String, CompletableFuture<Integer>> urlToStatus = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<String, HostQueue> hostToQueue = new ConcurrentHashMap<>();
+
+	private final ExecutorService executor;
+
+	private final ScheduledExecutorService scheduler;
+
+	private int timeout = 1000;
+
+	private int maxConnectionsPerHost = 4;
+
+	private int maxRedirects = 5;
+
+	private SSLSocketFactory sslSocketFactory;
+
+	private StatusCache statusCache;
+
+	private boolean offline;
+
+	private double maxRequestsPerSecondPerHost;
+
+	private int maxConsecutiveFailuresPerHost = 3;
+
+	/**
+	 * Creates a new instance that makes at most 16 requests at once.
+	 */
+	public StatusProber() {
+		this(DEFAULT_MAX_CONCURRENCY);
+	}
+
+	/**
+	 * Creates a new instance
+	 * @param maxConcurrency the maximum number of requests to make at once
+	 */
+	public StatusProber(int maxConcurrency) {
+		if (maxConcurrency <= 0) {
+			throw new IllegalArgumentException("maxConcurrency must be greater than 0");
+		}
+		this.executor = Executors.newFixedThreadPool(maxConcurrency, new ProberThreadFactory());
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(new ProberThreadFactory());
+	}
+
+	/**
+	 * Sets the connect and read timeout in milliseconds. The default is 1000.
+	 * @param timeout the timeout in milliseconds
+	 */
+	public void setTimeout(int timeout) {
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Sets the maximum number of requests to make to the same host at once. The default
+	 * is 4.
+	 * @param maxConnectionsPerHost the maximum number of requests per host
+	 */
+	public void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+		if (maxConnectionsPerHost <= 0) {
+			throw new IllegalArgumentException("maxConnectionsPerHost must be greater than 0");
+		}
+		this.maxConnectionsPerHost = maxConnectionsPerHost;
+	}
+
+	/**
+	 * Sets the maximum number of requests per second to make to the same host. Requests
+	 * are allowed in bursts of up to {@link #setMaxConnectionsPerHost(int)
+	 * maxConnectionsPerHost}. The default is 0, which does not limit the rate.
+	 * @param maxRequestsPerSecondPerHost the maximum number of requests per second per
+	 * host or 0 for no limit
+	 */
+	public void setMaxRequestsPerSecondPerHost(double maxRequestsPerSecondPerHost) {
+		if (maxRequestsPerSecondPerHost < 0) {
+			throw new IllegalArgumentException("maxRequestsPerSecondPerHost cannot be negative");
+		}
+		this.maxRequestsPerSecondPerHost = maxRequestsPerSecondPerHost;
+	}
+
+	/**
+	 * Sets the number of consecutive requests to a host that can fail (i.e. time out or
+	 * cannot connect) before the remaining URLs on the host are skipped. The futures of
+	 * skipped URLs complete exceptionally with a {@link ProbeSkippedException} and are not
+	 * stored in the {@link StatusCache}. The default is 3.
+	 * @param maxConsecutiveFailuresPerHost the number of failures before a host is skipped
+	 */
+	public void setMaxConsecutiveFailuresPerHost(int maxConsecutiveFailuresPerHost) {
+		if (maxConsecutiveFailuresPerHost <= 0) {
+			throw new IllegalArgumentException("maxConsecutiveFailuresPerHost must be greater than 0");
+		}
+		this.maxConsecutiveFailuresPerHost = maxConsecutiveFailuresPerHost;
+	}
+
+	/**
+	 * Gets the latency and outcomes of the requests to each host that has been probed
+	 * @return the metrics of each host
+	 */
+	public List<HostMetrics> getHostMetrics() {
+		List<HostMetrics> result = new ArrayList<>();
+		this.hostToQueue.forEach((host, queue) -> result.add(queue.metrics(host)));
+		return result;
+	}
+
+	/**
+	 * Sets the maximum number of redirects to follow. The default is 5.
+	 * @param maxRedirects the maximum number of redirects to follow
+	 */
+	public void setMaxRedirects(int maxRedirects) {
+		if (maxRedirects < 0) {
+			throw new IllegalArgumentException("maxRedirects cannot be negative");
+		}
+		this.maxRedirects = maxRedirects;
+	}
+
+	/**
+	 * Sets the {@link SSLSocketFactory} to use for https URLs. The default is
+	 * {@link HttpsURLConnection#getDefaultSSLSocketFactory()}.
+	 * @param sslSocketFactory the {@link SSLSocketFactory} to use
+	 */
+	public void setSslSocketFactory(SSLSocketFactory sslSocketFactory) {
+		if (sslSocketFactory == null) {
+			throw new IllegalArgumentException("sslSocketFactory cannot be null");
+		}
+		this.sslSocketFactory = sslSocketFactory;
+	}
+
+	/**
+	 * Sets the {@link StatusCache} that is checked before a URL is requested and that
+	 * the results of the requests are stored in. The default is to not use a cache.
+	 * @param statusCache the {@link StatusCache} to use
+	 */
+	public void setStatusCache(StatusCache statusCache) {
+		if (statusCache == null) {
+			throw new IllegalArgumentException("statusCache cannot be null");
+		}
+		this.statusCache = statusCache;
+	}
+
+	/**
+	 * If true, no requests are made and only the {@link #setStatusCache(StatusCache)
+	 * StatusCache} is used. URLs that are not in the cache have no status. The default is
+	 * false.
+	 * @param offline true if no requests should be made
+	 */
+	public void setOffline(boolean offline) {
+		this.offline = offline;
+	}
+
+	/**
+	 * Looks up the status of the URL
+	 * @param url the URL to look up
+	 * @return a future that completes with the status or {@code null} if the status cannot
+	 * be determined, or completes exceptionally with a {@link ProbeSkippedException} if the
+	 * host failed too many times
+	 */
+	public CompletableFuture<Integer> probe(String url) {
+		if (url == null) {
+			throw new IllegalArgumentException("url cannot be null");
+		}
+		CompletableFuture<Integer> status = this.urlToStatus.get(url);
+		if (status != null) {
+			return status;
+		}
+		CompletableFuture<Integer> newStatus = new CompletableFuture<>();
+		status = this.urlToStatus.putIfAbsent(url, newStatus);
+		if (status != null) {
+			return status;
+		}
+		StatusCache.Entry cached = this.statusCache == null ? null : this.statusCache.get(url);
+		if (cached != null) {
+			newStatus.complete(cached.getStatus());
+		}
+		else if (this.offline) {
+			this.logger.debug("Offline and no cached status for {}", url);
+			newStatus.complete(null);
+		}
+		else {
+			HostQueue queue = this.hostToQueue.computeIfAbsent(host(url), h -> new HostQueue());
+			queue.submit(new Probe(url, newStatus));
+		}
+		return newStatus;
+	}
+
+	@Override
+	public void close() {
+		this.scheduler.shutdownNow();
+		this.executor.shutdownNow();
+	}
+
+	private void cacheStatus(String url, Integer status) {
+		// a request interrupted by close() says nothing about the URL
+		if (this.statusCache != null && !Thread.currentThread().isInterrupted()) {
+			try {
+				this.statusCache.put(url, status);
+			}
+			catch (UncheckedIOException e) {
+				this.logger.warn("Could not cache status for {}: {}", url, e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Looks up the status
+	 * @return the status or {@code null} if the redirects do not lead to a status
+	 * @throws IOException if the host cannot be reached or the request times out
+	 */
+	private Integer getStatus(String url) throws IOException {
+		this.logger.debug("Looking up status for {}", url);
+		URL current = new URL(url);
+		for (int redirects = 0; ; redirects++) {
+			Response response = request(current, "HEAD");
+			if (response.status == HttpURLConnection.HTTP_BAD_METHOD || response.status == HttpURLConnection.HTTP_NOT_IMPLEMENTED) {
+				response = request(current, "GET");
+			}
+			if (!response.isRedirect()) {
+				return response.status;
+			}
+			if (redirects >= this.maxRedirects) {
+				this.logger.debug("Too many redirects for {}", url);
+				return null;
+			}
+			URL next = new URL(current, response.location);
+			if ("https".equals(current.getProtocol()) && !"https".equals(next.getProtocol())) {
+				this.logger.debug("{} redirects to {}", url, next);
+				return null;
+			}
+			current = next;
+		}
+	}
+
+	/**
+	 * Makes a single request without following redirects. A GET only asks for the first
+	 * byte, so that the response body is not downloaded.
+	 */
+	private Response request(URL url, String method) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		if (this.sslSocketFactory != null && connection instanceof HttpsURLConnection) {
+			((HttpsURLConnection) connection).setSSLSocketFactory(this.sslSocketFactory);
+		}
+		connection.setConnectTimeout(this.timeout);
+		connection.setReadTimeout(this.timeout);
+		connection.setInstanceFollowRedirects(false);
+		connection.setRequestMethod(method);
+		if ("GET".equals(method)) {
+			connection.setRequestProperty("Range", "bytes=0-0");
+		}
+		try {
+			return new Response(connection.getResponseCode(), connection.getHeaderField("Location"));
+		}
+		finally {
+			connection.disconnect();
+		}
+	}
+
+	private static String host(String url) {
+		try {
+			return new URL(url).getAuthority();
+		}
+		catch (Exception e) {
+			return url;
+		}
+	}
+
+	/**
+	 * A URL that is waiting to be looked up
+	 */
+	private static class Probe {
+		private final String url;
+
+		private final CompletableFuture<Integer> status;
+
+		Probe(String url, CompletableFuture<Integer> status) {
+			this.url = url;
+			this.status = status;
+		}
+	}
+
+	/**
+	 * Schedules the requests for a single host. It limits the number of requests that are
+	 * running and the rate at which they start, with a token bucket. Requests that exceed
+	 * the limits wait without holding a thread. It also stops making requests to a host
+	 * after too many consecutive failures.
+	 */
+	private class HostQueue {
+		private final Deque<Probe> pending = new ArrayDeque<>();
+
+		private int active;
+
+		private double tokens = StatusProber.this.maxConnectionsPerHost;
+
+		private long lastRefill = System.nanoTime();
+
+		private int consecutiveFailures;
+
+		private String skipReason;
+
+		private int requests;
+
+		private int failures;
+
+		private int skipped;
+
+		private long totalLatency;
+
+		private long maxLatency;
+
+		void submit(Probe probe) {
+			synchronized (this) {
+				if (this.skipReason != null) {
+					this.skipped++;
+				}
+				else if (this.active < StatusProber.this.maxConnectionsPerHost) {
+					this.active++;
+				}
+				else {
+					this.pending.add(probe);
+					return;
+				}
+			}
+			if (isSkipped()) {
+				skip(probe);
+			}
+			else {
+				dispatch(probe);
+			}
+		}
+
+		private synchronized boolean isSkipped() {
+			return this.skipReason != null;
+		}
+
+		synchronized HostMetrics metrics(String host) {
+			return new HostMetrics(host, this.requests, this.failures, this.skipped,
+					Duration.ofNanos(this.totalLatency), Duration.ofNanos(this.maxLatency), this.skipReason);
+		}
+
+		private void skip(Probe probe) {
+			String reason;
+			synchronized (this) {
+				reason = this.skipReason;
+			}
+			probe.status.completeExceptionally(new ProbeSkippedException(probe.url, reason));
+		}
+
+		private void dispatch(Probe probe) {
+			long delay = reservePermit();
+			if (delay > 0) {
+				StatusProber.this.scheduler.schedule(() -> execute(probe), delay, TimeUnit.NANOSECONDS);
+			}
+			else {
+				execute(probe);
+			}
+		}
+
+		/**
+		 * Takes a token from the bucket
+		 * @return the number of nanoseconds to wait until the token is available
+		 */
+		private synchronized long reservePermit() {
+			double rate = StatusProber.this.maxRequestsPerSecondPerHost;
+			if (rate <= 0) {
+				return 0;
+			}
+			long now = System.nanoTime();
+			double burst = StatusProber.this.maxConnectionsPerHost;
+			this.tokens = Math.min(burst, this.tokens + (now - this.lastRefill) * rate / TimeUnit.SECONDS.toNanos(1));
+			this.lastRefill = now;
+			this.tokens--;
+			if (this.tokens >= 0) {
+				return 0;
+			}
+			return (long) (-this.tokens / rate * TimeUnit.SECONDS.toNanos(1));
+		}
+
+		private void execute(Probe probe) {
+			StatusProber.this.executor.execute(() -> run(probe));
+		}
+
+		private void run(Probe probe) {
+			long start = System.nanoTime();
+			Integer status = null;
+			boolean failed = false;
+			try {
+				status = getStatus(probe.url);
+			}
+			catch (Exception e) {
+				StatusProber.this.logger.debug("Could not get status for {}: {}", probe.url, e.toString());
+				failed = true;
+			}
+			List<Probe> skip = finished(probe, failed, System.nanoTime() - start);
+			try {
+				cacheStatus(probe.url, status);
+			}
+			finally {
+				probe.status.complete(status);
+				skip.forEach(this::skip);
+			}
+		}
+
+		/**
+		 * Records the outcome and starts the next request
+		 * @return the pending requests to skip because the host failed too many times
+		 */
+		private List<Probe> finished(Probe probe, boolean failed, long latency) {
+			List<Probe> skip = new ArrayList<>();
+			Probe next;
+			synchronized (this) {
+				this.requests++;
+				this.totalLatency += latency;
+				this.maxLatency = Math.max(this.maxLatency, latency);
+				if (failed) {
+					this.failures++;
+					this.consecutiveFailures++;
+					if (this.skipReason == null && this.consecutiveFailures >= StatusProber.this.maxConsecutiveFailuresPerHost) {
+						this.skipReason = this.consecutiveFailures + " consecutive requests failed";
+						StatusProber.this.logger.debug("Skipping {} because {}", host(probe.url), this.skipReason);
+					}
+				}
+				else {
+					this.consecutiveFailures = 0;
+				}
+				if (this.skipReason != null) {
+					skip.addAll(this.pending);
+					this.skipped += this.pending.size();
+					this.pending.clear();
+				}
+				next = this.pending.poll();
+				if (next == null) {
+					this.active--;
+				}
+			}
+			if (next != null) {
+				dispatch(next);
+			}
+			return skip;
+		}
+	}
+
+	private static class Response {
+		private final int status;
+
+		private final String location;
+
+		Response(int status, String location) {
+			this.status = status;
+			this.location = location;
+		}
+
+		boolean isRedirect() {
+			return this.location != null && this.status >= 300 && this.status < 400;
+		}
+	}
+
+	private static class ProberThreadFactory implements ThreadFactory {
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "nohttp-prober-" + this.count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.spring.nohttp;
+
+/**
+ * Finds the URLs within text one at a time, in the same manner as
+ * {@link java.util.regex.Matcher#find()}.
+ */
+interface UrlFinder {
+	/**
+	 * Finds the next URL
+	 * @return true if a URL was found
+	 */
+	boolean find();
+
+	/**
+	 * The index of the first character of the URL that was found
+	 * @return the start index
+	 */
+	int start();
+
+	/**
+	 * The index after the last character of the URL that was found
+	 * @return the end index
+	 */
+	int end();
+}
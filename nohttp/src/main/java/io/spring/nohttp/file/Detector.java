@@ -0,0 +1,234 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.spring.nohttp.file;
+
+import io.spring.nohttp.GradleHttpDsl;
+import io.spring.nohttp.HttpMatcher;
+import io.spring.nohttp.HttpReplaceResult;
+import io.spring.nohttp.HttpReplacer;
+import io.spring.nohttp.MavenRepositoryHttpMatcher;
+import io.spring.nohttp.RegexHttpMatcher;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Finds (and optionally replaces) insecure text within the files that it applies to. A
+ * {@link DetectorProcessor} runs multiple detectors with a single read of each file.
+ *
+ * Example usage:
+ *
+ * <pre>
+ * Detector.create("ftp", matcher, matcher)
+ *     // only process files that end with ".xml"
+ *     .appliesTo(f -&gt; f.getName().endsWith(".xml"))
+ *     // only run the matcher if the file contains ftp://
+ *     .literals("ftp://");
+ * </pre>
+ *
+ * @see DetectorProcessor
+ */
+public class Detector {
+	private static final String URL_CHARS = "[-a-zA-Z0-9+&@/%?=~_|!:,.;]*[-a-zA-Z0-9+&@/%=~_|]";
+
+	private final String name;
+
+	private final HttpMatcher matcher;
+
+	private HttpReplacer replacer;
+
+	private boolean reportOnly;
+
+	private Predicate<File> appliesTo = f -> true;
+
+	private List<String> literals = Collections.emptyList();
+
+	private Detector(String name, HttpMatcher matcher, HttpReplacer replacer) {
+		if (name == null) {
+			throw new IllegalArgumentException("name cannot be null");
+		}
+		if (matcher == null) {
+			throw new IllegalArgumentException("matcher cannot be null");
+		}
+		if (replacer == null) {
+			throw new IllegalArgumentException("replacer cannot be null");
+		}
+		this.name = name;
+		this.matcher = matcher;
+		this.replacer = replacer;
+	}
+
+	/**
+	 * Creates a new instance
+	 * @param name the name of the detector
+	 * @param matcher the {@link HttpMatcher} used to find results
+	 * @param replacer the {@link HttpReplacer} used to replace results
+	 * @return the {@link Detector} for further customization
+	 */
+	public static Detector create(String name, HttpMatcher matcher, HttpReplacer replacer) {
+		return new Detector(name, matcher, replacer);
+	}
+
+	/**
+	 * Creates a detector named http that finds http:// URLs in every file
+	 * @param matcher the matcher to use, which determines the URLs that are allowed
+	 * @return the {@link Detector}
+	 */
+	public static Detector http(RegexHttpMatcher matcher) {
+		return create("http", matcher, matcher)
+			.literals("http");
+	}
+
+	/**
+	 * Creates a detector named gradle-dsl that finds Gradle DSLs that use http (i.e.
+	 * mavenCentral() and jcenter()) in the .gradle files of projects that use Gradle &lt;
+	 * 2.1.
+	 * @return the {@link Detector}
+	 * @see GradleHttpDsl
+	 */
+	public static Detector gradleDsl() {
+		return create("gradle-dsl", GradleHttpDsl.createMatcher(), GradleHttpDsl.createReplacer())
+			.appliesTo(new LegacyGradleFiles())
+			.literals("mavenCentral()", "jcenter()");
+	}
+
+	/**
+	 * Creates a detector named ftp that finds ftp:// URLs in every file. The URLs are only
+	 * reported, because a host that serves ftp does not necessarily serve https.
+	 * @param allow the rule to be used determine if an ftp URL is allowed
+	 * @return the {@link Detector}
+	 */
+	public static Detector ftp(Predicate<String> allow) {
+		RegexHttpMatcher matcher = new RegexHttpMatcher(allow);
+		matcher.setPattern(Pattern.compile("\\b(ftp://" + URL_CHARS + ")"));
+		// the matcher only finds the URLs it has a different replacement for
+		matcher.setHttpReplacer(url -> "https" + url.substring(3));
+		return create("ftp", matcher, matcher)
+			.literals("ftp://")
+			.reportOnly();
+	}
+
+	/**
+	 * Creates a detector named git that finds git:// URLs, which are neither encrypted nor
+	 * authenticated, in every file. The URLs are only reported, because a host that serves
+	 * git:// does not necessarily serve https.
+	 * @param allow the rule to be used determine if a git URL is allowed
+	 * @return the {@link Detector}
+	 */
+	public static Detector git(Predicate<String> allow) {
+		RegexHttpMatcher matcher = new RegexHttpMatcher(allow);
+		matcher.setPattern(Pattern.compile("\\b(git://" + URL_CHARS + ")"));
+		matcher.setHttpReplacer(url -> "https" + url.substring(3));
+		return create("git", matcher, matcher)
+			.literals("git://")
+			.reportOnly();
+	}
+
+	/**
+	 * Creates a detector named maven-repository that finds Maven repositories that use
+	 * http in pom.xml and settings.xml files.
+	 * @return the {@link Detector}
+	 * @see MavenRepositoryHttpMatcher
+	 */
+	public static Detector mavenRepository() {
+		MavenRepositoryHttpMatcher matcher = new MavenRepositoryHttpMatcher();
+		return create("maven-repository", matcher, matcher)
+			.appliesTo(f -> f.getName().equals("pom.xml") || f.getName().equals("settings.xml"))
+			.literals("http://");
+	}
+
+	/**
+	 * Restricts the files the detector is used for. If invoked multiple times, a file
+	 * must match every {@link Predicate}.
+	 * @param appliesTo the {@link Predicate} that returns true for files that the detector
+	 * should be used for
+	 * @return the {@link Detector} for further customization
+	 */
+	public Detector appliesTo(Predicate<File> appliesTo) {
+		if (appliesTo == null) {
+			throw new IllegalArgumentException("appliesTo cannot be null");
+		}
+		this.appliesTo = this.appliesTo.and(appliesTo);
+		return this;
+	}
+
+	/**
+	 * Sets text that a file must contain at least one of for the detector to be used, so
+	 * that files that cannot match are not searched. The default is to search every file.
+	 * @param literals the text to look for
+	 * @return the {@link Detector} for further customization
+	 */
+	public Detector literals(String... literals) {
+		if (literals == null) {
+			throw new IllegalArgumentException("literals cannot be null");
+		}
+		this.literals = new ArrayList<>(Arrays.asList(literals));
+		return this;
+	}
+
+	/**
+	 * Makes the detector only report its results when the {@link DetectorProcessor}
+	 * replaces results, so that the files are not changed by this detector.
+	 * @return the {@link Detector} for further customization
+	 */
+	public Detector reportOnly() {
+		HttpMatcher matcher = this.matcher;
+		this.replacer = text -> new HttpReplaceResult(matcher.findHttp(text), text);
+		this.reportOnly = true;
+		return this;
+	}
+
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * Determines if the detector only reports its results
+	 * @return true if the detector never replaces its results
+	 * @see #reportOnly()
+	 */
+	public boolean isReportOnly() {
+		return this.reportOnly;
+	}
+
+	HttpMatcher getMatcher() {
+		return this.matcher;
+	}
+
+	HttpReplacer getReplacer() {
+		return this.replacer;
+	}
+
+	boolean appliesTo(File file) {
+		return this.appliesTo.test(file);
+	}
+
+	List<String> getLiterals() {
+		return this.literals;
+	}
+
+	@Override
+	public String toString() {
+		return this.name;
+	}
+}
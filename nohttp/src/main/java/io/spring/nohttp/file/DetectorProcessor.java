@@ -0,0 +1,154 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.spring.nohttp.file;
+
+import io.spring.nohttp.HttpMatchResult;
+import io.spring.nohttp.HttpReplaceResult;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Processes files with multiple {@link Detector}s, so that a directory only needs to be
+ * scanned once and each file is only read (and written) once. Each literal of the
+ * detectors is searched for at most once per file, and a detector is only run if the file
+ * contains one of its literals. It is safe to process multiple files concurrently.
+ *
+ * Example usage:
+ *
+ * <pre>
+ * DetectorProcessor processor = new DetectorProcessor(Arrays.asList(Detector.http(matcher), Detector.gradleDsl()));
+ * DirScanner.create(dir).scan(processor::processFile);
+ * Set&lt;String&gt; gradleMatches = processor.getHttpMatches("gradle-dsl");
+ * </pre>
+ *
+ * @see Detector
+ */
+public class DetectorProcessor extends HttpProcessor {
+	private final List<Detector> detectors;
+
+	private final Map<String, Set<String>> detectorToMatches = new LinkedHashMap<>();
+
+	private boolean replace;
+
+	/**
+	 * Creates a new instance that finds results
+	 * @param detectors the detectors to use
+	 */
+	public DetectorProcessor(List<Detector> detectors) {
+		if (detectors == null) {
+			throw new IllegalArgumentException("detectors cannot be null");
+		}
+		this.detectors = new ArrayList<>(detectors);
+		for (Detector detector : this.detectors) {
+			if (this.detectorToMatches.put(detector.getName(), new ConcurrentSkipListSet<>()) != null) {
+				throw new IllegalArgumentException("Duplicate detector named " + detector.getName());
+			}
+		}
+	}
+
+	/**
+	 * If true, the results are replaced and the file is written if it changed, else the
+	 * results are only found. The detectors replace the text in order, so the start of a
+	 * result is relative to the text replaced by the previous detectors. The default is
+	 * false.
+	 * @param replace true if the results should be replaced
+	 */
+	public void setReplace(boolean replace) {
+		this.replace = replace;
+	}
+
+	@Override
+	List<HttpMatchResult> processHttpInFile(File file) {
+		List<Detector> applicable = new ArrayList<>();
+		for (Detector detector : this.detectors) {
+			if (detector.appliesTo(file)) {
+				applicable.add(detector);
+			}
+		}
+		if (applicable.isEmpty()) {
+			return Collections.emptyList();
+		}
+		String originalText = FileUtils.readTextFrom(file);
+		String text = originalText;
+		Map<String, Boolean> literalToFound = new HashMap<>();
+		List<HttpMatchResult> results = new ArrayList<>();
+		for (Detector detector : applicable) {
+			if (!containsAnyLiteral(text, detector.getLiterals(), literalToFound)) {
+				continue;
+			}
+			List<HttpMatchResult> matches;
+			if (this.replace) {
+				HttpReplaceResult result = detector.getReplacer().replaceHttp(text);
+				if (result.isReplacement()) {
+					text = result.getResult();
+					// the replacement can change which literals are found
+					literalToFound.clear();
+				}
+				matches = result.getMatches();
+			}
+			else if (getMaxMatches() > 0 && !detector.getMatcher().containsDisallowedHttp(text)) {
+				// when only some of the matches are needed, clean files are checked without
+				// collecting the results
+				continue;
+			}
+			else {
+				matches = detector.getMatcher().findHttp(text);
+			}
+			Set<String> detectorMatches = this.detectorToMatches.get(detector.getName());
+			matches.forEach(match -> detectorMatches.add(match.getHttp()));
+			results.addAll(matches);
+		}
+		if (!text.equals(originalText)) {
+			FileUtils.writeTextTo(text, file);
+		}
+		return results;
+	}
+
+	private static boolean containsAnyLiteral(String text, List<String> literals, Map<String, Boolean> literalToFound) {
+		if (literals.isEmpty()) {
+			return true;
+		}
+		for (String literal : literals) {
+			if (literalToFound.computeIfAbsent(literal, text::contains)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the results found by a single detector
+	 * @param detectorName the name of the {@link Detector}
+	 * @return the results found by the detector
+	 */
+	public Set<String> getHttpMatches(String detectorName) {
+		Set<String> matches = this.detectorToMatches.get(detectorName);
+		if (matches == null) {
+			throw new IllegalArgumentException("No detector named " + detectorName);
+		}
+		return Collections.unmodifiableSet(matches);
+	}
+}
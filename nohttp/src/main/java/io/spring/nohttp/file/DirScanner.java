@@ -24,7 +24,18 @@ import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
@@ -54,6 +65,12 @@ public class DirScanner {
 
 	private List<Predicate<File>> excludeFiles = new ArrayList<>();
 
+	private BooleanSupplier stop = () -> false;
+
+	private ScanOrder order = ScanOrder.WALK;
+
+	private int parallelism = 1;
+
 	private DirScanner(File dir) {
 		if (dir == null) {
 			throw new IllegalArgumentException("dir cannot be null");
@@ -127,6 +144,49 @@ public class DirScanner {
 		return this;
 	}
 
+	/**
+	 * Stops the scan before the next file or directory when the condition is true (i.e.
+	 * {@link HttpProcessor#isMaxMatchesReached()} to stop at the first match).
+	 * @param stop the condition that returns true when the scan should stop
+	 * @return the FileScanner for additional customizations
+	 */
+	public DirScanner stopWhen(BooleanSupplier stop) {
+		if (stop == null) {
+			throw new IllegalArgumentException("stop cannot be null");
+		}
+		this.stop = stop;
+		return this;
+	}
+
+	/**
+	 * Sets the order in which the files are processed. The default is
+	 * {@link ScanOrder#WALK}.
+	 * @param order the order to process the files in
+	 * @return the FileScanner for additional customizations
+	 */
+	public DirScanner order(ScanOrder order) {
+		if (order == null) {
+			throw new IllegalArgumentException("order cannot be null");
+		}
+		this.order = order;
+		return this;
+	}
+
+	/**
+	 * Sets the number of files that are processed concurrently. The threads take the next
+	 * file in the {@link #order(ScanOrder)} when they finish a file. The default is 1,
+	 * which processes the files on the thread that invokes {@link #scan(Consumer)}.
+	 * @param parallelism the number of files to process concurrently
+	 * @return the FileScanner for additional customizations
+	 */
+	public DirScanner parallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be at least 1");
+		}
+		this.parallelism = parallelism;
+		return this;
+	}
+
 	/**
 	 * Scans the directory provided in {@link #create(File)} and passes any matching
 	 * {@link File} to the provided {@link Consumer}
@@ -136,6 +196,38 @@ public class DirScanner {
 		if (fileProcessor == null) {
 			throw new IllegalArgumentException("fileProcessor cannot be null");
 		}
+		if (this.order == ScanOrder.WALK && this.parallelism == 1) {
+			walk((file, attrs) -> fileProcessor.accept(file));
+			return;
+		}
+		// the whole directory is walked before the files are processed, so they can be sorted
+		List<File> ordered = files();
+		if (this.parallelism == 1) {
+			process(ordered, fileProcessor);
+		}
+		else {
+			processConcurrently(ordered, fileProcessor);
+		}
+	}
+
+	/**
+	 * Finds the matching files in the directory provided in {@link #create(File)} without
+	 * processing them. The files are in the {@link #order(ScanOrder)} and are always found
+	 * on the invoking thread, so {@link #parallelism(int)} does not apply.
+	 * @return the matching files
+	 */
+	public List<File> files() {
+		Map<File, BasicFileAttributes> fileToAttributes = new LinkedHashMap<>();
+		walk(fileToAttributes::put);
+		List<File> ordered = new ArrayList<>(fileToAttributes.keySet());
+		Comparator<BasicFileAttributes> comparator = this.order.getComparator();
+		if (comparator != null) {
+			ordered.sort(Comparator.comparing(fileToAttributes::get, comparator));
+		}
+		return ordered;
+	}
+
+	private void walk(BiConsumer<File, BasicFileAttributes> fileProcessor) {
 		FileScannerVisitor visitor = new FileScannerVisitor(fileProcessor);
 		try {
 			Files.walkFileTree(this.dir.toPath(), visitor);
@@ -144,15 +236,62 @@ public class DirScanner {
 		}
 	}
 
+	private void process(List<File> files, Consumer<File> fileProcessor) {
+		for (File file : files) {
+			if (this.stop.getAsBoolean()) {
+				return;
+			}
+			fileProcessor.accept(file);
+		}
+	}
+
+	private void processConcurrently(List<File> files, Consumer<File> fileProcessor) {
+		AtomicInteger next = new AtomicInteger();
+		Runnable worker = () -> {
+			int i;
+			while (!this.stop.getAsBoolean() && (i = next.getAndIncrement()) < files.size()) {
+				fileProcessor.accept(files.get(i));
+			}
+		};
+		ExecutorService executor = Executors.newFixedThreadPool(this.parallelism, new ScannerThreadFactory());
+		try {
+			List<Future<?>> workers = new ArrayList<>();
+			for (int i = 0; i < this.parallelism; i++) {
+				workers.add(executor.submit(worker));
+			}
+			for (Future<?> future : workers) {
+				future.get();
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+		catch (ExecutionException e) {
+			// stop the other workers at their next file
+			next.set(files.size());
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
 	class FileScannerVisitor extends SimpleFileVisitor<Path> {
-		private final Consumer<File> fileProcessor;
+		private final BiConsumer<File, BasicFileAttributes> fileProcessor;
 
-		FileScannerVisitor(Consumer<File> fileProcessor) {
+		FileScannerVisitor(BiConsumer<File, BasicFileAttributes> fileProcessor) {
 			this.fileProcessor = fileProcessor;
 		}
 
 		@Override
 		public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+			if (DirScanner.this.stop.getAsBoolean()) {
+				return FileVisitResult.TERMINATE;
+			}
 			if (DirScanner.this.excludeDirs.stream().anyMatch(e -> e.test(dir.toFile()))) {
 				return FileVisitResult.SKIP_SUBTREE;
 			}
@@ -162,10 +301,24 @@ public class DirScanner {
 		@Override
 		public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
 				throws IOException {
+			if (DirScanner.this.stop.getAsBoolean()) {
+				return FileVisitResult.TERMINATE;
+			}
 			if (!DirScanner.this.excludeFiles.stream().anyMatch(e -> e.test(file.toFile()))) {
-				this.fileProcessor.accept(file.toFile());
+				this.fileProcessor.accept(file.toFile(), attrs);
 			}
 			return FileVisitResult.CONTINUE;
 		}
 	}
+
+	private static class ScannerThreadFactory implements ThreadFactory {
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "nohttp-scanner-" + this.count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
 }
@@ -22,14 +22,51 @@ import java.io.File;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
+ * Processes files for http matches. It is safe to process multiple files concurrently.
+ *
  * @author Rob Winch
  */
 public abstract class HttpProcessor {
 
-	private Set<String> httpMatches = new TreeSet<String>();
+	private Set<String> httpMatches = new ConcurrentSkipListSet<String>();
+
+	private final AtomicInteger matchCount = new AtomicInteger();
+
+	private int maxMatches;
+
+	/**
+	 * Sets the number of matches after which the remaining files are not processed, so
+	 * that a check can fail as soon as possible. Files that are already being processed
+	 * when the maximum is reached (i.e. concurrently) still return their matches. The
+	 * default is 0, which processes every file.
+	 * @param maxMatches the number of matches after which files are no longer processed
+	 * or 0 to process every file
+	 * @see #isMaxMatchesReached()
+	 * @see DirScanner#stopWhen(java.util.function.BooleanSupplier)
+	 */
+	public void setMaxMatches(int maxMatches) {
+		if (maxMatches < 0) {
+			throw new IllegalArgumentException("maxMatches cannot be negative");
+		}
+		this.maxMatches = maxMatches;
+	}
+
+	/**
+	 * Determines if {@link #setMaxMatches(int)} matches have been found, so the remaining
+	 * files are not processed
+	 * @return true if the remaining files are not processed
+	 */
+	public boolean isMaxMatchesReached() {
+		return this.maxMatches > 0 && this.matchCount.get() >= this.maxMatches;
+	}
+
+	int getMaxMatches() {
+		return this.maxMatches;
+	}
 
 	/**
 	 * Processes the provided file.
@@ -47,7 +84,11 @@ public abstract class HttpProcessor {
 			throw new IllegalArgumentException(file + " must be a valid file (i.e. not a directory)");
 		}
 
+		if (isMaxMatchesReached()) {
+			return Collections.emptyList();
+		}
 		List<HttpMatchResult> matches = processHttpInFile(file);
+		this.matchCount.addAndGet(matches.size());
 
 		matches.forEach(match -> {
 			this.httpMatches.add(match.getHttp());
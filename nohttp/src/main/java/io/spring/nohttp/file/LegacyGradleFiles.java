@@ -0,0 +1,94 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.spring.nohttp.file;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Matches .gradle files of projects that use Gradle &lt; 2.1. The version is determined
+ * by the nearest gradle/wrapper/gradle-wrapper.properties in the file's directory or its
+ * parents. The result for each directory is remembered, so the wrapper of a project is
+ * only read once.
+ */
+class LegacyGradleFiles implements Predicate<File> {
+	static final String WRAPPER_PROPERTIES = "gradle/wrapper/gradle-wrapper.properties";
+
+	private final Map<File, Boolean> dirToLegacy = new ConcurrentHashMap<>();
+
+	@Override
+	public boolean test(File file) {
+		if (!file.getName().endsWith(".gradle")) {
+			return false;
+		}
+		return isLegacy(file.getAbsoluteFile().getParentFile());
+	}
+
+	private boolean isLegacy(File dir) {
+		List<File> visited = new ArrayList<>();
+		Boolean legacy = null;
+		for (File current = dir; current != null && legacy == null; current = current.getParentFile()) {
+			legacy = this.dirToLegacy.get(current);
+			if (legacy == null) {
+				File wrapperProperties = new File(current, WRAPPER_PROPERTIES);
+				if (wrapperProperties.isFile()) {
+					legacy = isLegacyWrapper(wrapperProperties);
+				}
+				visited.add(current);
+			}
+		}
+		boolean result = legacy != null && legacy;
+		visited.forEach(v -> this.dirToLegacy.put(v, result));
+		return result;
+	}
+
+	/**
+	 * Determines if a gradle-wrapper.properties uses Gradle &lt; 2.1. Only the lines up to
+	 * the distributionUrl are read.
+	 * @param wrapperProperties the gradle-wrapper.properties file
+	 * @return true if the wrapper uses Gradle &lt; 2.1
+	 */
+	static boolean isLegacyWrapper(File wrapperProperties) {
+		try (BufferedReader reader = Files.newBufferedReader(wrapperProperties.toPath(), StandardCharsets.ISO_8859_1)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.trim().startsWith("distributionUrl")) {
+					return isLegacyWrapper(line);
+				}
+			}
+			return false;
+		}
+		catch (IOException e) {
+			throw new IllegalArgumentException("Could not read " + wrapperProperties, e);
+		}
+	}
+
+	private static boolean isLegacyWrapper(String wrapperText) {
+		return wrapperText.contains("/gradle-0.") ||
+				wrapperText.contains("/gradle-1.") ||
+				wrapperText.contains("/gradle-2.0");
+	}
+}
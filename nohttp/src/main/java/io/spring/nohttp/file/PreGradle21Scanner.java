@@ -17,12 +17,16 @@
 package io.spring.nohttp.file;
 
 import java.io.File;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.function.Consumer;
 
-import static io.spring.nohttp.file.FilePredicates.fileHasName;
-
 /**
  * A scanner which finds .gradle files for Gradle < 2.1. This is useful for finding gradle
  * DLS (i.e. mavenCentral() and jcenter()) that use http since they use http in Gradle <
@@ -56,49 +60,62 @@ public class PreGradle21Scanner {
 
 	/**
 	 * Finds all .gradle files in projects using Gradle < 2.1 and allows processing them
-	 * with the provided {@link Consumer}
+	 * with the provided {@link Consumer}. The directory is walked once. The Gradle version
+	 * of each directory is determined from its gradle/wrapper/gradle-wrapper.properties or
+	 * else is inherited from its parent, so each .gradle file is processed at most once
+	 * using the version of its nearest Gradle root project.
 	 * @param fileProcessor the {@link Consumer} to process any .gradle files that were found
 	 */
 	public void scan(Consumer<File> fileProcessor) {
 		if (fileProcessor == null) {
 			throw new IllegalArgumentException("fileProcessor cannot be null");
 		}
-		List<File> gradleRootDirs = findLegacyGradleRootDir(this.dir);
-		if (gradleRootDirs.isEmpty()) {
-			return;
+		try {
+			Files.walkFileTree(this.dir.toPath(), new LegacyGradleVisitor(fileProcessor));
 		}
-
-		for (File gradleRootDir : gradleRootDirs) {
-			DirScanner.create(gradleRootDir)
-				.excludeFiles(f -> !f.getName().endsWith(".gradle"))
-				.scan(fileProcessor);
+		catch (IOException e) {
+			throw new IllegalStateException(e);
 		}
 	}
 
-	/**
-	 * Find the Gradle Root Project directory for any Gradle version < 2.1 by looking in
-	 * gradle/wrapper/gradle-wrapper.properties
-	 * @param dir the directory to scan
-	 * @return a List of Gradle root project directories
-	 */
-	private List<File> findLegacyGradleRootDir(File dir) {
-		List<File> gradleRoots = new ArrayList<>();
+	private static class LegacyGradleVisitor extends SimpleFileVisitor<Path> {
+		private final Consumer<File> fileProcessor;
+
+		/**
+		 * If the directories that are being visited use Gradle < 2.1
+		 */
+		private final Deque<Boolean> legacy = new ArrayDeque<>();
 
-		DirScanner.create(dir)
-			.excludeFiles(fileHasName("gradle-wrapper.properties").negate())
-			.excludeFiles(f -> {
-				String wrapperText = FileUtils.readTextFrom(f);
-				return !(wrapperText.contains("/gradle-0.") ||
-						wrapperText.contains("/gradle-1.") ||
-						wrapperText.contains("/gradle-2.0"));
-			})
-			.scan(gradleWrapperPropertiesFile -> {
-				File gradleRootDir = gradleWrapperPropertiesFile.getParentFile()
-						.getParentFile().getParentFile();
-				gradleRoots
-						.add(gradleRootDir);
-			});
+		LegacyGradleVisitor(Consumer<File> fileProcessor) {
+			this.fileProcessor = fileProcessor;
+			this.legacy.push(false);
+		}
+
+		@Override
+		public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+			File wrapperProperties = dir.resolve(LegacyGradleFiles.WRAPPER_PROPERTIES).toFile();
+			boolean isLegacy = wrapperProperties.isFile() ?
+					LegacyGradleFiles.isLegacyWrapper(wrapperProperties) :
+					this.legacy.peek();
+			this.legacy.push(isLegacy);
+			return FileVisitResult.CONTINUE;
+		}
 
-		return gradleRoots;
+		@Override
+		public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+			if (this.legacy.peek() && file.getFileName().toString().endsWith(".gradle")) {
+				this.fileProcessor.accept(file.toFile());
+			}
+			return FileVisitResult.CONTINUE;
+		}
+
+		@Override
+		public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+			if (e != null) {
+				throw e;
+			}
+			this.legacy.pop();
+			return FileVisitResult.CONTINUE;
+		}
 	}
 }
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.spring.nohttp.file;
+
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Comparator;
+
+/**
+ * Determines the order in which {@link DirScanner} processes files.
+ *
+ * @see DirScanner#order(ScanOrder)
+ */
+public enum ScanOrder {
+	/**
+	 * Files are processed in the order they are found while walking the directory, which
+	 * starts processing before the walk is done.
+	 */
+	WALK(null),
+
+	/**
+	 * The largest files are processed first, so that a large file is not processed last
+	 * while the other threads are idle (i.e. with {@link DirScanner#parallelism(int)}).
+	 */
+	LARGEST_FIRST(Comparator.comparingLong(BasicFileAttributes::size).reversed()),
+
+	/**
+	 * The most recently modified files are processed first, so that the files that were
+	 * just edited, which are the most likely to contain results, are reported first.
+	 */
+	RECENTLY_MODIFIED_FIRST(Comparator.comparing(BasicFileAttributes::lastModifiedTime).reversed());
+
+	private final Comparator<BasicFileAttributes> comparator;
+
+	ScanOrder(Comparator<BasicFileAttributes> comparator) {
+		this.comparator = comparator;
+	}
+
+	/**
+	 * The order of the files or {@code null} if the files are processed in walk order
+	 */
+	Comparator<BasicFileAttributes> getComparator() {
+		return this.comparator;
+	}
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.spring.nohttp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class AdaptiveRuleOrderTest {
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	@Test
+	public void loadWhenNullThenIllegalArgumentException() {
+		assertThatCode(() -> AdaptiveRuleOrder.load(null))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("file cannot be null");
+	}
+
+	@Test
+	public void loadWhenFileDoesNotExistThenEmpty() {
+		AdaptiveRuleOrder order = AdaptiveRuleOrder.load(new File(this.temp.getRoot(), "missing.txt"));
+
+		assertThat(order.getHitCounts()).isEmpty();
+	}
+
+	@Test
+	public void loadWhenStoredThenSameCounts() {
+		AdaptiveRuleOrder order = new AdaptiveRuleOrder();
+		order.counter("a.*").add(2);
+		order.counter("b\t.*").add(5);
+		File file = new File(this.temp.getRoot(), "nohttp/allowlist-order.txt");
+
+		order.store(file);
+
+		assertThat(AdaptiveRuleOrder.load(file).getHitCounts()).containsOnly(entry("a.*", 2L), entry("b\t.*", 5L));
+	}
+
+	@Test
+	public void loadWhenInvalidLinesThenIgnored() throws Exception {
+		File file = this.temp.newFile();
+		Files.write(file.toPath(), Arrays.asList("3\ta.*", "invalid", "x\tb.*"), StandardCharsets.UTF_8);
+
+		assertThat(AdaptiveRuleOrder.load(file).getHitCounts()).containsOnly(entry("a.*", 3L));
+	}
+
+	@Test
+	public void storeWhenNullThenIllegalArgumentException() {
+		assertThatCode(() -> new AdaptiveRuleOrder().store(null))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("file cannot be null");
+	}
+}
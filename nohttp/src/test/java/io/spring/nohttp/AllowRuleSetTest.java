@@ -0,0 +1,189 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.spring.nohttp;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class AllowRuleSetTest {
+
+	@Test
+	public void addWhenNullThenIllegalArgumentException() {
+		assertThatCode(() -> new AllowRuleSet().add(null))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("allow cannot be null");
+	}
+
+	@Test
+	public void testWhenEmptyThenNotAllowed() {
+		assertThat(new AllowRuleSet().test("http://example.com")).isFalse();
+	}
+
+	@Test
+	public void testWhenExactThenOnlyExactAllowed() {
+		AllowRuleSet rules = rules("^http://a\\.test/b$", "http://c\\.test");
+
+		assertThat(rules.test("http://a.test/b")).isTrue();
+		assertThat(rules.test("http://c.test")).isTrue();
+		assertThat(rules.test("http://a.test/bc")).isFalse();
+		assertThat(rules.test("http://aXtest/b")).isFalse();
+	}
+
+	@Test
+	public void testWhenPrefixThenPrefixAllowed() {
+		AllowRuleSet rules = rules("^http://a\\.test/.*");
+
+		assertThat(rules.test("http://a.test/")).isTrue();
+		assertThat(rules.test("http://a.test/b/c")).isTrue();
+		assertThat(rules.test("http://a.test")).isFalse();
+		assertThat(rules.test("http://a.test/b\nc")).isFalse();
+	}
+
+	@Test
+	public void testWhenHostSuffixThenSubdomainsAllowed() {
+		AllowRuleSet rules = rules("^http://[^/]+\\.a\\.test.*", "^http://[^/]*\\.b\\.test.*");
+
+		assertThat(rules.test("http://www.a.test/c")).isTrue();
+		assertThat(rules.test("http://x.y.a.test")).isTrue();
+		assertThat(rules.test("http://.a.test")).isFalse();
+		assertThat(rules.test("http://a.test")).isFalse();
+		assertThat(rules.test("http://x/y.a.test")).isFalse();
+		assertThat(rules.test("http://.b.test")).isTrue();
+	}
+
+	@Test
+	public void testWhenRegexThenUsesEngine() {
+		RegexPredicate predicate = new RegexPredicate(Arrays.asList(Pattern.compile("^http://a\\.test/\\d+")));
+		LinearRegexEngine engine = new LinearRegexEngine();
+		predicate.setEngine(engine);
+		AllowRuleSet rules = new AllowRuleSet();
+
+		rules.add(predicate);
+
+		assertThat(rules.test("http://a.test/12")).isTrue();
+		assertThat(rules.test("http://a.test/b")).isFalse();
+	}
+
+	@Test
+	public void testWhenPredicateThenEvaluated() {
+		AllowRuleSet rules = new AllowRuleSet();
+
+		rules.add(url -> url.endsWith(".xsd"));
+
+		assertThat(rules.test("http://a.test/a.xsd")).isTrue();
+		assertThat(rules.test("http://a.test/a.xml")).isFalse();
+	}
+
+	@Test
+	public void testWhenAllowRuleSetAddedThenFlattened() {
+		AllowRuleSet nested = rules("^http://a\\.test/.*");
+		nested.add(url -> url.endsWith(".xsd"));
+		AllowRuleSet rules = rules("^http://b\\.test/.*");
+
+		rules.add(nested);
+
+		assertThat(rules.test("http://a.test/")).isTrue();
+		assertThat(rules.test("http://b.test/")).isTrue();
+		assertThat(rules.test("http://c.test/a.xsd")).isTrue();
+		assertThat(rules.test("http://c.test/")).isFalse();
+	}
+
+	@Test
+	public void testWhenProfilingThenEveryPatternProfiled() {
+		RegexPredicate predicate = new RegexPredicate(Arrays.asList(Pattern.compile("^http://a\\.test/.*")));
+		predicate.setProfiling(true);
+		AllowRuleSet rules = new AllowRuleSet();
+		rules.add(predicate);
+
+		rules.test("http://a.test/");
+
+		assertThat(predicate.getProfiles().get(0).getHits()).isEqualTo(1);
+	}
+
+	@Test
+	public void testWhenHostThenSameAsRegexPredicate() {
+		RegexPredicate expected = (RegexPredicate) RegexPredicate.createAllowlistFromPatterns(
+				new ByteArrayInputStream("host:a.test\nhost:b.a.test\nhost:c".getBytes(StandardCharsets.UTF_8)));
+		AllowRuleSet rules = new AllowRuleSet();
+		rules.add(expected);
+		String[] fragments = { "http://", "http\\://", "a.test", "b.", "c", ".", "/", ":", "?", "#", "x", "\n" };
+		Random random = new Random(0);
+		for (int i = 0; i < 20000; i++) {
+			StringBuilder url = new StringBuilder();
+			int length = random.nextInt(7);
+			for (int j = 0; j < length; j++) {
+				url.append(fragments[random.nextInt(fragments.length)]);
+			}
+			assertThat(rules.test(url.toString())).describedAs(url.toString()).isEqualTo(expected.test(url.toString()));
+		}
+	}
+
+	@Test
+	public void testWhenGlobThenSameAsRegexPredicate() {
+		RegexPredicate expected = (RegexPredicate) RegexPredicate.createAllowlistFromPatterns(new ByteArrayInputStream(
+				"glob:http://a.test/**\nglob:http://*.b.test**\nglob:http://c.test/*.xsd\nglob:http://d.test/?".getBytes(StandardCharsets.UTF_8)));
+		AllowRuleSet rules = new AllowRuleSet();
+		rules.add(expected);
+		String[] fragments = { "http://", "a.test", "b.test", "c.test", "d.test", "x", ".", "/", ".xsd", "\n" };
+		Random random = new Random(0);
+		for (int i = 0; i < 20000; i++) {
+			StringBuilder url = new StringBuilder();
+			int length = random.nextInt(6);
+			for (int j = 0; j < length; j++) {
+				url.append(fragments[random.nextInt(fragments.length)]);
+			}
+			assertThat(rules.test(url.toString())).describedAs(url.toString()).isEqualTo(expected.test(url.toString()));
+		}
+	}
+
+	@Test
+	public void testWhenDefaultAllowlistThenSameAsRegexPredicate() {
+		RegexPredicate hostSuffixes = new RegexPredicate(Arrays.asList(Pattern.compile("^http://[^/]+\\.a\\.test.*"),
+				Pattern.compile("^http://[^/]*\\.w3\\.org/1999.*")));
+		Predicate<String> expected = RegexPredicate.createDefaultUrlAllowlist().or(hostSuffixes);
+		AllowRuleSet rules = new AllowRuleSet();
+		rules.add(RegexPredicate.createDefaultUrlAllowlist());
+		rules.add(hostSuffixes);
+		String[] fragments = { "http://", "www.", "w3.org/", "2000/svg", "2001/XMLSchema", "-instance", ".test",
+				".a.test", "localhost", "xmlns.jcp.org/jsf", "/html", "1999", "a", "/", ".", "\\", "\n" };
+		Random random = new Random(0);
+		for (int i = 0; i < 20000; i++) {
+			StringBuilder url = new StringBuilder(random.nextBoolean() ? "http://" : "");
+			int length = random.nextInt(6);
+			for (int j = 0; j < length; j++) {
+				url.append(fragments[random.nextInt(fragments.length)]);
+			}
+			assertThat(rules.test(url.toString())).describedAs(url.toString()).isEqualTo(expected.test(url.toString()));
+		}
+	}
+
+	private static AllowRuleSet rules(String... patterns) {
+		AllowRuleSet rules = new AllowRuleSet();
+		rules.add(new RegexPredicate(Arrays.stream(patterns).map(Pattern::compile).collect(Collectors.toList())));
+		return rules;
+	}
+}
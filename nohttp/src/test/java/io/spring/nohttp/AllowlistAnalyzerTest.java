@@ -0,0 +1,196 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.spring.nohttp;
+
+import io.spring.nohttp.AllowlistRule.Kind;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class AllowlistAnalyzerTest {
+
+	@Test
+	public void loadWhenNullSourceThenIllegalArgumentException() {
+		assertThatCode(() -> new AllowlistAnalyzer().load(null, inputStream("a")))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("source cannot be null");
+	}
+
+	@Test
+	public void loadWhenNullResourceThenIllegalArgumentException() {
+		assertThatCode(() -> new AllowlistAnalyzer().load("a", null))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("resource cannot be null");
+	}
+
+	@Test
+	public void analyzeWhenLinesThenClassified() {
+		List<AllowlistRule> rules = analyze("// comment",
+				"^http://a\\.test/$",
+				"http://b\\.test",
+				"",
+				"^http://c\\.test/.*",
+				"^http://[^/]+\\.d\\.test.*",
+				"^http://e\\.test/\\d+$");
+
+		assertThat(rules).extracting(AllowlistRule::getKind)
+			.containsExactly(Kind.EXACT, Kind.EXACT, Kind.PREFIX, Kind.HOST_SUFFIX, Kind.REGEX);
+		assertThat(rules).extracting(AllowlistRule::getLiteral)
+			.containsExactly("http://a.test/", "http://b.test", "http://c.test/", "d.test", null);
+		assertThat(rules).extracting(AllowlistRule::getLineNumber).containsExactly(2, 3, 5, 6, 7);
+		assertThat(rules).extracting(AllowlistRule::getRedundantTo).containsOnlyNulls();
+	}
+
+	@Test
+	public void analyzeWhenDuplicateThenFirstKept() {
+		List<AllowlistRule> rules = analyze("^http://a\\.test/.*", "^http://b\\.test/.*", "http://a\\.test/.*$");
+
+		assertThat(rules.get(0).getRedundantTo()).isNull();
+		assertThat(rules.get(2).getRedundantTo()).isSameAs(rules.get(0));
+		assertThat(rules.get(2).isDuplicate()).isTrue();
+	}
+
+	@Test
+	public void analyzeWhenRegexDuplicateThenFirstKept() {
+		List<AllowlistRule> rules = analyze("^http://a\\.test/\\d+", "^http://a\\.test/\\d+", "^http://a\\.test/\\w+");
+
+		assertThat(rules).extracting(AllowlistRule::getRedundantTo).containsExactly(null, rules.get(0), null);
+	}
+
+	@Test
+	public void analyzeWhenExactAllowedByRegexThenRedundant() {
+		List<AllowlistRule> rules = analyze("^http://a\\.test/1$", "^http://a\\.test/\\d+");
+
+		assertThat(rules.get(0).getRedundantTo()).isSameAs(rules.get(1));
+		assertThat(rules.get(0).isDuplicate()).isFalse();
+	}
+
+	@Test
+	public void analyzeWhenPrefixWithinPrefixThenRedundant() {
+		List<AllowlistRule> rules = analyze("^http://a\\.test/b/.*", "^http://a\\.test/.*", "^http://a\\.testing/.*");
+
+		assertThat(rules).extracting(AllowlistRule::getRedundantTo).containsExactly(rules.get(1), null, null);
+	}
+
+	@Test
+	public void analyzeWhenPrefixOnHostSuffixThenRedundant() {
+		List<AllowlistRule> rules = analyze("^http://[^/]+\\.a\\.test.*", "^http://www\\.a\\.test/.*",
+				"^http://a\\.test/.*", "^http://b/www\\.a\\.test.*");
+
+		assertThat(rules).extracting(AllowlistRule::getRedundantTo).containsExactly(null, rules.get(0), null, null);
+	}
+
+	@Test
+	public void analyzeWhenPrefixStartsWithRequiredHostSuffixThenNotRedundant() {
+		List<AllowlistRule> rules = analyze("^http://[^/]+\\.a\\.test.*", "^http://\\.a\\.test/.*",
+				"^http://[^/]*\\.b\\.test.*", "^http://\\.b\\.test/.*");
+
+		assertThat(rules).extracting(AllowlistRule::getRedundantTo).containsExactly(null, null, null, rules.get(2));
+	}
+
+	@Test
+	public void analyzeWhenHostSuffixWithinHostSuffixThenRedundant() {
+		List<AllowlistRule> rules = analyze("^http://[^/]+\\.b\\.a\\.test.*", "^http://[^/]*\\.a\\.test.*",
+				"^http://[^/]+\\.a\\.test.*", "^http://[^/]+\\.c\\.test.*");
+
+		assertThat(rules).extracting(AllowlistRule::getRedundantTo)
+			.containsExactly(rules.get(1), null, rules.get(1), null);
+	}
+
+	@Test
+	public void analyzeWhenTypedLinesThenClassified() {
+		List<AllowlistRule> rules = analyze("exact:http://a.test/", "prefix:http://b.test/", "host:c.test",
+				"glob:http://d.test/**", "glob:http://*.e.test**", "glob:http://f.test/*", "regex:http://g\\.test");
+
+		assertThat(rules).extracting(AllowlistRule::getKind)
+			.containsExactly(Kind.EXACT, Kind.PREFIX, Kind.HOST, Kind.PREFIX, Kind.HOST_SUFFIX, Kind.REGEX, Kind.EXACT);
+		assertThat(rules).extracting(AllowlistRule::getLiteral)
+			.containsExactly("http://a.test/", "http://b.test/", "c.test", "http://d.test/", "e.test", null, "http://g.test");
+		assertThat(rules).extracting(AllowlistRule::getLine)
+			.containsExactly("exact:http://a.test/", "prefix:http://b.test/", "host:c.test", "glob:http://d.test/**",
+					"glob:http://*.e.test**", "glob:http://f.test/*", "regex:http://g\\.test");
+	}
+
+	@Test
+	public void analyzeWhenWithinHostThenRedundant() {
+		List<AllowlistRule> rules = analyze("host:a.test", "host:b.a.test", "prefix:http://www.a.test/b",
+				"prefix:http://www.a.test", "exact:http://a.test:8080", "host:ba.test", "prefix:http\\://a.test?");
+
+		assertThat(rules).extracting(AllowlistRule::getRedundantTo)
+			.containsExactly(null, rules.get(0), rules.get(0), null, rules.get(0), null, rules.get(0));
+	}
+
+	@Test
+	public void analyzeWhenRedundantToRedundantThenKeptRule() {
+		List<AllowlistRule> rules = analyze("^http://a\\.test/b/c$", "^http://a\\.test/b/.*", "^http://a\\.test/.*");
+
+		assertThat(rules).extracting(AllowlistRule::getRedundantTo).containsExactly(rules.get(2), rules.get(2), null);
+	}
+
+	@Test
+	public void analyzeWhenDefaultAllowlistThenRemovingRedundantAllowsSame() {
+		AllowlistAnalyzer analyzer = new AllowlistAnalyzer();
+		analyzer.load("allowlist.txt", RegexPredicate.class.getResourceAsStream("allowlist.txt"));
+		List<AllowlistRule> rules = analyzer.analyze();
+		RegexPredicate all = new RegexPredicate(rules.stream()
+				.map(AllowlistRule::getPattern)
+				.collect(Collectors.toList()));
+		RegexPredicate optimized = new RegexPredicate(rules.stream()
+				.filter(r -> r.getRedundantTo() == null)
+				.map(AllowlistRule::getPattern)
+				.collect(Collectors.toList()));
+		String[] fragments = { "http://", "www.", "w3.org/", "2000/svg", "2001/XMLSchema", "-instance", ".test",
+				"localhost", "xmlns.jcp.org/jsf", "/html", "a", "/", ".", "\\" };
+		Random random = new Random(0);
+
+		assertThat(rules.stream().filter(AllowlistRule::isDuplicate).map(r -> r.getPattern().pattern()))
+			.contains("^http://www\\.w3\\.org/2000/svg.*");
+		assertThat(optimized.getPatterns().size()).isLessThan(all.getPatterns().size());
+		for (int i = 0; i < 10000; i++) {
+			String url = randomUrl(random, fragments);
+			assertThat(optimized.test(url)).describedAs(url).isEqualTo(all.test(url));
+		}
+	}
+
+	private static String randomUrl(Random random, String[] fragments) {
+		StringBuilder url = new StringBuilder("http://");
+		int length = random.nextInt(6);
+		for (int i = 0; i < length; i++) {
+			url.append(fragments[random.nextInt(fragments.length)]);
+		}
+		return url.toString();
+	}
+
+	private static List<AllowlistRule> analyze(String... lines) {
+		AllowlistAnalyzer analyzer = new AllowlistAnalyzer();
+		analyzer.load("test", inputStream(String.join("\n", lines)));
+		return analyzer.analyze();
+	}
+
+	private static InputStream inputStream(String value) {
+		return new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.spring.nohttp;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class ChunkedHttpMatcherTest {
+	private static final String[] FRAGMENTS = { "http://a.test/b ", "see http://www.w3.org/2000/svg ", "xhttp://c.test ",
+			"http\\://d.test/e?f=1 ", "https://e.test ", "text ", " ", "\n", "http://f.test/a/very/long/path?with=query#anchor ",
+			"(http://g.test)" };
+
+	private final RegexHttpMatcher matcher = new RegexHttpMatcher(RegexPredicate.createDefaultUrlAllowlist());
+
+	@Test
+	public void constructorWhenNullThenIllegalArgumentException() {
+		assertThatCode(() -> new ChunkedHttpMatcher(null))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("matcher cannot be null");
+	}
+
+	@Test
+	public void setChunkSizeWhenLessThanOneThenIllegalArgumentException() {
+		assertThatCode(() -> new ChunkedHttpMatcher(this.matcher).setChunkSize(0))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("chunkSize must be at least 1");
+	}
+
+	@Test
+	public void setMaxUrlLengthWhenLessThanOneThenIllegalArgumentException() {
+		assertThatCode(() -> new ChunkedHttpMatcher(this.matcher).setMaxUrlLength(0))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("maxUrlLength must be at least 1");
+	}
+
+	@Test
+	public void findHttpWhenUrlCrossesChunksThenFoundOnceWithAbsoluteStart() {
+		ChunkedHttpMatcher chunked = new ChunkedHttpMatcher(this.matcher);
+		chunked.setChunkSize(10);
+		chunked.setMaxUrlLength(32);
+
+		List<HttpMatchResult> results = chunked.findHttp("0123456 http://example.com/a 0123 http://example.com/b");
+
+		assertThat(results).extracting(HttpMatchResult::getHttp)
+			.containsExactly("http://example.com/a", "http://example.com/b");
+		assertThat(results).extracting(HttpMatchResult::getStart).containsExactly(8, 34);
+	}
+
+	@Test
+	public void findHttpWhenRandomChunksThenSameAsMatcher() {
+		Random random = new Random(0);
+		for (int i = 0; i < 2000; i++) {
+			StringBuilder text = new StringBuilder();
+			int fragments = random.nextInt(20);
+			for (int f = 0; f < fragments; f++) {
+				text.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+			}
+			ChunkedHttpMatcher chunked = new ChunkedHttpMatcher(this.matcher);
+			chunked.setChunkSize(1 + random.nextInt(40));
+			chunked.setMaxUrlLength(64);
+
+			assertThat(format(chunked.findHttp(text.toString()))).describedAs(text.toString())
+				.isEqualTo(format(this.matcher.findHttp(text.toString())));
+			assertThat(chunked.containsDisallowedHttp(text)).describedAs(text.toString())
+				.isEqualTo(this.matcher.containsDisallowedHttp(text));
+		}
+	}
+
+	private static List<String> format(List<HttpMatchResult> results) {
+		return results.stream().map(r -> r.getHttp() + "@" + r.getStart()).collect(Collectors.toList());
+	}
+}
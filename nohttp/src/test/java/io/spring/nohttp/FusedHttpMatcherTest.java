@@ -0,0 +1,137 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.spring.nohttp;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class FusedHttpMatcherTest {
+	private static final String[] FRAGMENTS = { "http://", "http\\://", "http://www.w3.org/2001/XMLSchema",
+			"http://www.w3.org/2001/XMLSchema-instance", "http://localhost", "http://127.0.0.1:8080/",
+			"http://example.com", "http://example.com/exact", "http://foo.test/", "http://nodots/",
+			"http://openoffice.org/2000/", "http://openofficeXorg/2000/", "xmlns=\"", "\"", " ", "\n", "/", ".",
+			"a", "-", "?", ";", "\\", "<", ">", "_" };
+
+	@Test
+	public void constructorWhenNullThenIllegalArgumentException() {
+		assertThatCode(() -> new FusedHttpMatcher(null))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("allow cannot be null");
+	}
+
+	@Test
+	public void findHttpWhenAllowedByPrefixThenNotFound() {
+		FusedHttpMatcher matcher = new FusedHttpMatcher(allowlist("^http://www\\.w3\\.org/2001/XMLSchema.*"));
+
+		List<HttpMatchResult> results = matcher.findHttp("xmlns=\"http://www.w3.org/2001/XMLSchema-instance\" http://example.com");
+
+		assertThat(results).extracting(HttpMatchResult::getHttp).containsExactly("http://example.com");
+		assertThat(results.get(0).getStart()).isEqualTo(50);
+	}
+
+	@Test
+	public void findHttpWhenAllowedByExactThenOnlyExactNotFound() {
+		FusedHttpMatcher matcher = new FusedHttpMatcher(allowlist("^http://example\\.com$"));
+
+		List<HttpMatchResult> results = matcher.findHttp("http://example.com http://example.com/a http://example.co");
+
+		assertThat(results).extracting(HttpMatchResult::getHttp).containsExactly("http://example.com/a", "http://example.co");
+	}
+
+	@Test
+	public void findHttpWhenPatternNotLiteralThenRegexUsed() {
+		FusedHttpMatcher matcher = new FusedHttpMatcher(allowlist("^http://[^\\.\\\\]+/.*"));
+
+		assertThat(matcher.findHttp("http://nodots/a http://example.com/a")).extracting(HttpMatchResult::getHttp)
+			.containsExactly("http://example.com/a");
+	}
+
+	@Test
+	public void findHttpWhenAllowedByTrieThenResidualNotTested() {
+		FusedHttpMatcher matcher = new FusedHttpMatcher(allowlist("^http://www\\.w3\\.org/.*"));
+		AtomicInteger tests = new AtomicInteger();
+		matcher.addHttpAllow(url -> tests.incrementAndGet() < 0);
+
+		matcher.findHttp("http://www.w3.org/2000/svg http://www.w3.org/1999/xlink http://example.com");
+
+		assertThat(tests).hasValue(1);
+	}
+
+	@Test
+	public void findHttpWhenCustomPatternThenTrieUsed() {
+		FusedHttpMatcher matcher = new FusedHttpMatcher(allowlist("^http://a\\.example\\.com.*"));
+		matcher.setPattern(Pattern.compile("http://[a-z.]+"));
+
+		assertThat(matcher.findHttp("http://a.example.com http://b.example.com")).extracting(HttpMatchResult::getHttp)
+			.containsExactly("http://b.example.com");
+	}
+
+	@Test
+	public void replaceHttpWhenAllowedThenNotReplaced() {
+		FusedHttpMatcher matcher = new FusedHttpMatcher(allowlist("^http://localhost.*"));
+
+		HttpReplaceResult result = matcher.replaceHttp("http://localhost:8080 http://example.com");
+
+		assertThat(result.getResult()).isEqualTo("http://localhost:8080 https://example.com");
+	}
+
+	@Test
+	public void findHttpWhenDefaultAllowlistThenSameAsRegexHttpMatcher() {
+		Predicate<String> allowlist = RegexPredicate.createDefaultUrlAllowlist();
+		FusedHttpMatcher matcher = new FusedHttpMatcher(allowlist);
+		matcher.addHttpAllow(allowlist("^http://example\\.com/exact$"));
+		matcher.setVerifyEquivalence(true);
+		Random random = new Random(0);
+		for (int i = 0; i < 20000; i++) {
+			StringBuilder text = new StringBuilder();
+			int fragments = random.nextInt(12);
+			for (int f = 0; f < fragments; f++) {
+				text.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+			}
+
+			matcher.findHttp(text.toString());
+			matcher.replaceHttp(text.toString());
+			matcher.containsDisallowedHttp(text);
+		}
+	}
+
+	@Test
+	public void findHttpWhenVerifyEquivalenceAndDifferentThenIllegalStateException() {
+		// a predicate that allows a URL only once cannot give the same results twice
+		AtomicInteger tests = new AtomicInteger();
+		FusedHttpMatcher matcher = new FusedHttpMatcher(url -> tests.incrementAndGet() == 1);
+		matcher.setVerifyEquivalence(true);
+
+		assertThatCode(() -> matcher.findHttp("http://example.com"))
+			.isInstanceOf(IllegalStateException.class)
+			.hasMessage("FusedHttpMatcher found [] but RegexHttpMatcher found [http://example.com@0] in 'http://example.com'");
+	}
+
+	private static RegexPredicate allowlist(String... patterns) {
+		return new RegexPredicate(Arrays.asList(patterns).stream().map(Pattern::compile).collect(Collectors.toList()));
+	}
+}
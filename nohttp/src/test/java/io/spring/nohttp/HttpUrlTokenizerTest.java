@@ -0,0 +1,107 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.spring.nohttp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class HttpUrlTokenizerTest {
+	private static final Pattern DEFAULT_PATTERN = Pattern.compile("\\b(http\\\\?://[-a-zA-Z0-9+&@/%?=~_|!:,.;]*[-a-zA-Z0-9+&@/%=~_|])");
+
+	private static final String[] FRAGMENTS = { "http", "http://", "http\\://", "://", "https://", "h", "t", "p",
+			"\\", ":", "/", "a", "Z", "0", "_", "-", "+", "&", "@", "%", "=", "~", "|", "?", "!", ",", ".", ";",
+			" ", "\n", "\"", "'", "<", ">", "(", ")", "#", "\u00E9", "\u0301", "\u00DF", "\u00A0", "\uD83D\uDE00", "example.com" };
+
+	@Test
+	public void findWhenUrlThenFound() {
+		assertThat(find("a http://example.com/a?b=c. b")).containsExactly("http://example.com/a?b=c");
+	}
+
+	@Test
+	public void findWhenEscapedThenFound() {
+		assertThat(find("a=http\\://example.com")).containsExactly("http\\://example.com");
+	}
+
+	@Test
+	public void findWhenWordBeforeThenNotFound() {
+		assertThat(find("xhttp://example.com ahttp://b")).isEmpty();
+	}
+
+	@Test
+	public void findWhenOnlyUrlCharsThatCannotEndThenNotFound() {
+		assertThat(find("http://.,;")).isEmpty();
+	}
+
+	@Test
+	public void findWhenLongTokenThenFound() {
+		StringBuilder text = new StringBuilder("http://example.com/");
+		for (int i = 0; i < 100000; i++) {
+			text.append("a.");
+		}
+
+		assertThat(find(text.toString())).hasSize(1);
+	}
+
+	@Test
+	public void findWhenRandomTextThenSameAsDefaultPattern() {
+		Random random = new Random(0);
+		for (int i = 0; i < 50000; i++) {
+			StringBuilder text = new StringBuilder();
+			int fragments = random.nextInt(30);
+			for (int f = 0; f < fragments; f++) {
+				text.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+			}
+
+			assertThat(spans(text.toString())).describedAs(text.toString()).isEqualTo(spansWithPattern(text.toString()));
+		}
+	}
+
+	private static List<String> find(String text) {
+		List<String> results = new ArrayList<>();
+		HttpUrlTokenizer tokenizer = new HttpUrlTokenizer(text);
+		while (tokenizer.find()) {
+			results.add(text.substring(tokenizer.start(), tokenizer.end()));
+		}
+		return results;
+	}
+
+	private static List<String> spans(String text) {
+		List<String> results = new ArrayList<>();
+		HttpUrlTokenizer tokenizer = new HttpUrlTokenizer(text);
+		while (tokenizer.find()) {
+			results.add(tokenizer.start() + "-" + tokenizer.end());
+		}
+		return results;
+	}
+
+	private static List<String> spansWithPattern(String text) {
+		List<String> results = new ArrayList<>();
+		Matcher matcher = DEFAULT_PATTERN.matcher(text);
+		while (matcher.find()) {
+			results.add(matcher.start() + "-" + matcher.end());
+		}
+		return results;
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.spring.nohttp;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class KnownHttpsHostsTest {
+	private KnownHttpsHosts hosts = load(
+			"// version: 1",
+			".dev",
+			".spring.io",
+			"repo.maven.apache.org",
+			"",
+			"// comment",
+			"  GitHub.com  ");
+
+	@Test
+	public void loadWhenNullThenIllegalArgumentException() {
+		assertThatCode(() -> KnownHttpsHosts.load(null))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("resource cannot be null");
+	}
+
+	@Test
+	public void containsWhenNullThenIllegalArgumentException() {
+		assertThatCode(() -> this.hosts.contains(null))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("url cannot be null");
+	}
+
+	@Test
+	public void getVersionThenVersion() {
+		assertThat(this.hosts.getVersion()).isEqualTo("1");
+	}
+
+	@Test
+	public void containsWhenHostThenTrue() {
+		assertThat(this.hosts.contains("https://repo.maven.apache.org/maven2/")).isTrue();
+	}
+
+	@Test
+	public void containsWhenSubdomainOfHostThenFalse() {
+		assertThat(this.hosts.contains("https://other.repo.maven.apache.org/")).isFalse();
+	}
+
+	@Test
+	public void containsWhenParentOfHostThenFalse() {
+		assertThat(this.hosts.contains("https://maven.apache.org/")).isFalse();
+	}
+
+	@Test
+	public void containsWhenDomainThenTrue() {
+		assertThat(this.hosts.contains("https://spring.io/")).isTrue();
+	}
+
+	@Test
+	public void containsWhenSubdomainOfDomainThenTrue() {
+		assertThat(this.hosts.contains("https://docs.spring.io/spring/docs/")).isTrue();
+	}
+
+	@Test
+	public void containsWhenTopLevelDomainThenTrue() {
+		assertThat(this.hosts.contains("https://example.dev/")).isTrue();
+	}
+
+	@Test
+	public void containsWhenSuffixWithoutDotThenFalse() {
+		assertThat(this.hosts.contains("https://notspring.io/")).isFalse();
+	}
+
+	@Test
+	public void containsWhenUpperCaseThenTrue() {
+		assertThat(this.hosts.contains("https://GITHUB.com/spring-io/nohttp")).isTrue();
+	}
+
+	@Test
+	public void containsWhenPortThenFalse() {
+		assertThat(this.hosts.contains("https://github.com:8080/")).isFalse();
+	}
+
+	@Test
+	public void containsWhenMalformedThenFalse() {
+		assertThat(this.hosts.contains("github.com")).isFalse();
+	}
+
+	@Test
+	public void noneThenNoHosts() {
+		assertThat(KnownHttpsHosts.none().contains("https://github.com/")).isFalse();
+	}
+
+	@Test
+	public void bundledThenVersioned() {
+		assertThat(KnownHttpsHosts.bundled().getVersion()).isNotEmpty();
+		assertThat(KnownHttpsHosts.bundled().contains("https://docs.spring.io/")).isTrue();
+	}
+
+	@Test
+	public void bundledThenSorted() throws Exception {
+		InputStream resource = KnownHttpsHosts.class.getResourceAsStream("known-https-hosts.txt");
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource, StandardCharsets.UTF_8))) {
+			List<String> hosts = reader.lines()
+					.filter(l -> !l.startsWith("//"))
+					.collect(Collectors.toList());
+			List<String> sorted = new ArrayList<>(hosts);
+			sorted.sort(null);
+
+			assertThat(hosts).isEqualTo(sorted).doesNotHaveDuplicates();
+		}
+	}
+
+	private static KnownHttpsHosts load(String... lines) {
+		String content = String.join("\n", lines);
+		return KnownHttpsHosts.load(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+	}
+}
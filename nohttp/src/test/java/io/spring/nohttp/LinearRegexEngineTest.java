@@ -0,0 +1,156 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.spring.nohttp;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class LinearRegexEngineTest {
+	private static final List<String> PATTERNS = Arrays.asList("", "a", "a*", "a+b", "(a|b)*c", "a?b?c?",
+			"^http://example\\.com$", "^http://example\\.com/.*", "^http://[^/]*\\.test(:\\d+)?(/.*)?$",
+			"(?:ab|a)+b", "a{2}", "a{1,3}b", "a{2,}", "[a-c-]+", "[^a.]+", "[\\w.]+\\.[a-z]{2,3}", "\\s*\\S+",
+			"(a*)*b", "(a|aa)+$", "a*?b", "a+?", ".*\\.xsd", "(?<name>a)b", "[\\x41\\u0062]", "\\W\\D", "a|",
+			"|a", "()", "]a", "\\.\\*\\\\", "[-a]", "\u00e9+",
+			".*(?<!\\.(xsd))$", "[ab]*(?<=b|ab)", "\\Qa.b\\E*", "\\Q.*");
+
+	private static final String[] FRAGMENTS = { "a", "b", "c", "aa", "ab", ".", "/", "-", " ", "\n", "\t", "A", "1",
+			"_", "http://", "example", ".com", ".test", ":8080", "\u00e9", "\u2028", "\uD83D\uDE00", ".xsd" };
+
+	@Test
+	public void compileWhenNullThenIllegalArgumentException() {
+		assertThatCode(() -> new LinearRegexEngine().compile(null))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("pattern cannot be null");
+	}
+
+	@Test
+	public void compileWhenSupportedThenNoFallbacks() {
+		LinearRegexEngine engine = new LinearRegexEngine();
+
+		PATTERNS.forEach(p -> engine.compile(Pattern.compile(p)));
+
+		assertThat(engine.getFallbacks()).isEmpty();
+	}
+
+	@Test
+	public void compileWhenLookbehindAtEndThenNoFallback() {
+		LinearRegexEngine engine = new LinearRegexEngine();
+
+		Predicate<String> matches = engine.compile(Pattern.compile("^http://mycompany.test/xml/.*(?<!\\.(xsd))$"));
+
+		assertThat(engine.getFallbacks()).isEmpty();
+		assertThat(matches.test("http://mycompany.test/xml/a")).isTrue();
+		assertThat(matches.test("http://mycompany.test/xml/a.xsd")).isFalse();
+	}
+
+	@Test
+	public void compileWhenLookbehindNotAtEndThenFallback() {
+		LinearRegexEngine engine = new LinearRegexEngine();
+		String regex = "^http://mycompany.test/(?<!test/)xml/.*";
+
+		Predicate<String> matches = engine.compile(Pattern.compile(regex));
+
+		assertThat(engine.getFallbacks()).containsEntry(regex, "a negative lookbehind (?<! that is not at the end");
+		assertThat(matches.test("http://mycompany.test/xml/a")).isFalse();
+	}
+
+	@Test
+	public void compileWhenUnsupportedThenFallback() {
+		LinearRegexEngine engine = new LinearRegexEngine();
+
+		Arrays.asList("(a)\\1", "a*+", "\\bword", "(?i)a", "a$|b", "[a&&b]", "[a[b]]", "a{1001}", "a|b(?<!b)")
+			.forEach(p -> engine.compile(Pattern.compile(p)));
+		engine.compile(Pattern.compile("a", Pattern.CASE_INSENSITIVE));
+
+		assertThat(engine.getFallbacks()).containsOnlyKeys("(a)\\1", "a*+", "\\bword", "(?i)a", "a$|b", "[a&&b]",
+				"[a[b]]", "a{1001}", "a|b(?<!b)", "a");
+		assertThat(engine.getFallbacks().get("a*+")).isEqualTo("a possessive quantifier");
+	}
+
+	@Test
+	public void compileWhenNestedQuantifiersThenLinear() {
+		Predicate<String> matches = new LinearRegexEngine().compile(Pattern.compile("^http://a.test/(a+)+$"));
+		StringBuilder url = new StringBuilder("http://a.test/");
+		for (int i = 0; i < 100_000; i++) {
+			url.append('a');
+		}
+		url.append('!');
+
+		assertThat(matches.test(url.toString())).isFalse();
+	}
+
+	@Test
+	public void compileWhenRandomTextThenSameAsJdk() {
+		Random random = new Random(0);
+		LinearRegexEngine engine = new LinearRegexEngine();
+		for (String regex : PATTERNS) {
+			Pattern pattern = Pattern.compile(regex);
+			assertSameAsJdk(engine.compile(pattern), pattern, random, FRAGMENTS, 2000);
+		}
+	}
+
+	@Test
+	public void compileWhenDefaultAllowlistThenSameAsJdk() throws Exception {
+		String[] fragments = { "http://", "localhost", "127.0.0.1", ":8080", "/", ".", "-", "a", "www.", "w3.org",
+				"2001/XMLSchema", ".xsd", "maven.apache.org", "POM/4.0.0", "example.com", ".test", "java.sun.com",
+				"xml", "ns", "_", "?", "#" };
+		Random random = new Random(0);
+		LinearRegexEngine engine = new LinearRegexEngine();
+		for (Pattern pattern : defaultAllowlist()) {
+			assertSameAsJdk(engine.compile(pattern), pattern, random, fragments, 200);
+		}
+		assertThat(engine.getFallbacks()).isEmpty();
+	}
+
+	private static void assertSameAsJdk(Predicate<String> matches, Pattern pattern, Random random,
+			String[] fragments, int count) {
+		for (int i = 0; i < count; i++) {
+			StringBuilder text = new StringBuilder();
+			int length = random.nextInt(8);
+			for (int j = 0; j < length; j++) {
+				text.append(fragments[random.nextInt(fragments.length)]);
+			}
+			String input = text.toString();
+			assertThat(matches.test(input))
+				.describedAs("%s matching '%s'", pattern, input)
+				.isEqualTo(pattern.matcher(input).matches());
+		}
+	}
+
+	private static List<Pattern> defaultAllowlist() throws Exception {
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+				RegexPredicate.class.getResourceAsStream("allowlist.txt"), StandardCharsets.UTF_8))) {
+			return reader.lines()
+				.map(String::trim)
+				.filter(l -> !l.startsWith("//") && !l.isEmpty())
+				.map(Pattern::compile)
+				.collect(Collectors.toList());
+		}
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.spring.nohttp;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class MavenRepositoryHttpMatcherTest {
+	private MavenRepositoryHttpMatcher matcher = new MavenRepositoryHttpMatcher();
+
+	@Test
+	public void constructorWhenNullThenIllegalArgumentException() {
+		assertThatCode(() -> new MavenRepositoryHttpMatcher(null))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("allow cannot be null");
+	}
+
+	@Test
+	public void findHttpWhenRepositoryThenFound() {
+		String pom = "<repositories>\n<repository>\n<id>a</id>\n<url>\n  http://repo.example.com/maven\n</url>\n</repository>\n</repositories>";
+
+		List<HttpMatchResult> results = this.matcher.findHttp(pom);
+
+		assertThat(results).hasSize(1);
+		assertThat(results.get(0).getHttp()).isEqualTo("http://repo.example.com/maven");
+		assertThat(results.get(0).getStart()).isEqualTo(pom.indexOf("http://"));
+	}
+
+	@Test
+	public void findHttpWhenPluginRepositorySnapshotRepositoryAndMirrorThenFound() {
+		String xml = "<pluginRepository><url>http://a.example.com</url></pluginRepository>"
+				+ "<snapshotRepository id=\"b\"><url>http://b.example.com</url></snapshotRepository>"
+				+ "<mirror><url>http://c.example.com</url></mirror>";
+
+		assertThat(this.matcher.findHttp(xml)).extracting(HttpMatchResult::getHttp)
+			.containsExactly("http://a.example.com", "http://b.example.com", "http://c.example.com");
+	}
+
+	@Test
+	public void findHttpWhenUrlNotInRepositoryThenNotFound() {
+		String pom = "<project><url>http://example.com</url><repositories></repositories></project>";
+
+		assertThat(this.matcher.findHttp(pom)).isEmpty();
+	}
+
+	@Test
+	public void findHttpWhenLocalhostThenNotFound() {
+		String pom = "<repository><url>http://localhost:8080/</url></repository><repository><url>http://127.0.0.1/</url></repository>";
+
+		assertThat(this.matcher.findHttp(pom)).isEmpty();
+	}
+
+	@Test
+	public void findHttpWhenAllowedThenNotFound() {
+		MavenRepositoryHttpMatcher matcher = new MavenRepositoryHttpMatcher(url -> url.contains("allowed"));
+		String pom = "<repository><url>http://allowed.example.com/</url></repository>";
+
+		assertThat(matcher.findHttp(pom)).isEmpty();
+	}
+
+	@Test
+	public void replaceHttpWhenRepositoryThenReplaced() {
+		String pom = "<url>http://a.example.com</url><repository><url>http://b.example.com</url></repository>";
+
+		HttpReplaceResult result = this.matcher.replaceHttp(pom);
+
+		assertThat(result.isReplacement()).isTrue();
+		assertThat(result.getResult()).isEqualTo("<url>http://a.example.com</url><repository><url>https://b.example.com</url></repository>");
+	}
+
+	@Test
+	public void replaceHttpWhenNoRepositoryThenSame() {
+		HttpReplaceResult result = this.matcher.replaceHttp("<project/>");
+
+		assertThat(result.isReplacement()).isFalse();
+		assertThat(result.getResult()).isEqualTo("<project/>");
+	}
+}
@@ -22,6 +22,7 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -293,6 +294,15 @@ public class RegexHttpMatcherTest {
 
 	// replaceHttp
 
+	@Test
+	public void replaceHttpWhenReplacementRulesThenReplaced() {
+		this.matcher.setHttpReplacer(new ReplacementRules().addHostRewrite("jcenter.bintray.com", "repo.example.org"));
+
+		HttpReplaceResult result = this.matcher.replaceHttp("a http://jcenter.bintray.com/a b http://example.com c");
+
+		assertThat(result.getResult()).isEqualTo("a https://repo.example.org/a b https://example.com c");
+	}
+
 	@Test
 	public void replaceHttpWhenCustomPatternAndReplacerThenFound() {
 		Pattern pattern = Pattern.compile("a");
@@ -329,6 +339,38 @@ public class RegexHttpMatcherTest {
 		assertThat(result.getResult()).isEqualTo("http://example.com");
 	}
 
+	@Test
+	public void containsDisallowedHttpWhenNotAllowedThenTrue() {
+		this.matcher = new RegexHttpMatcher(http -> http.equals("http://example.com/a"));
+
+		assertThat(this.matcher.containsDisallowedHttp("http://example.com/a http://example.com/b")).isTrue();
+	}
+
+	@Test
+	public void containsDisallowedHttpWhenAllowedThenFalse() {
+		this.matcher = new RegexHttpMatcher(http -> http.equals("http://example.com/a"));
+
+		assertThat(this.matcher.containsDisallowedHttp(new StringBuilder("a http://example.com/a https://example.com/b"))).isFalse();
+	}
+
+	@Test
+	public void containsDisallowedHttpWhenNotReplacedThenFalse() {
+		this.matcher = new RegexHttpMatcher(http -> false);
+		this.matcher.setHttpReplacer(u -> u);
+
+		assertThat(this.matcher.containsDisallowedHttp("http://example.com")).isFalse();
+	}
+
+	@Test
+	public void containsDisallowedHttpWhenFoundThenStopsAtFirst() {
+		List<String> tested = new ArrayList<>();
+		this.matcher = new RegexHttpMatcher(http -> !tested.add(http));
+
+		this.matcher.containsDisallowedHttp("http://example.com/a http://example.com/b");
+
+		assertThat(tested).containsExactly("http://example.com/a");
+	}
+
 	private HttpReplaceResult assertReplaceHttpEquals(String text, String result) {
 		HttpReplaceResult matches = this.matcher.replaceHttp(text);
 		assertThat(matches.getResult()).isEqualTo(result);
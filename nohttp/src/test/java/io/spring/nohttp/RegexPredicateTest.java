@@ -22,6 +22,7 @@ import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
@@ -72,6 +73,137 @@ public class RegexPredicateTest {
 		assertThat(test.test("foo")).isTrue();
 	}
 
+	// setEngine
+
+	@Test
+	public void setEngineWhenNullThenIllegalArgumentException() {
+		RegexPredicate test = new RegexPredicate(Arrays.asList(Pattern.compile(".*")));
+
+		assertThatCode(() -> test.setEngine(null))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("engine cannot be null");
+	}
+
+	@Test
+	public void setEngineWhenLinearThenMatchesSame() {
+		RegexPredicate test = new RegexPredicate(Arrays.asList(Pattern.compile("^http://foo\\.test/.*"),
+				Pattern.compile("^http://bar/(?!baz).*")));
+		LinearRegexEngine engine = new LinearRegexEngine();
+
+		test.setEngine(engine);
+
+		assertThat(test.test("http://foo.test/a")).isTrue();
+		assertThat(test.test("http://bar/a")).isTrue();
+		assertThat(test.test("http://bar/baz")).isFalse();
+		assertThat(test.test("http://fooXtest/a")).isFalse();
+		assertThat(engine.getFallbacks()).containsOnlyKeys("^http://bar/(?!baz).*");
+	}
+
+	// setProfiling
+
+	@Test
+	public void getProfilesWhenNotProfilingThenEmpty() {
+		RegexPredicate test = new RegexPredicate(Arrays.asList(Pattern.compile(".*")));
+
+		test.test("foo");
+
+		assertThat(test.getProfiles()).isEmpty();
+	}
+
+	@Test
+	public void setProfilingWhenTrueThenRecordsEachRule() {
+		RegexPredicate test = new RegexPredicate(Arrays.asList(Pattern.compile("a.*"), Pattern.compile("b.*"),
+				Pattern.compile("c.*")));
+		test.setProfiling(true);
+
+		test.test("b1");
+		test.test("a1");
+		test.test("b2");
+		test.test("d");
+
+		List<RuleProfile> profiles = test.getProfiles();
+		assertThat(profiles).extracting(p -> p.getPattern().pattern()).containsExactly("a.*", "b.*", "c.*");
+		assertThat(profiles).extracting(RuleProfile::getEvaluations).containsExactly(4L, 3L, 1L);
+		assertThat(profiles).extracting(RuleProfile::getHits).containsExactly(1L, 2L, 0L);
+		assertThat(profiles).extracting(RuleProfile::getFirstExample).containsExactly("a1", "b1", null);
+		assertThat(profiles.get(0).getNanos()).isPositive();
+	}
+
+	@Test
+	public void setProfilingWhenFalseThenProfilesCleared() {
+		RegexPredicate test = new RegexPredicate(Arrays.asList(Pattern.compile(".*")));
+		test.setProfiling(true);
+		test.test("foo");
+
+		test.setProfiling(false);
+
+		assertThat(test.getProfiles()).isEmpty();
+	}
+
+	// setRuleOrder
+
+	@Test
+	public void setRuleOrderWhenHitsThenMostHitPatternEvaluatedFirst() {
+		RegexPredicate test = new RegexPredicate(Arrays.asList(Pattern.compile("a.*"), Pattern.compile("b.*")));
+		AdaptiveRuleOrder order = new AdaptiveRuleOrder();
+		test.setRuleOrder(order);
+		for (int i = 0; i < 256; i++) {
+			assertThat(test.test("b")).isTrue();
+		}
+		test.setProfiling(true);
+
+		assertThat(test.test("b")).isTrue();
+		assertThat(test.test("a")).isTrue();
+		assertThat(test.test("c")).isFalse();
+
+		assertThat(test.getProfiles()).extracting(RuleProfile::getEvaluations).containsExactly(2L, 3L);
+		assertThat(order.getHitCounts()).containsOnly(entry("a.*", 1L), entry("b.*", 257L));
+	}
+
+	@Test
+	public void setRuleOrderWhenLoadedCountsThenStartsWithLearnedOrder() {
+		RegexPredicate test = new RegexPredicate(Arrays.asList(Pattern.compile("a.*"), Pattern.compile("b.*")));
+		AdaptiveRuleOrder order = new AdaptiveRuleOrder();
+		order.counter("b.*").add(10);
+		test.setRuleOrder(order);
+		test.setProfiling(true);
+
+		assertThat(test.test("b")).isTrue();
+
+		assertThat(test.getProfiles()).extracting(RuleProfile::getEvaluations).containsExactly(0L, 1L);
+	}
+
+	@Test
+	public void setRuleOrderWhenNullThenPatternsInOrder() {
+		RegexPredicate test = new RegexPredicate(Arrays.asList(Pattern.compile("a.*"), Pattern.compile("b.*")));
+		AdaptiveRuleOrder order = new AdaptiveRuleOrder();
+		order.counter("b.*").add(10);
+		test.setRuleOrder(order);
+		test.setRuleOrder(null);
+		test.setProfiling(true);
+
+		assertThat(test.test("b")).isTrue();
+
+		assertThat(test.getProfiles()).extracting(RuleProfile::getEvaluations).containsExactly(1L, 1L);
+	}
+
+	// explain
+
+	@Test
+	public void explainWhenAllowedThenFirstMatchingPattern() {
+		Pattern b = Pattern.compile("b.*");
+		RegexPredicate test = new RegexPredicate(Arrays.asList(Pattern.compile("a.*"), b, Pattern.compile(".*")));
+
+		assertThat(test.explain("b1")).isSameAs(b);
+	}
+
+	@Test
+	public void explainWhenNotAllowedThenNull() {
+		RegexPredicate test = new RegexPredicate(Arrays.asList(Pattern.compile("a.*")));
+
+		assertThat(test.explain("b")).isNull();
+	}
+
 	// createAllowlistFromPatterns
 
 	@Test
@@ -112,6 +244,70 @@ public class RegexPredicateTest {
 			.isInstanceOf(PatternSyntaxException.class);
 	}
 
+	@Test
+	public void createAllowlistFromPatternsWhenExactThenOnlyUrlAllowed() {
+		Predicate<String> test = RegexPredicate.createAllowlistFromPatterns(inputStream("exact:http://a.test/b?c=1"));
+
+		assertThat(test.test("http://a.test/b?c=1")).isTrue();
+		assertThat(test.test("http://a.test/b?c=12")).isFalse();
+		assertThat(test.test("http://aXtest/b?c=1")).isFalse();
+	}
+
+	@Test
+	public void createAllowlistFromPatternsWhenPrefixThenStartAllowed() {
+		Predicate<String> test = RegexPredicate.createAllowlistFromPatterns(inputStream("prefix: http://a.test/b/"));
+
+		assertThat(test.test("http://a.test/b/")).isTrue();
+		assertThat(test.test("http://a.test/b/c")).isTrue();
+		assertThat(test.test("http://a.test/bc")).isFalse();
+	}
+
+	@Test
+	public void createAllowlistFromPatternsWhenHostThenHostAndSubdomainsAllowed() {
+		Predicate<String> test = RegexPredicate.createAllowlistFromPatterns(inputStream("host:a.test"));
+
+		assertThat(test.test("http://a.test")).isTrue();
+		assertThat(test.test("http://a.test/b")).isTrue();
+		assertThat(test.test("http://a.test:8080/b")).isTrue();
+		assertThat(test.test("http\\://a.test?b")).isTrue();
+		assertThat(test.test("http://www.a.test#b")).isTrue();
+		assertThat(test.test("http://ba.test")).isFalse();
+		assertThat(test.test("http://a.testing")).isFalse();
+		assertThat(test.test("http://b.test/a.test")).isFalse();
+	}
+
+	@Test
+	public void createAllowlistFromPatternsWhenInvalidHostThenIllegalArgumentException() {
+		assertThatCode(() -> RegexPredicate.createAllowlistFromPatterns(inputStream("host:a.test/b")))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessageContaining("host:a.test/b");
+	}
+
+	@Test
+	public void createAllowlistFromPatternsWhenGlobThenWildcardsAllowed() {
+		Predicate<String> test = RegexPredicate.createAllowlistFromPatterns(
+				inputStream("glob:http://a.test/*/b?.xsd\nglob:http://c.test/**"));
+
+		assertThat(test.test("http://a.test/1.0/b1.xsd")).isTrue();
+		assertThat(test.test("http://a.test/1/0/b1.xsd")).isFalse();
+		assertThat(test.test("http://a.test/1.0/b.xsd")).isFalse();
+		assertThat(test.test("http://c.test/1/0")).isTrue();
+	}
+
+	@Test
+	public void createAllowlistFromPatternsWhenRegexTypeThenRegex() {
+		Predicate<String> test = RegexPredicate.createAllowlistFromPatterns(inputStream("regex:host:a\\.test"));
+
+		assertThat(test.test("host:a.test")).isTrue();
+		assertThat(test.test("http://a.test")).isFalse();
+	}
+
+	@Test
+	public void createAllowlistFromPatternsWhenTypeWithoutValueThenIllegalArgumentException() {
+		assertThatCode(() -> RegexPredicate.createAllowlistFromPatterns(inputStream("exact:")))
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+
 	private static InputStream inputStream(String s) {
 		return new ByteArrayInputStream(s.getBytes());
 	}
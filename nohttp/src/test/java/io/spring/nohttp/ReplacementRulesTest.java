@@ -0,0 +1,133 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.spring.nohttp;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class ReplacementRulesTest {
+	private ReplacementRules rules = new ReplacementRules();
+
+	@Test
+	public void loadWhenNullThenIllegalArgumentException() {
+		assertThatCode(() -> ReplacementRules.load(null))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("resource cannot be null");
+	}
+
+	@Test
+	public void loadWhenOneColumnThenIllegalArgumentException() {
+		assertThatCode(() -> load("// comment", "jcenter.bintray.com"))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("Line 2 must contain what to replace and the replacement but was 'jcenter.bintray.com'");
+	}
+
+	@Test
+	public void loadWhenHostAndPrefixThenIllegalArgumentException() {
+		assertThatCode(() -> load("jcenter.bintray.com https://repo.example.org/"))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("Line 1 must contain two URL prefixes or two hosts but was 'jcenter.bintray.com https://repo.example.org/'");
+	}
+
+	@Test
+	public void loadThenRulesApplied() {
+		ReplacementRules rules = load(
+				"// comment",
+				"",
+				"  dl.bintray.com   repo.example.org  ",
+				"http://jcenter.bintray.com/ https://repo.maven.apache.org/maven2/");
+
+		assertThat(rules.apply("http://dl.bintray.com/a")).isEqualTo("https://repo.example.org/a");
+		assertThat(rules.apply("http://jcenter.bintray.com/a")).isEqualTo("https://repo.maven.apache.org/maven2/a");
+	}
+
+	@Test
+	public void addHostRewriteWhenNullThenIllegalArgumentException() {
+		assertThatCode(() -> this.rules.addHostRewrite(null, "b"))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("host cannot be null");
+	}
+
+	@Test
+	public void addPrefixRewriteWhenNoSchemeThenIllegalArgumentException() {
+		assertThatCode(() -> this.rules.addPrefixRewrite("example.com/", "https://example.org/"))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("prefix must contain :// but was example.com/");
+	}
+
+	@Test
+	public void applyWhenNoRulesThenSchemeUpgraded() {
+		assertThat(this.rules.apply("http://example.com/http")).isEqualTo("https://example.com/http");
+	}
+
+	@Test
+	public void applyWhenEscapedThenSchemeUpgraded() {
+		assertThat(this.rules.apply("http\\://example.com/")).isEqualTo("https\\://example.com/");
+	}
+
+	@Test
+	public void applyWhenHostRewriteThenHostReplaced() {
+		this.rules.addHostRewrite("Old.Example.com", "new.example.com");
+
+		assertThat(this.rules.apply("http://old.example.com")).isEqualTo("https://new.example.com");
+		assertThat(this.rules.apply("http://OLD.example.com/a?b#c")).isEqualTo("https://new.example.com/a?b#c");
+		assertThat(this.rules.apply("http://old.example.com:8080/")).isEqualTo("https://old.example.com:8080/");
+		assertThat(this.rules.apply("http://other.example.com/")).isEqualTo("https://other.example.com/");
+	}
+
+	@Test
+	public void applyWhenPrefixRewriteThenLongestPrefixReplaced() {
+		this.rules.addPrefixRewrite("http://example.com/", "https://example.org/")
+			.addPrefixRewrite("http://example.com/docs/", "https://docs.example.org/");
+
+		assertThat(this.rules.apply("http://example.com/docs/a")).isEqualTo("https://docs.example.org/a");
+		assertThat(this.rules.apply("http://example.com/a")).isEqualTo("https://example.org/a");
+	}
+
+	@Test
+	public void applyWhenPrefixRewriteAndHostRewriteThenPrefixWins() {
+		this.rules.addHostRewrite("example.com", "host.example.org")
+			.addPrefixRewrite("http://example.com/docs/", "https://docs.example.org/");
+
+		assertThat(this.rules.apply("http://example.com/docs/a")).isEqualTo("https://docs.example.org/a");
+		assertThat(this.rules.apply("http://example.com/a")).isEqualTo("https://host.example.org/a");
+	}
+
+	@Test
+	public void applyWhenRuleAddedAfterApplyThenRuleApplied() {
+		assertThat(this.rules.apply("http://example.com/")).isEqualTo("https://example.com/");
+
+		this.rules.addHostRewrite("example.com", "example.org");
+
+		assertThat(this.rules.apply("http://example.com/")).isEqualTo("https://example.org/");
+	}
+
+	@Test
+	public void applyWhenSameUrlThenSameInstance() {
+		assertThat(this.rules.apply("http://example.com/")).isSameAs(this.rules.apply("http://example.com/"));
+	}
+
+	private static ReplacementRules load(String... lines) {
+		String content = String.join("\n", lines);
+		return ReplacementRules.load(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+	}
+}
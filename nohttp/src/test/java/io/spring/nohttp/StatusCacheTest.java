@@ -0,0 +1,225 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.spring.nohttp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class StatusCacheTest {
+	private static final String URL = "https://example.com/";
+
+	private static final Instant NOW = Instant.parse("2021-06-01T00:00:00Z");
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	private File file;
+
+	private StatusCache cache;
+
+	@Before
+	public void setup() {
+		this.file = new File(this.temp.getRoot(), "nohttp/status.log");
+		this.cache = createCache(NOW);
+	}
+
+	@After
+	public void cleanup() {
+		this.cache.close();
+	}
+
+	@Test
+	public void constructorWhenNullThenIllegalArgumentException() {
+		assertThatCode(() -> new StatusCache(null))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("file cannot be null");
+	}
+
+	@Test
+	public void getWhenMissingThenNull() {
+		assertThat(this.cache.get(URL)).isNull();
+	}
+
+	@Test
+	public void getWhenPutThenStatus() {
+		this.cache.put(URL, 200);
+
+		assertThat(this.cache.get(URL).getStatus()).isEqualTo(200);
+	}
+
+	@Test
+	public void getWhenPutNullThenNullStatus() {
+		this.cache.put(URL, null);
+
+		assertThat(this.cache.get(URL)).isNotNull();
+		assertThat(this.cache.get(URL).getStatus()).isNull();
+	}
+
+	@Test
+	public void getWhenNewInstanceThenReadFromFile() {
+		this.cache.put(URL, 200);
+		this.cache.put(URL, 301);
+		this.cache.close();
+
+		StatusCache cache = createCache(NOW);
+
+		assertThat(cache.get(URL).getStatus()).isEqualTo(301);
+		cache.close();
+	}
+
+	@Test
+	public void getWhenTimeToLiveExpiredThenNull() {
+		this.cache.put(URL, 200);
+		this.cache.close();
+
+		StatusCache cache = createCache(NOW.plus(Duration.ofDays(8)));
+
+		assertThat(cache.get(URL)).isNull();
+	}
+
+	@Test
+	public void getWhenNegativeTimeToLiveExpiredThenNull() {
+		this.cache.put(URL, 404);
+		this.cache.put("https://example.org/", 200);
+		this.cache.close();
+
+		StatusCache cache = createCache(NOW.plus(Duration.ofHours(2)));
+
+		assertThat(cache.get(URL)).isNull();
+		assertThat(cache.get("https://example.org/").getStatus()).isEqualTo(200);
+	}
+
+	@Test
+	public void getWhenCustomTimeToLiveThenUsed() {
+		this.cache.put(URL, 200);
+		this.cache.close();
+
+		StatusCache cache = createCache(NOW.plus(Duration.ofMinutes(2)));
+		cache.setTimeToLive(Duration.ofMinutes(1));
+
+		assertThat(cache.get(URL)).isNull();
+	}
+
+	@Test
+	public void closeWhenMostlyReplacedThenCompacted() throws Exception {
+		for (int i = 0; i < 5; i++) {
+			this.cache.put(URL, 200 + i);
+		}
+		this.cache.close();
+
+		StatusCache cache = createCache(NOW);
+
+		assertThat(Files.readAllLines(this.file.toPath())).hasSize(1);
+		assertThat(cache.get(URL).getStatus()).isEqualTo(204);
+	}
+
+	@Test
+	public void closeWhenMostlyExpiredThenCompactedWithoutExpired() throws Exception {
+		this.cache.put(URL, 200);
+		this.cache.put("https://example.org/", 404);
+		this.cache.put("https://example.net/", 404);
+		this.cache.close();
+		StatusCache cache = createCache(NOW.plus(Duration.ofHours(2)));
+
+		cache.close();
+
+		assertThat(Files.readAllLines(this.file.toPath())).containsExactly(URL + "\t200\t" + NOW.toEpochMilli());
+	}
+
+	@Test
+	public void closeWhenFewReplacedThenNotCompacted() throws Exception {
+		this.cache.put(URL, 200);
+		this.cache.put(URL, 201);
+		this.cache.put("https://example.org/", 200);
+
+		this.cache.close();
+
+		assertThat(Files.readAllLines(this.file.toPath())).hasSize(3);
+	}
+
+	@Test
+	public void constructorWhenPartialLineThenIgnored() throws Exception {
+		this.file.getParentFile().mkdirs();
+		Files.write(this.file.toPath(), Arrays.asList(URL + "\t200\t" + NOW.toEpochMilli(), "https://example.org/\t20"), StandardCharsets.UTF_8);
+
+		StatusCache cache = createCache(NOW);
+
+		assertThat(cache.get(URL).getStatus()).isEqualTo(200);
+		assertThat(cache.get("https://example.org/")).isNull();
+	}
+
+	@Test
+	public void importFromWhenExportedThenEntriesAvailable() {
+		this.cache.put(URL, 200);
+		File exported = new File(this.temp.getRoot(), "exported.log");
+		this.cache.exportTo(exported);
+
+		StatusCache other = new StatusCache(new File(this.temp.getRoot(), "other.log"));
+		other.setClock(Clock.fixed(NOW, ZoneOffset.UTC));
+		other.importFrom(exported);
+
+		assertThat(other.get(URL).getStatus()).isEqualTo(200);
+		other.close();
+	}
+
+	@Test
+	public void importFromWhenOlderThenKeepsCurrent() {
+		this.cache.put(URL, 500);
+		File exported = new File(this.temp.getRoot(), "exported.log");
+		this.cache.exportTo(exported);
+		this.cache.close();
+
+		StatusCache newer = createCache(NOW.plusSeconds(1));
+		newer.put(URL, 200);
+		newer.importFrom(exported);
+
+		assertThat(newer.get(URL).getStatus()).isEqualTo(200);
+		newer.close();
+	}
+
+	@Test
+	public void exportToWhenExpiredThenNotExported() throws Exception {
+		this.cache.put(URL, 404);
+		this.cache.close();
+		StatusCache cache = createCache(NOW.plus(Duration.ofHours(2)));
+		File exported = new File(this.temp.getRoot(), "exported.log");
+
+		cache.exportTo(exported);
+
+		assertThat(Files.readAllLines(exported.toPath())).isEmpty();
+	}
+
+	private StatusCache createCache(Instant now) {
+		StatusCache cache = new StatusCache(this.file);
+		cache.setClock(Clock.fixed(now, ZoneOffset.UTC));
+		return cache;
+	}
+}
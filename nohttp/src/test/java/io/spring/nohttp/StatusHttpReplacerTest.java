@@ -0,0 +1,197 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.spring.nohttp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.ServerSocket;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class StatusHttpReplacerTest {
+	private StubServer server;
+
+	private StatusProber prober = new StatusProber();
+
+	private StatusHttpReplacer replacer;
+
+	@Before
+	public void setup() throws Exception {
+		this.server = StubServer.https()
+				.respond("/", 200)
+				.respond("/ok", 200)
+				.respond("/error", 500)
+				.redirect("/moved", 301, "/ok");
+		this.prober.setSslSocketFactory(this.server.sslSocketFactory());
+		this.replacer = new StatusHttpReplacer(this.prober);
+	}
+
+	@After
+	public void cleanup() {
+		this.prober.close();
+		this.server.close();
+	}
+
+	@Test
+	public void constructorWhenNullThenIllegalArgumentException() {
+		assertThatCode(() -> new StatusHttpReplacer(null))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("prober cannot be null");
+	}
+
+	@Test
+	public void closeWhenProberProvidedThenProberNotClosed() {
+		String httpsUrl = this.server.url("/ok");
+		String httpUrl = httpsUrl.replaceFirst("https", "http");
+
+		this.replacer.close();
+
+		assertThat(this.replacer.apply(httpUrl)).isEqualTo(httpsUrl);
+	}
+
+	@Test
+	public void applyWhenHttpsOkThenHttps() {
+		String httpsUrl = this.server.url("/ok");
+		String httpUrl = httpsUrl.replaceFirst("https", "http");
+
+		assertThat(this.replacer.apply(httpUrl)).isEqualTo(httpsUrl);
+	}
+
+	@Test
+	public void applyWhenHttpsErrorThenHttp() {
+		String httpUrl = this.server.url("/error").replaceFirst("https", "http");
+
+		assertThat(this.replacer.apply(httpUrl)).isEqualTo(httpUrl);
+	}
+
+	@Test
+	public void applyAsyncWhenHttpsOkThenHttps() throws Exception {
+		String httpsUrl = this.server.url("/ok");
+		String httpUrl = httpsUrl.replaceFirst("https", "http");
+
+		assertThat(this.replacer.applyAsync(httpUrl).get()).isEqualTo(httpsUrl);
+	}
+
+	@Test
+	public void applyAllWhenNullThenIllegalArgumentException() {
+		assertThatCode(() -> this.replacer.applyAll(null))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("httpUrls cannot be null");
+	}
+
+	@Test
+	public void applyAllThenMapsEachUrlToReplacement() throws Exception {
+		String okHttpsUrl = this.server.url("/ok");
+		String okHttpUrl = okHttpsUrl.replaceFirst("https", "http");
+		String errorHttpUrl = this.server.url("/error").replaceFirst("https", "http");
+
+		Map<String, String> replacements = this.replacer.applyAll(Arrays.asList(okHttpUrl, errorHttpUrl)).get();
+
+		assertThat(replacements).containsOnly(entry(okHttpUrl, okHttpsUrl), entry(errorHttpUrl, errorHttpUrl));
+		assertThat(this.server.requestCount("/ok")).isEqualTo(1);
+	}
+
+	@Test
+	public void setProbeStrategyWhenNullThenIllegalArgumentException() {
+		assertThatCode(() -> this.replacer.setProbeStrategy(null))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("probeStrategy cannot be null");
+	}
+
+	@Test
+	public void applyWhenRedirectToOkThenHttps() {
+		String httpsUrl = this.server.url("/moved");
+		String httpUrl = httpsUrl.replaceFirst("https", "http");
+
+		assertThat(this.replacer.apply(httpUrl)).isEqualTo(httpsUrl);
+	}
+
+	@Test
+	public void applyWhenHostStrategyThenOneRequestPerHost() {
+		this.replacer.setProbeStrategy(ProbeStrategy.HOST);
+		String errorHttpsUrl = this.server.url("/error");
+		String missingHttpsUrl = this.server.url("/missing");
+
+		assertThat(this.replacer.apply(errorHttpsUrl.replaceFirst("https", "http"))).isEqualTo(errorHttpsUrl);
+		assertThat(this.replacer.apply(missingHttpsUrl.replaceFirst("https", "http"))).isEqualTo(missingHttpsUrl);
+		assertThat(this.server.requests()).containsExactly("HEAD /");
+	}
+
+	@Test
+	public void applyWhenHostStrategyAndHostNotHttpsThenHttp() throws Exception {
+		this.replacer.setProbeStrategy(ProbeStrategy.HOST);
+		try (StubServer http = StubServer.http().respond("/", 200)) {
+			String httpUrl = http.url("/ok");
+
+			assertThat(this.replacer.apply(httpUrl)).isEqualTo(httpUrl);
+		}
+	}
+
+	@Test
+	public void applyWhenHostAndUrlStrategyThenUrlVerified() {
+		this.replacer.setProbeStrategy(ProbeStrategy.HOST_AND_URL);
+		String okHttpsUrl = this.server.url("/ok");
+		String errorHttpUrl = this.server.url("/error").replaceFirst("https", "http");
+
+		assertThat(this.replacer.apply(okHttpsUrl.replaceFirst("https", "http"))).isEqualTo(okHttpsUrl);
+		assertThat(this.replacer.apply(errorHttpUrl)).isEqualTo(errorHttpUrl);
+		assertThat(this.server.requests()).containsExactly("HEAD /", "HEAD /ok", "HEAD /error");
+	}
+
+	@Test
+	public void applyAllWhenHostSkippedThenHttp() throws Exception {
+		int port;
+		try (ServerSocket socket = new ServerSocket(0)) {
+			port = socket.getLocalPort();
+		}
+		this.prober.setMaxConnectionsPerHost(1);
+		this.prober.setMaxConsecutiveFailuresPerHost(1);
+		String failed = "http://localhost:" + port + "/failed";
+		String skipped = "http://localhost:" + port + "/skipped";
+
+		Map<String, String> replacements = this.replacer.applyAll(Arrays.asList(failed, skipped)).get();
+
+		assertThat(replacements).containsEntry(failed, failed).containsEntry(skipped, skipped);
+		assertThat(this.prober.getHostMetrics().get(0).getSkipped()).isEqualTo(1);
+	}
+
+	@Test
+	public void setKnownHttpsHostsWhenNullThenIllegalArgumentException() {
+		assertThatCode(() -> this.replacer.setKnownHttpsHosts(null))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("knownHttpsHosts cannot be null");
+	}
+
+	@Test
+	public void applyWhenKnownHttpsHostThenHttpsWithoutRequest() {
+		this.prober.setOffline(true);
+
+		assertThat(this.replacer.apply("http://docs.spring.io/spring/docs/")).isEqualTo("https://docs.spring.io/spring/docs/");
+	}
+
+	@Test
+	public void applyWhenKnownHttpsHostsNoneThenRequest() {
+		this.prober.setOffline(true);
+		this.replacer.setKnownHttpsHosts(KnownHttpsHosts.none());
+
+		assertThat(this.replacer.apply("http://docs.spring.io/spring/docs/")).isEqualTo("http://docs.spring.io/spring/docs/");
+	}
+}
@@ -0,0 +1,367 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.spring.nohttp;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class StatusProberTest {
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	private StubServer server;
+
+	private StatusProber prober = new StatusProber(8);
+
+	@After
+	public void cleanup() {
+		this.prober.close();
+		if (this.server != null) {
+			this.server.close();
+		}
+	}
+
+	@Test
+	public void constructorWhenZeroThenIllegalArgumentException() {
+		assertThatCode(() -> new StatusProber(0))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("maxConcurrency must be greater than 0");
+	}
+
+	@Test
+	public void setMaxConnectionsPerHostWhenZeroThenIllegalArgumentException() {
+		assertThatCode(() -> this.prober.setMaxConnectionsPerHost(0))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("maxConnectionsPerHost must be greater than 0");
+	}
+
+	@Test
+	public void setSslSocketFactoryWhenNullThenIllegalArgumentException() {
+		assertThatCode(() -> this.prober.setSslSocketFactory(null))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("sslSocketFactory cannot be null");
+	}
+
+	@Test
+	public void probeWhenNullThenIllegalArgumentException() {
+		assertThatCode(() -> this.prober.probe(null))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("url cannot be null");
+	}
+
+	@Test
+	public void probeWhenOkThenOk() throws Exception {
+		this.server = StubServer.http().respond("/ok", 200);
+
+		assertThat(this.prober.probe(this.server.url("/ok")).get()).isEqualTo(200);
+	}
+
+	@Test
+	public void probeWhenNotFoundThenNotFound() throws Exception {
+		this.server = StubServer.http();
+
+		assertThat(this.prober.probe(this.server.url("/missing")).get()).isEqualTo(404);
+	}
+
+	@Test
+	public void probeWhenHttpsThenOk() throws Exception {
+		this.server = StubServer.https().respond("/ok", 200);
+		this.prober.setSslSocketFactory(this.server.sslSocketFactory());
+
+		assertThat(this.prober.probe(this.server.url("/ok")).get()).isEqualTo(200);
+	}
+
+	@Test
+	public void probeWhenHttpsUntrustedThenNull() throws Exception {
+		this.server = StubServer.https().respond("/ok", 200);
+
+		assertThat(this.prober.probe(this.server.url("/ok")).get()).isNull();
+	}
+
+	@Test
+	public void probeWhenConnectionRefusedThenNull() throws Exception {
+		int port;
+		try (ServerSocket socket = new ServerSocket(0)) {
+			port = socket.getLocalPort();
+		}
+
+		assertThat(this.prober.probe("http://localhost:" + port + "/").get()).isNull();
+	}
+
+	@Test
+	public void probeWhenSameUrlInFlightThenOneRequest() throws Exception {
+		this.server = StubServer.http().respond("/ok", 200).block();
+		String url = this.server.url("/ok");
+
+		CompletableFuture<Integer> first = this.prober.probe(url);
+		CompletableFuture<Integer> second = this.prober.probe(url);
+		this.server.release();
+
+		assertThat(second).isSameAs(first);
+		assertThat(first.get()).isEqualTo(200);
+		assertThat(this.prober.probe(url).get()).isEqualTo(200);
+		assertThat(this.server.requestCount("/ok")).isEqualTo(1);
+	}
+
+	@Test
+	public void probeWhenMaxConnectionsPerHostThenLimited() throws Exception {
+		this.server = StubServer.http().block();
+		this.prober.setMaxConnectionsPerHost(2);
+
+		List<CompletableFuture<Integer>> statuses = new ArrayList<>();
+		for (int i = 0; i < 6; i++) {
+			statuses.add(this.prober.probe(this.server.url("/" + i)));
+		}
+		Thread.sleep(200);
+		this.server.release();
+		CompletableFuture.allOf(statuses.toArray(new CompletableFuture<?>[0])).get();
+
+		assertThat(this.server.maxConcurrentRequests()).isEqualTo(2);
+		assertThat(statuses).allSatisfy(status -> assertThat(status).isCompletedWithValue(404));
+	}
+
+	@Test
+	public void probeWhenSlowHostThenOtherHostsNotBlocked() throws Exception {
+		this.server = StubServer.http().respond("/ok", 200).block();
+		try (StubServer other = StubServer.http().respond("/ok", 200)) {
+			this.prober.setMaxConnectionsPerHost(1);
+			CompletableFuture<Integer> slow = this.prober.probe(this.server.url("/ok"));
+
+			assertThat(this.prober.probe(other.url("/ok")).get()).isEqualTo(200);
+			assertThat(slow).isNotDone();
+			this.server.release();
+			assertThat(slow.get()).isEqualTo(200);
+		}
+	}
+
+	@Test
+	public void probeWhenStatusCacheHitThenNoRequest() throws Exception {
+		this.server = StubServer.http().respond("/ok", 200);
+		String url = this.server.url("/ok");
+		StatusCache cache = new StatusCache(this.temp.newFile());
+		cache.put(url, 503);
+		this.prober.setStatusCache(cache);
+
+		assertThat(this.prober.probe(url).get()).isEqualTo(503);
+		assertThat(this.server.requestCount("/ok")).isEqualTo(0);
+	}
+
+	@Test
+	public void probeWhenStatusCacheMissThenStored() throws Exception {
+		this.server = StubServer.http().respond("/ok", 200);
+		String url = this.server.url("/ok");
+		StatusCache cache = new StatusCache(this.temp.newFile());
+		this.prober.setStatusCache(cache);
+
+		assertThat(this.prober.probe(url).get()).isEqualTo(200);
+		assertThat(cache.get(url).getStatus()).isEqualTo(200);
+	}
+
+	@Test
+	public void probeWhenStatusCacheNotWritableThenCompletes() throws Exception {
+		this.server = StubServer.http().respond("/ok", 200);
+		String url = this.server.url("/ok");
+		// the parent is a file so the cache cannot be created
+		this.prober.setStatusCache(new StatusCache(new File(this.temp.newFile(), "status.log")));
+
+		assertThat(this.prober.probe(url).get(10, TimeUnit.SECONDS)).isEqualTo(200);
+	}
+
+	@Test
+	public void probeWhenOfflineAndNotCachedThenNullAndNoRequest() throws Exception {
+		this.server = StubServer.http().respond("/ok", 200);
+		this.prober.setStatusCache(new StatusCache(this.temp.newFile()));
+		this.prober.setOffline(true);
+
+		assertThat(this.prober.probe(this.server.url("/ok")).get()).isNull();
+		assertThat(this.server.requestCount("/ok")).isEqualTo(0);
+	}
+
+	@Test
+	public void setMaxRedirectsWhenNegativeThenIllegalArgumentException() {
+		assertThatCode(() -> this.prober.setMaxRedirects(-1))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("maxRedirects cannot be negative");
+	}
+
+	@Test
+	public void probeThenHead() throws Exception {
+		this.server = StubServer.http().respond("/ok", 200);
+
+		assertThat(this.prober.probe(this.server.url("/ok")).get()).isEqualTo(200);
+		assertThat(this.server.requests()).containsExactly("HEAD /ok");
+	}
+
+	@Test
+	public void probeWhenHeadNotAllowedThenGet() throws Exception {
+		this.server = StubServer.http().respond("/ok", 206).rejectHead();
+
+		assertThat(this.prober.probe(this.server.url("/ok")).get()).isEqualTo(206);
+		assertThat(this.server.requests()).containsExactly("HEAD /ok", "GET /ok");
+	}
+
+	@Test
+	public void probeWhenRedirectThenStatusOfLocation() throws Exception {
+		this.server = StubServer.https()
+				.redirect("/old", 301, "/new")
+				.respond("/new", 200);
+		this.prober.setSslSocketFactory(this.server.sslSocketFactory());
+
+		assertThat(this.prober.probe(this.server.url("/old")).get()).isEqualTo(200);
+	}
+
+	@Test
+	public void probeWhenRedirectToHttpThenNull() throws Exception {
+		this.server = StubServer.https().redirect("/old", 302, "http://localhost/new");
+		this.prober.setSslSocketFactory(this.server.sslSocketFactory());
+
+		assertThat(this.prober.probe(this.server.url("/old")).get()).isNull();
+	}
+
+	@Test
+	public void probeWhenTooManyRedirectsThenNull() throws Exception {
+		this.server = StubServer.http()
+				.redirect("/a", 302, "/b")
+				.redirect("/b", 302, "/c")
+				.respond("/c", 200);
+		this.prober.setMaxRedirects(1);
+
+		assertThat(this.prober.probe(this.server.url("/a")).get()).isNull();
+	}
+
+	@Test
+	public void setMaxRequestsPerSecondPerHostWhenNegativeThenIllegalArgumentException() {
+		assertThatCode(() -> this.prober.setMaxRequestsPerSecondPerHost(-1))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("maxRequestsPerSecondPerHost cannot be negative");
+	}
+
+	@Test
+	public void setMaxConsecutiveFailuresPerHostWhenZeroThenIllegalArgumentException() {
+		assertThatCode(() -> this.prober.setMaxConsecutiveFailuresPerHost(0))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("maxConsecutiveFailuresPerHost must be greater than 0");
+	}
+
+	@Test
+	public void probeWhenMaxRequestsPerSecondPerHostThenRateLimited() throws Exception {
+		this.server = StubServer.http();
+		this.prober.setMaxConnectionsPerHost(1);
+		this.prober.setMaxRequestsPerSecondPerHost(10);
+
+		long start = System.nanoTime();
+		List<CompletableFuture<Integer>> statuses = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			statuses.add(this.prober.probe(this.server.url("/" + i)));
+		}
+		CompletableFuture.allOf(statuses.toArray(new CompletableFuture<?>[0])).get();
+
+		// the first request uses the burst and the remaining 3 wait 100 ms each
+		assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(250);
+		assertThat(statuses).allSatisfy(status -> assertThat(status).isCompletedWithValue(404));
+	}
+
+	@Test
+	public void probeWhenMaxConsecutiveFailuresPerHostThenRemainingSkipped() throws Exception {
+		String url = "http://localhost:" + unusedPort() + "/";
+		this.prober.setMaxConnectionsPerHost(1);
+		this.prober.setMaxConsecutiveFailuresPerHost(2);
+
+		List<CompletableFuture<Integer>> statuses = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			statuses.add(this.prober.probe(url + i));
+		}
+		CompletableFuture.allOf(statuses.toArray(new CompletableFuture<?>[0]))
+				.handle((done, failure) -> null).get();
+
+		assertThat(statuses.get(0)).isCompletedWithValue(null);
+		assertThat(statuses.get(1)).isCompletedWithValue(null);
+		assertThatCode(() -> statuses.get(4).join())
+			.hasCauseInstanceOf(ProbeSkippedException.class)
+			.hasMessageContaining("2 consecutive requests failed");
+		assertThatCode(() -> this.prober.probe(url + "later").join())
+			.hasCauseInstanceOf(ProbeSkippedException.class);
+		HostMetrics metrics = this.prober.getHostMetrics().get(0);
+		assertThat(metrics.getRequests()).isEqualTo(2);
+		assertThat(metrics.getFailures()).isEqualTo(2);
+		assertThat(metrics.getSkipped()).isEqualTo(4);
+		assertThat(metrics.getSkipReason()).isEqualTo("2 consecutive requests failed");
+	}
+
+	@Test
+	public void probeWhenSkippedThenNotCached() throws Exception {
+		StatusCache statusCache = new StatusCache(this.temp.newFile());
+		this.prober.setStatusCache(statusCache);
+		String url = "http://localhost:" + unusedPort() + "/";
+		this.prober.setMaxConnectionsPerHost(1);
+		this.prober.setMaxConsecutiveFailuresPerHost(1);
+
+		this.prober.probe(url + "failed").get();
+		assertThatCode(() -> this.prober.probe(url + "skipped").join())
+			.hasCauseInstanceOf(ProbeSkippedException.class);
+
+		assertThat(statusCache.get(url + "failed")).isNotNull();
+		assertThat(statusCache.get(url + "skipped")).isNull();
+	}
+
+	@Test
+	public void probeWhenSuccessThenConsecutiveFailuresReset() throws Exception {
+		this.server = StubServer.http().respond("/ok", 200).redirect("/loop", 302, "/loop");
+		this.prober.setMaxConnectionsPerHost(1);
+		this.prober.setMaxConsecutiveFailuresPerHost(1);
+		this.prober.setMaxRedirects(0);
+
+		// too many redirects has no status, but is not a failure of the host
+		assertThat(this.prober.probe(this.server.url("/loop")).get()).isNull();
+		assertThat(this.prober.probe(this.server.url("/ok")).get()).isEqualTo(200);
+	}
+
+	@Test
+	public void getHostMetricsThenLatencyAndOutcomes() throws Exception {
+		this.server = StubServer.http().respond("/ok", 200);
+
+		this.prober.probe(this.server.url("/ok")).get();
+		this.prober.probe(this.server.url("/missing")).get();
+
+		List<HostMetrics> hostMetrics = this.prober.getHostMetrics();
+		assertThat(hostMetrics).hasSize(1);
+		HostMetrics metrics = hostMetrics.get(0);
+		assertThat(this.server.url("/")).contains(metrics.getHost());
+		assertThat(metrics.getRequests()).isEqualTo(2);
+		assertThat(metrics.getFailures()).isZero();
+		assertThat(metrics.getSkipped()).isZero();
+		assertThat(metrics.getSkipReason()).isNull();
+		assertThat(metrics.getMaxLatency()).isGreaterThanOrEqualTo(metrics.getAverageLatency());
+	}
+
+	private static int unusedPort() throws Exception {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.spring.nohttp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.security.KeyStore;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An embedded HTTP or HTTPS server for testing. Each path responds with the status
+ * registered by {@link #respond(String, int)} or 404.
+ */
+class StubServer implements Closeable {
+	private static final char[] PASSWORD = "password".toCharArray();
+
+	private final HttpServer server;
+
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+
+	private final SSLContext sslContext;
+
+	private final Map<String, Integer> pathToStatus = new ConcurrentHashMap<>();
+
+	private final Map<String, String> pathToLocation = new ConcurrentHashMap<>();
+
+	private final Map<String, AtomicInteger> pathToRequestCount = new ConcurrentHashMap<>();
+
+	private final List<String> requests = new CopyOnWriteArrayList<>();
+
+	private volatile boolean rejectHead;
+
+	private final AtomicInteger concurrentRequests = new AtomicInteger();
+
+	private final AtomicInteger maxConcurrentRequests = new AtomicInteger();
+
+	private volatile CountDownLatch release = new CountDownLatch(0);
+
+	private StubServer(HttpServer server, SSLContext sslContext) {
+		this.server = server;
+		this.sslContext = sslContext;
+		this.server.createContext("/", this::handle);
+		this.server.setExecutor(this.executor);
+		this.server.start();
+	}
+
+	static StubServer http() throws IOException {
+		return new StubServer(HttpServer.create(address(), 0), null);
+	}
+
+	static StubServer https() throws Exception {
+		SSLContext sslContext = createSslContext();
+		HttpsServer server = HttpsServer.create(address(), 0);
+		server.setHttpsConfigurator(new HttpsConfigurator(sslContext));
+		return new StubServer(server, sslContext);
+	}
+
+	/**
+	 * Responds to requests for the path with the status
+	 */
+	StubServer respond(String path, int status) {
+		this.pathToStatus.put(path, status);
+		return this;
+	}
+
+	/**
+	 * Redirects requests for the path to the location
+	 */
+	StubServer redirect(String path, int status, String location) {
+		this.pathToLocation.put(path, location);
+		return respond(path, status);
+	}
+
+	/**
+	 * Responds to HEAD requests with 405
+	 */
+	StubServer rejectHead() {
+		this.rejectHead = true;
+		return this;
+	}
+
+	/**
+	 * Causes requests to wait until {@link #release()} is invoked
+	 */
+	StubServer block() {
+		this.release = new CountDownLatch(1);
+		return this;
+	}
+
+	void release() {
+		this.release.countDown();
+	}
+
+	/**
+	 * The URL of the path using localhost
+	 */
+	String url(String path) {
+		String scheme = this.sslContext == null ? "http" : "https";
+		return scheme + "://localhost:" + this.server.getAddress().getPort() + path;
+	}
+
+	/**
+	 * A {@link SSLSocketFactory} that trusts this server
+	 */
+	SSLSocketFactory sslSocketFactory() {
+		return this.sslContext.getSocketFactory();
+	}
+
+	int requestCount(String path) {
+		AtomicInteger count = this.pathToRequestCount.get(path);
+		return count == null ? 0 : count.get();
+	}
+
+	/**
+	 * The method and path of each request (i.e. "HEAD /ok")
+	 */
+	List<String> requests() {
+		return this.requests;
+	}
+
+	int maxConcurrentRequests() {
+		return this.maxConcurrentRequests.get();
+	}
+
+	@Override
+	public void close() {
+		release();
+		this.server.stop(0);
+		this.executor.shutdownNow();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		String path = exchange.getRequestURI().getPath();
+		String method = exchange.getRequestMethod();
+		this.requests.add(method + " " + path);
+		this.pathToRequestCount.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+		int concurrent = this.concurrentRequests.incrementAndGet();
+		this.maxConcurrentRequests.accumulateAndGet(concurrent, Math::max);
+		try {
+			this.release.await(10, TimeUnit.SECONDS);
+			if (this.rejectHead && "HEAD".equals(method)) {
+				exchange.sendResponseHeaders(405, -1);
+				return;
+			}
+			String location = this.pathToLocation.get(path);
+			if (location != null) {
+				exchange.getResponseHeaders().set("Location", location);
+			}
+			int status = this.pathToStatus.getOrDefault(path, 404);
+			exchange.sendResponseHeaders(status, -1);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			this.concurrentRequests.decrementAndGet();
+			exchange.close();
+		}
+	}
+
+	private static InetSocketAddress address() {
+		return new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+	}
+
+	private static SSLContext createSslContext() throws Exception {
+		KeyStore keyStore = KeyStore.getInstance("PKCS12");
+		try (InputStream input = StubServer.class.getResourceAsStream("localhost.p12")) {
+			keyStore.load(input, PASSWORD);
+		}
+		KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+		keyManagers.init(keyStore, PASSWORD);
+		TrustManagerFactory trustManagers = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+		trustManagers.init(keyStore);
+		SSLContext sslContext = SSLContext.getInstance("TLS");
+		sslContext.init(keyManagers.getKeyManagers(), trustManagers.getTrustManagers(), null);
+		return sslContext;
+	}
+}
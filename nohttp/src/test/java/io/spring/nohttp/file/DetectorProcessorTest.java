@@ -0,0 +1,242 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.spring.nohttp.file;
+
+import io.spring.nohttp.HttpMatchResult;
+import io.spring.nohttp.RegexHttpMatcher;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class DetectorProcessorTest {
+	private static final File SOURCES_DIR = new File("src/test/resources/file/gradlehttpdslscanner");
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	private RegexHttpMatcher matcher = new RegexHttpMatcher(url -> false);
+
+	@Test
+	public void constructorWhenNullThenIllegalArgumentException() {
+		assertThatCode(() -> new DetectorProcessor(null))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("detectors cannot be null");
+	}
+
+	@Test
+	public void constructorWhenDuplicateNameThenIllegalArgumentException() {
+		assertThatCode(() -> new DetectorProcessor(Arrays.asList(Detector.http(this.matcher), Detector.http(this.matcher))))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("Duplicate detector named http");
+	}
+
+	@Test
+	public void getHttpMatchesWhenUnknownDetectorThenIllegalArgumentException() {
+		DetectorProcessor processor = new DetectorProcessor(Collections.emptyList());
+
+		assertThatCode(() -> processor.getHttpMatches("http"))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("No detector named http");
+	}
+
+	@Test
+	public void processFileWhenMultipleDetectorsThenAllRun() throws IOException {
+		File file = write("a http://example.com/a b ftp://example.com/b c git://example.com/c.git");
+		DetectorProcessor processor = new DetectorProcessor(Arrays.asList(
+				Detector.http(this.matcher), Detector.ftp(url -> false), Detector.git(url -> false)));
+
+		List<HttpMatchResult> results = processor.processFile(file);
+
+		assertThat(results).extracting(HttpMatchResult::getHttp)
+			.containsExactly("http://example.com/a", "ftp://example.com/b", "git://example.com/c.git");
+		assertThat(processor.getHttpMatches("http")).containsOnly("http://example.com/a");
+		assertThat(processor.getHttpMatches("ftp")).containsOnly("ftp://example.com/b");
+		assertThat(processor.getHttpMatches("git")).containsOnly("git://example.com/c.git");
+		assertThat(processor.getHttpMatches()).hasSize(3);
+		assertThat(FileUtils.readTextFrom(file)).isEqualTo("a http://example.com/a b ftp://example.com/b c git://example.com/c.git");
+	}
+
+	@Test
+	public void processFileWhenReplaceThenHttpReplacedAndWritten() throws IOException {
+		File file = write("a http://example.com/a b ftp://example.com/b c git://example.com/c.git");
+		DetectorProcessor processor = new DetectorProcessor(Arrays.asList(
+				Detector.http(this.matcher), Detector.ftp(url -> false), Detector.git(url -> false)));
+		processor.setReplace(true);
+
+		processor.processFile(file);
+
+		assertThat(FileUtils.readTextFrom(file)).isEqualTo("a https://example.com/a b ftp://example.com/b c git://example.com/c.git");
+		assertThat(processor.getHttpMatches("http")).containsOnly("http://example.com/a");
+		assertThat(processor.getHttpMatches("ftp")).containsOnly("ftp://example.com/b");
+		assertThat(processor.getHttpMatches("git")).containsOnly("git://example.com/c.git");
+	}
+
+	@Test
+	public void processFileWhenReplaceAndReportOnlyThenNotWritten() throws IOException {
+		File file = write("a http://example.com/a");
+		file.setLastModified(1000);
+		DetectorProcessor processor = new DetectorProcessor(Arrays.asList(Detector.http(this.matcher).reportOnly()));
+		processor.setReplace(true);
+
+		processor.processFile(file);
+
+		assertThat(FileUtils.readTextFrom(file)).isEqualTo("a http://example.com/a");
+		assertThat(file.lastModified()).isEqualTo(1000);
+		assertThat(processor.getHttpMatches("http")).containsOnly("http://example.com/a");
+	}
+
+	@Test
+	public void processFileWhenFtpAllowedThenNotFound() throws IOException {
+		File file = write("a ftp://example.com/a b ftp://example.org/b");
+		DetectorProcessor processor = new DetectorProcessor(Arrays.asList(
+				Detector.ftp(url -> url.startsWith("ftp://example.com/"))));
+
+		processor.processFile(file);
+
+		assertThat(processor.getHttpMatches("ftp")).containsOnly("ftp://example.org/b");
+	}
+
+	@Test
+	public void processFileWhenReplaceAndNoResultsThenNotWritten() throws IOException {
+		File file = write("https://example.com/");
+		file.setLastModified(1000);
+		DetectorProcessor processor = new DetectorProcessor(Arrays.asList(Detector.http(this.matcher)));
+		processor.setReplace(true);
+
+		assertThat(processor.processFile(file)).isEmpty();
+		assertThat(file.lastModified()).isEqualTo(1000);
+	}
+
+	@Test
+	public void processFileWhenNoLiteralThenDetectorNotRun() throws IOException {
+		File file = write("no urls");
+		AtomicInteger finds = new AtomicInteger();
+		Detector detector = Detector.create("counting", text -> {
+			finds.incrementAndGet();
+			return Collections.emptyList();
+		}, this.matcher).literals("http", "ftp");
+
+		new DetectorProcessor(Arrays.asList(detector)).processFile(file);
+
+		assertThat(finds).hasValue(0);
+	}
+
+	@Test
+	public void processFileWhenLiteralThenDetectorRun() throws IOException {
+		File file = write("ftp");
+		AtomicInteger finds = new AtomicInteger();
+		Detector detector = Detector.create("counting", text -> {
+			finds.incrementAndGet();
+			return Collections.emptyList();
+		}, this.matcher).literals("http", "ftp");
+
+		new DetectorProcessor(Arrays.asList(detector)).processFile(file);
+
+		assertThat(finds).hasValue(1);
+	}
+
+	@Test
+	public void processFileWhenNotAppliesToThenDetectorNotRun() throws IOException {
+		File file = write("http://example.com/");
+		Detector detector = Detector.http(this.matcher)
+			.appliesTo(f -> f.getName().endsWith(".xml"));
+		DetectorProcessor processor = new DetectorProcessor(Arrays.asList(detector));
+
+		assertThat(processor.processFile(file)).isEmpty();
+	}
+
+	@Test
+	public void processFileWhenGradleDslAndGradle1ThenFound() {
+		DetectorProcessor processor = new DetectorProcessor(Arrays.asList(Detector.gradleDsl()));
+
+		processor.processFile(new File(SOURCES_DIR, "gradle1/build.gradle"));
+		processor.processFile(new File(SOURCES_DIR, "gradle1/jcenter/jcenter.gradle"));
+
+		assertThat(processor.getHttpMatches("gradle-dsl")).containsOnly("mavenCentral()", "jcenter()");
+	}
+
+	@Test
+	public void processFileWhenGradleDslAndGradle21ThenNotFound() {
+		DetectorProcessor processor = new DetectorProcessor(Arrays.asList(Detector.gradleDsl()));
+
+		processor.processFile(new File(SOURCES_DIR, "gradle2.1/build.gradle"));
+		processor.processFile(new File(SOURCES_DIR, "gradle2.1/jcenter/jcenter.gradle"));
+
+		assertThat(processor.getHttpMatches("gradle-dsl")).isEmpty();
+	}
+
+	@Test
+	public void processFileWhenGradleDslAndNoWrapperThenNotFound() {
+		DetectorProcessor processor = new DetectorProcessor(Arrays.asList(Detector.gradleDsl()));
+
+		processor.processFile(new File(SOURCES_DIR, "nogradlewrapper/jcenter/jcenter.gradle"));
+
+		assertThat(processor.getHttpMatches("gradle-dsl")).isEmpty();
+	}
+
+	@Test
+	public void processFileWhenMavenRepositoryThenOnlyInPom() throws IOException {
+		String pom = "<project><repositories><repository><url>http://repo.example.com/</url></repository></repositories></project>";
+		File pomFile = new File(this.temp.newFolder(), "pom.xml");
+		FileUtils.writeTextTo(pom, pomFile);
+		File other = write(pom);
+		DetectorProcessor processor = new DetectorProcessor(Arrays.asList(Detector.mavenRepository()));
+
+		assertThat(processor.processFile(other)).isEmpty();
+		assertThat(processor.processFile(pomFile)).extracting(HttpMatchResult::getHttp)
+			.containsOnly("http://repo.example.com/");
+	}
+
+	@Test
+	public void scanWhenDirScannerThenSingleScan() {
+		DetectorProcessor processor = new DetectorProcessor(Arrays.asList(Detector.http(this.matcher), Detector.gradleDsl()));
+
+		DirScanner.create(SOURCES_DIR).scan(processor::processFile);
+
+		assertThat(processor.getHttpMatches("gradle-dsl")).containsOnly("mavenCentral()", "jcenter()");
+		assertThat(processor.getHttpMatches("http")).isEmpty();
+	}
+
+	@Test
+	public void processFileWhenMaxMatchesThenOnlyFilesWithMatchesFound() throws IOException {
+		File clean = write("https://example.com/");
+		File dirty = write("a http://example.com/a b http://example.com/b");
+		DetectorProcessor processor = new DetectorProcessor(Arrays.asList(Detector.http(this.matcher)));
+		processor.setMaxMatches(1);
+
+		assertThat(processor.processFile(clean)).isEmpty();
+		assertThat(processor.processFile(dirty)).extracting(HttpMatchResult::getHttp)
+			.containsExactly("http://example.com/a", "http://example.com/b");
+		assertThat(processor.isMaxMatchesReached()).isTrue();
+	}
+
+	private File write(String text) throws IOException {
+		File file = this.temp.newFile();
+		FileUtils.writeTextTo(text, file);
+		return file;
+	}
+}
@@ -23,6 +23,7 @@ import org.junit.rules.TemporaryFolder;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static io.spring.nohttp.file.FilePredicates.fileHasName;
@@ -186,6 +187,132 @@ public class DirScannerTest {
 				.hasMessage("fileProcessor cannot be null");
 	}
 
+	@Test
+	public void stopWhenNullThenIllegalArgumentException() throws IOException {
+		DirScanner scanner = DirScanner.create(this.temp.newFolder());
+		assertThatCode(() -> scanner.stopWhen(null))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("stop cannot be null");
+	}
+
+	@Test
+	public void scanWhenStopWhenTrueThenStops() {
+		File dir = new File(SOURCES_DIR, "excludefiles");
+
+		DirScanner.create(dir)
+				.stopWhen(() -> !this.fileNames.isEmpty())
+				.scan(this::collectFileNames);
+
+		assertThat(this.fileNames).hasSize(1);
+	}
+
+	@Test
+	public void orderWhenNullThenIllegalArgumentException() throws IOException {
+		DirScanner scanner = DirScanner.create(this.temp.newFolder());
+		assertThatCode(() -> scanner.order(null))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("order cannot be null");
+	}
+
+	@Test
+	public void scanWhenLargestFirstThenLargestProcessedFirst() throws IOException {
+		File dir = this.temp.newFolder();
+		write(new File(dir, "small.txt"), "a");
+		write(new File(dir, "large.txt"), "aaaaaaaaaa");
+		write(new File(dir, "medium.txt"), "aaaaa");
+
+		DirScanner.create(dir)
+				.order(ScanOrder.LARGEST_FIRST)
+				.scan(this::collectFileNames);
+
+		assertThat(this.fileNames).containsExactly("large.txt", "medium.txt", "small.txt");
+	}
+
+	@Test
+	public void scanWhenRecentlyModifiedFirstThenNewestProcessedFirst() throws IOException {
+		File dir = this.temp.newFolder();
+		write(new File(dir, "old.txt"), "a").setLastModified(1000000);
+		write(new File(dir, "new.txt"), "a").setLastModified(3000000);
+		write(new File(dir, "middle.txt"), "a").setLastModified(2000000);
+
+		DirScanner.create(dir)
+				.order(ScanOrder.RECENTLY_MODIFIED_FIRST)
+				.scan(this::collectFileNames);
+
+		assertThat(this.fileNames).containsExactly("new.txt", "middle.txt", "old.txt");
+	}
+
+	@Test
+	public void parallelismWhenLessThanOneThenIllegalArgumentException() throws IOException {
+		DirScanner scanner = DirScanner.create(this.temp.newFolder());
+		assertThatCode(() -> scanner.parallelism(0))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("parallelism must be at least 1");
+	}
+
+	@Test
+	public void scanWhenParallelismThenAllProcessed() throws IOException {
+		File dir = this.temp.newFolder();
+		for (int i = 0; i < 20; i++) {
+			write(new File(dir, i + ".txt"), "a");
+		}
+		List<String> names = Collections.synchronizedList(new ArrayList<>());
+
+		DirScanner.create(dir)
+				.parallelism(4)
+				.scan(f -> names.add(f.getName()));
+
+		assertThat(names).hasSize(20).doesNotHaveDuplicates();
+	}
+
+	@Test
+	public void scanWhenParallelismAndProcessorFailsThenException() throws IOException {
+		File dir = this.temp.newFolder();
+		write(new File(dir, "a.txt"), "a");
+
+		assertThatCode(() -> DirScanner.create(dir)
+				.parallelism(2)
+				.scan(f -> { throw new IllegalStateException("failed " + f.getName()); }))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessage("failed a.txt");
+	}
+
+	// files
+
+	@Test
+	public void filesWhenParallelismThenAllFiles() throws IOException {
+		File dir = this.temp.newFolder();
+		for (int i = 0; i < 500; i++) {
+			write(new File(dir, i + ".txt"), "a");
+		}
+
+		List<File> files = DirScanner.create(dir)
+				.parallelism(8)
+				.files();
+
+		assertThat(files).hasSize(500).doesNotHaveDuplicates();
+	}
+
+	@Test
+	public void filesWhenOrderThenOrdered() throws IOException {
+		File dir = this.temp.newFolder();
+		write(new File(dir, "small.txt"), "a");
+		write(new File(dir, "large.txt"), "aaaaaaaaaa");
+		write(new File(dir, "medium.txt"), "aaaaa");
+
+		List<File> files = DirScanner.create(dir)
+				.order(ScanOrder.LARGEST_FIRST)
+				.parallelism(4)
+				.files();
+
+		assertThat(files).extracting(File::getName).containsExactly("large.txt", "medium.txt", "small.txt");
+	}
+
+	private static File write(File file, String text) {
+		FileUtils.writeTextTo(text, file);
+		return file;
+	}
+
 	private void collectFileNames(File file) {
 		this.fileNames.add(file.getName());
 	}
@@ -82,6 +82,40 @@ public class HttpProcessorTest {
 		assertThat(this.processor.getHttpMatches()).containsOnly(httpText);
 	}
 
+	@Test
+	public void setMaxMatchesWhenNegativeThenIllegalArgumentException() {
+		assertThatCode(() -> this.processor.setMaxMatches(-1))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("maxMatches cannot be negative");
+	}
+
+	@Test
+	public void processFileWhenMaxMatchesReachedThenNotProcessed() throws IOException {
+		this.processor.results.add(new HttpMatchResult("http://example.local", 0));
+		this.processor.setMaxMatches(1);
+		File first = this.temp.newFile();
+		File second = this.temp.newFile();
+
+		assertThat(this.processor.isMaxMatchesReached()).isFalse();
+		assertThat(this.processor.processFile(first)).hasSize(1);
+		assertThat(this.processor.isMaxMatchesReached()).isTrue();
+		assertThat(this.processor.processFile(second)).isEmpty();
+		assertThat(this.processor.files).containsOnly(first);
+	}
+
+	@Test
+	public void processFileWhenMaxMatchesDefaultThenAllProcessed() throws IOException {
+		this.processor.results.add(new HttpMatchResult("http://example.local", 0));
+		File first = this.temp.newFile();
+		File second = this.temp.newFile();
+
+		this.processor.processFile(first);
+		this.processor.processFile(second);
+
+		assertThat(this.processor.isMaxMatchesReached()).isFalse();
+		assertThat(this.processor.files).containsOnly(first, second);
+	}
+
 	static class MockHttpProcessor extends HttpProcessor {
 		private List<File> files = new ArrayList<>();
 
@@ -126,6 +126,63 @@ public class PreGradle21ScannerTest {
 		assertThat(this.fileNames).isEmpty();
 	}
 
+	@Test
+	public void scanWhenNestedLegacyRootThenEachFileOnce() throws IOException {
+		File dir = this.temp.newFolder();
+		gradleRoot(dir, "1.12");
+		gradleRoot(new File(dir, "nested"), "1.12");
+
+		PreGradle21Scanner.create(dir)
+				.scan(this::collectFilePaths);
+
+		assertThat(this.fileNames).containsExactlyInAnyOrder(
+				new File(dir, "build.gradle").getPath(),
+				new File(dir, "nested/build.gradle").getPath());
+	}
+
+	@Test
+	public void scanWhenNestedRootNotLegacyThenNestedNotFound() throws IOException {
+		File dir = this.temp.newFolder();
+		gradleRoot(dir, "1.12");
+		gradleRoot(new File(dir, "nested"), "6.8.3");
+		write("jcenter()", new File(dir, "nested/sub/sub.gradle"));
+
+		PreGradle21Scanner.create(dir)
+				.scan(this::collectFilePaths);
+
+		assertThat(this.fileNames).containsExactly(new File(dir, "build.gradle").getPath());
+	}
+
+	@Test
+	public void scanWhenLegacyRootWithinRootThenLegacyFound() throws IOException {
+		File dir = this.temp.newFolder();
+		gradleRoot(dir, "6.8.3");
+		gradleRoot(new File(dir, "nested"), "2.0");
+		write("jcenter()", new File(dir, "nested/sub/sub.gradle"));
+
+		PreGradle21Scanner.create(dir)
+				.scan(this::collectFilePaths);
+
+		assertThat(this.fileNames).containsExactlyInAnyOrder(
+				new File(dir, "nested/build.gradle").getPath(),
+				new File(dir, "nested/sub/sub.gradle").getPath());
+	}
+
+	private static void gradleRoot(File dir, String gradleVersion) {
+		write("distributionUrl=https\\://services.gradle.org/distributions/gradle-" + gradleVersion + "-bin.zip\n",
+				new File(dir, "gradle/wrapper/gradle-wrapper.properties"));
+		write("mavenCentral()", new File(dir, "build.gradle"));
+	}
+
+	private static void write(String text, File file) {
+		file.getParentFile().mkdirs();
+		FileUtils.writeTextTo(text, file);
+	}
+
+	private void collectFilePaths(File file) {
+		this.fileNames.add(file.getPath());
+	}
+
 	private void collectFileNames(File file) {
 		this.fileNames.add(file.getName());
 	}